@@ -8,9 +8,12 @@ import java.util.ArrayList;
  */
 public class Collision implements Comparable<Collision>{
 	
-	private String zip;
+	private int zip;
 	private Date date;
-	private String key;
+	private long key;
+	//The zip code and the day number of the date packed into one number, 
+	//so that the records can be compared without parsing any strings
+	private long zipDay;
 	private int personsInjured;
 	private int pedestriansInjured;
 	private int cyclistsInjured;
@@ -28,7 +31,7 @@ public class Collision implements Comparable<Collision>{
 	 *	• the date cannot be empty and has to represent a valid Date object
 	 *	• the zip code has to be a five character string with digits as all of its characters
 	 *	• the number of persons/pedestrians/cyclists/motorists injured/killed has to be a non-negative integer
-	 *	• the unique key has to be a non-empty string
+	 *	• the unique key has to be a non-empty string (that can be compared as a number)
 	 * The other entries do not need to be verified and may contain empty strings. 
 	 * 
 	 * @param entries
@@ -46,7 +49,7 @@ public class Collision implements Comparable<Collision>{
 		//checks if date is not empty and is a valid Date object
 		if (entries.get(0).length() == 0){
 			throw new IllegalArgumentException("Error: The date is empty or is not a valid Date object.");
-		} else date = new Date(entries.get(0));
+		} else date = Date.valueOf(entries.get(0));
 		
 		//checks if the zip code is a five character string with digits as all of its characters
 		if (entries.get(3).length() != 5){
@@ -58,7 +61,7 @@ public class Collision implements Comparable<Collision>{
 				throw new IllegalArgumentException("Error: The zip code is not a five digit number.");
 			}
 		}
-		zip = entries.get(3);
+		zip = Integer.parseInt(entries.get(3));
 		
 		//checks if the number of persons/pedestrians/cyclists/motorists injured/killed is a non-negative integer 
 		for (int i = 10; i < 18; i ++){
@@ -76,9 +79,229 @@ public class Collision implements Comparable<Collision>{
 		motoristsKilled = Integer.parseInt(entries.get(17));
 		
 		//checks if the unique key is a non-empty string
+		//the key also has to be a number since the keys are compared as numbers
 		if (entries.get(23).length() == 0){
 			throw new IllegalArgumentException("");
-		} else key = entries.get(23);
+		} else key = Long.parseLong(entries.get(23));
+		
+		zipDay = zipDay(zip, date.getDayNumber());
+	}
+	
+	/*
+	 * This class decodes and validates the entries of a row (see splitCSVLine) with the same rules 
+	 * as the constructor, but returns the reason a row is not valid instead of throwing an exception,
+	 * since building the stack trace of an exception costs much more than the checks themselves and
+	 * a large share of the rows of the NYPD file is not valid. The values of the last row are kept 
+	 * in the decoder, so one decoder is reused for all the rows of a reader and should not be shared 
+	 * between threads (see MappedCollisionReader.RowParser for the same for the mapped file).
+	 */
+	static class RowDecoder {
+		
+		private int dayNumber;
+		private int zip;
+		private long key;
+		private final int[] counts = new int[8];
+		//Value of the last number parsed by parseNumber
+		private long number;
+		
+		/*
+		 * Decodes the entries of a row. The entries are checked in the order of the columns,
+		 * like the RowParser checks them, and a row with 23 or fewer entries is a short row
+		 * unless one of its entries is not valid.
+		 * 
+		 * @return null if the entries make a valid Collision (see toCollision), 
+		 * the reason they do not otherwise
+		 */
+		CollisionMonitor.Reject decode(ArrayList<String> entries){
+			int size = entries.size();
+			if (size > 0){
+				//checks if date is not empty and is a valid Date object
+				if (entries.get(0).length() == 0){
+					return CollisionMonitor.Reject.BAD_DATE;
+				}
+				dayNumber = Date.parseDayNumber(entries.get(0));
+				if (dayNumber < 0){
+					return CollisionMonitor.Reject.BAD_DATE;
+				}
+			}
+			if (size > 3){
+				//checks if the zip code is a five character string with digits as all of its characters
+				String entry = entries.get(3);
+				if (entry.length() != 5){
+					return CollisionMonitor.Reject.BAD_ZIP;
+				}
+				int value = 0;
+				for (int i = 0; i < entry.length(); i++){
+					char c = entry.charAt(i);
+					if (c < '0' || c > '9'){
+						return CollisionMonitor.Reject.BAD_ZIP;
+					}
+					value = value * 10 + (c - '0');
+				}
+				zip = value;
+			}
+			//checks if the number of persons/pedestrians/cyclists/motorists injured/killed is a non-negative integer 
+			for (int i = 10; i < 18 && i < size; i++){
+				if (!parseNumber(entries.get(i), true)){
+					return CollisionMonitor.Reject.BAD_COUNT;
+				}
+				if (number < 0){
+					return CollisionMonitor.Reject.NEGATIVE_COUNT;
+				}
+				counts[i - 10] = (int) number;
+			}
+			if (size <= 23){
+				return CollisionMonitor.Reject.SHORT_ROW;
+			}
+			//checks if the unique key is a non-empty string that is a number
+			if (entries.get(23).length() == 0){
+				return CollisionMonitor.Reject.EMPTY_KEY;
+			}
+			if (!parseNumber(entries.get(23), false)){
+				return CollisionMonitor.Reject.BAD_KEY;
+			}
+			key = number;
+			return null;
+		}
+		
+		/*
+		 * Returns a new Collision object with the values of the last row that was decoded
+		 * successfully.
+		 */
+		Collision toCollision(){
+			return new Collision(Date.fromDayNumber(dayNumber), zip, key, counts);
+		}
+		
+		/*
+		 * Parses the string with the rules of Integer.parseInt (or Long.parseLong) into number,
+		 * without an exception when it is not a number: an optional sign and the digits 0-9 are 
+		 * decoded here, the digits of other scripts (which parseInt accepts as well) are left to 
+		 * parseInt itself.
+		 * 
+		 * @return false if the string is not an int (or a long)
+		 */
+		private boolean parseNumber(String s, boolean isInt){
+			int length = s.length();
+			if (length == 0){
+				return false;
+			}
+			int from = 0;
+			boolean negative = false;
+			if (s.charAt(0) == '-' || s.charAt(0) == '+'){
+				negative = s.charAt(0) == '-';
+				from++;
+				if (from == length){
+					return false;
+				}
+			}
+			//the value is accumulated as a negative number so that Long.MIN_VALUE fits
+			long value = 0;
+			for (int i = from; i < length; i++){
+				char c = s.charAt(i);
+				if (c < '0' || c > '9'){
+					return c >= 0x80 && parseOtherDigits(s, isInt);
+				}
+				if (value < (Long.MIN_VALUE + (c - '0')) / 10){
+					return false;
+				}
+				value = value * 10 - (c - '0');
+			}
+			if (!negative){
+				if (value == Long.MIN_VALUE){
+					return false;
+				}
+				value = -value;
+			}
+			if (isInt && (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE)){
+				return false;
+			}
+			number = value;
+			return true;
+		}
+		
+		/*
+		 * Parses a number with the digits of other scripts with Integer.parseInt or Long.parseLong.
+		 */
+		private boolean parseOtherDigits(String s, boolean isInt){
+			try {
+				number = isInt ? Integer.parseInt(s) : Long.parseLong(s);
+				return true;
+			} catch (NumberFormatException e){
+				return false;
+			}
+		}
+	}
+	
+	/*
+	 * Creates a Collision object from entries that were already decoded and validated
+	 * by a reader that does not go through splitCSVLine (see MappedCollisionReader).
+	 * The counts are given in the order of the columns of the input file: 
+	 * persons injured/killed, pedestrians injured/killed, cyclists injured/killed
+	 * and motorists injured/killed.
+	 * 
+	 * @param date the date of the collision
+	 * @param zip the five digit zip code as a number
+	 * @param key the unique key as a number
+	 * @param counts the eight casualty counts
+	 */
+	Collision(Date date, int zip, long key, int[] counts){
+		this.date = date;
+		this.zip = zip;
+		this.key = key;
+		this.zipDay = zipDay(zip, date.getDayNumber());
+		personsInjured = counts[0];
+		personsKilled = counts[1];
+		pedestriansInjured = counts[2];
+		pedestriansKilled = counts[3];
+		cyclistsInjured = counts[4];
+		cyclistsKilled = counts[5];
+		motoristsInjured = counts[6];
+		motoristsKilled = counts[7];
+	}
+	
+	//Canonical strings of the zip codes so that the records of the same zip code share one String
+	private static final String[] ZIP_STRINGS = new String[100000];
+	
+	/*
+	 * Returns the five character string of the given zip code. 
+	 * The strings are created once per zip code and shared afterwards. 
+	 * 
+	 * @param zip zip code between 0 and 99999
+	 * @return the zip code padded with zeros to five characters
+	 */
+	static String zipString(int zip){
+		String s = ZIP_STRINGS[zip];
+		if (s == null){
+			s = String.format("%05d", zip);
+			ZIP_STRINGS[zip] = s;
+		}
+		return s;
+	}
+	
+	/*
+	 * Packs a zip code and a day number (see Date.getDayNumber()) into one number.
+	 * Comparing the packed numbers gives the same order as comparing the zip codes
+	 * and then the dates.
+	 * 
+	 * @param zip zip code between 0 and 99999
+	 * @param dayNumber the day number of a date
+	 * @return the packed number
+	 */
+	static long zipDay(int zip, int dayNumber){
+		return ((long) zip << 32) | dayNumber;
+	}
+	
+	/*
+	 * Packs a day number and a zip code into one number, the other way around from zipDay: 
+	 * comparing the packed numbers gives the same order as comparing the dates and then 
+	 * the zip codes.
+	 * 
+	 * @param dayNumber the day number of a date
+	 * @param zip zip code between 0 and 99999
+	 * @return the packed number
+	 */
+	static long dayZip(int dayNumber, int zip){
+		return ((long) dayNumber << 32) | zip;
 	}
 	
 	/**
@@ -86,9 +309,32 @@ public class Collision implements Comparable<Collision>{
 	 * @return
 	 */
 	public String getZip(){
+		return zipString(zip);
+	}
+	
+	/*
+	 * Returns the zip code of the Collision object as a number.
+	 */
+	int getZipCode(){
 		return zip;
 	}
 	
+	/*
+	 * Returns the zip code and the day number of the date of the Collision object 
+	 * packed into one number (see zipDay).
+	 */
+	long getZipDay(){
+		return zipDay;
+	}
+	
+	/*
+	 * Returns the day number of the date and the zip code of the Collision object 
+	 * packed into one number (see dayZip).
+	 */
+	long getDayZip(){
+		return (zipDay << 32) | (zipDay >>> 32);
+	}
+	
 	/**
 	 * Returns the date of the Collision object. 
 	 * @return
@@ -102,6 +348,13 @@ public class Collision implements Comparable<Collision>{
 	 * @return
 	 */
 	public String getKey(){
+		return Long.toString(key);
+	}
+	
+	/*
+	 * Returns the unique key of the Collision object as a number.
+	 */
+	long getKeyNumber(){
 		return key;
 	}
 	
@@ -184,18 +437,13 @@ public class Collision implements Comparable<Collision>{
 	 * is greater/later than that of the Collision object o that it is being compared to
 	 */
 	public int compareTo(Collision o) {
-		if ( this.getZip().equals(o.getZip()) ){
-			if ( this.getDate().equals(o.getDate()) ){
-				if ( this.getKey().equals(o.getKey()) ){
-					return 0;
-				}
-				else if ( Integer.parseInt(this.getKey()) < Integer.parseInt(o.getKey())) return -1;
-				else return 1;
-			}
-			return this.getDate().compareTo(o.getDate());
+		if (this.zipDay != o.zipDay){
+			return this.zipDay < o.zipDay ? -1 : 1;
+		}
+		if (this.key != o.key){
+			return this.key < o.key ? -1 : 1;
 		}
-		else if ( Integer.parseInt(this.getZip()) < Integer.parseInt(o.getZip())) return -1;
-		else return 1;
+		return 0;
 	}
 
 	/**
@@ -216,13 +464,15 @@ public class Collision implements Comparable<Collision>{
 		if (!(obj instanceof Collision))
 			return false;
 		Collision other = (Collision) obj;
-		if ( !(this.getZip().equals(other.getZip())) ) 
-			return false;
-		if ( !(this.getDate().equals(other.getDate())) )
-			return false;
-		if ( !(this.getKey().equals(other.getKey())) )
-			return false;
-		return true;
+		return this.zipDay == other.zipDay && this.key == other.key;
+	}
+	
+	/**
+	 * Returns a hash code that is consistent with equals. 
+	 * @see java.lang.Object#hashCode()
+	 */
+	public int hashCode() {
+		return Long.hashCode(zipDay * 31 + key);
 	}
 	
 	/**
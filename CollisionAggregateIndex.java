@@ -0,0 +1,144 @@
+package project5;
+
+/**
+ * This class is an index of cumulative sums that answers the report for any zip code and
+ * date range with two binary searches and a subtraction, no matter how many collisions
+ * fall in the range.
+ *
+ * The index keeps one entry per zip code and date that has at least one collision, sorted by
+ * zip code and date. For every entry it stores the number of collisions, fatalities and injuries
+ * (with the breakdown for pedestrians, cyclists and motorists) of all the entries before it.
+ * Since all the entries of a zip code are next to each other and in date order, the difference
+ * of the sums at the two ends of a date range is the total of that zip code within the range.
+ *
+ * The index does not change when the CollisionsData object it was created from changes.
+ *
+ * @author Gayeon_Park
+ *
+ */
+public class CollisionAggregateIndex implements CollisionReporter {
+
+	//Zip code and day number of every entry
+	private final int[] zips;
+	private final int[] days;
+	//Sums of all the entries before the given position, there is one more position than entries
+	private final int[] numCollisions;
+	private final int[] totFatalities;
+	private final int[] totPedFatalities;
+	private final int[] totCycFatalities;
+	private final int[] totMotFatalities;
+	private final int[] totInjuries;
+	private final int[] totPedInjuries;
+	private final int[] totCycInjuries;
+	private final int[] totMotInjuries;
+
+	/**
+	 * Creates the index for all the collisions of the given CollisionsData object.
+	 *
+	 * @param data the collisions to index
+	 */
+	public CollisionAggregateIndex(CollisionsData data){
+		Collision[] collisions = data.toArray();
+
+		//count the entries (different zip code and date pairs)
+		int entries = 0;
+		for (int i = 0; i < collisions.length; i++){
+			if (i == 0 || collisions[i].getZipDay() != collisions[i - 1].getZipDay()){
+				entries++;
+			}
+		}
+		zips = new int[entries];
+		days = new int[entries];
+		numCollisions = new int[entries + 1];
+		totFatalities = new int[entries + 1];
+		totPedFatalities = new int[entries + 1];
+		totCycFatalities = new int[entries + 1];
+		totMotFatalities = new int[entries + 1];
+		totInjuries = new int[entries + 1];
+		totPedInjuries = new int[entries + 1];
+		totCycInjuries = new int[entries + 1];
+		totMotInjuries = new int[entries + 1];
+
+		int entry = -1;
+		for (int i = 0; i < collisions.length; i++){
+			Collision c = collisions[i];
+			if (i == 0 || c.getZipDay() != collisions[i - 1].getZipDay()){
+				//a new entry starts with the sums of all the entries before it
+				entry++;
+				zips[entry] = c.getZipCode();
+				days[entry] = c.getDate().getDayNumber();
+				numCollisions[entry + 1] = numCollisions[entry];
+				totFatalities[entry + 1] = totFatalities[entry];
+				totPedFatalities[entry + 1] = totPedFatalities[entry];
+				totCycFatalities[entry + 1] = totCycFatalities[entry];
+				totMotFatalities[entry + 1] = totMotFatalities[entry];
+				totInjuries[entry + 1] = totInjuries[entry];
+				totPedInjuries[entry + 1] = totPedInjuries[entry];
+				totCycInjuries[entry + 1] = totCycInjuries[entry];
+				totMotInjuries[entry + 1] = totMotInjuries[entry];
+			}
+			numCollisions[entry + 1]++;
+			totFatalities[entry + 1] += c.getPersonsKilled();
+			totPedFatalities[entry + 1] += c.getPedestriansKilled();
+			totCycFatalities[entry + 1] += c.getCyclistsKilled();
+			totMotFatalities[entry + 1] += c.getMotoristsKilled();
+			totInjuries[entry + 1] += c.getPersonsInjured();
+			totPedInjuries[entry + 1] += c.getPedestriansInjured();
+			totCycInjuries[entry + 1] += c.getCyclistsInjured();
+			totMotInjuries[entry + 1] += c.getMotoristsInjured();
+		}
+	}
+
+	/**
+	 * Determines the number of different zip code and date pairs in this index.
+	 *
+	 * @return number of entries in this index
+	 */
+	public int size(){
+		return zips.length;
+	}
+
+	/**
+	 * Adds the collisions of the given zip code within the given date range (inclusive)
+	 * to the summary. The totals are the same as the ones of CollisionsData.summarize.
+	 *
+	 * @param zip
+	 * @param dateBegin
+	 * @param dateEnd
+	 * @param summary the totals that the matching collisions are added to
+	 */
+	public void summarize(String zip, Date dateBegin, Date dateEnd, CollisionSummary summary){
+		int zipCode = Integer.parseInt(zip);
+		int from = firstAfter(zipCode, dateBegin.getDayNumber() - 1);
+		int to = Math.max(from, firstAfter(zipCode, dateEnd.getDayNumber()));
+		summary.add(numCollisions[to] - numCollisions[from],
+				totFatalities[to] - totFatalities[from],
+				totPedFatalities[to] - totPedFatalities[from],
+				totCycFatalities[to] - totCycFatalities[from],
+				totMotFatalities[to] - totMotFatalities[from],
+				totInjuries[to] - totInjuries[from],
+				totPedInjuries[to] - totPedInjuries[from],
+				totCycInjuries[to] - totCycInjuries[from],
+				totMotInjuries[to] - totMotInjuries[from]);
+	}
+
+	/*
+	 * Binary search for the first entry whose zip code is greater than zip, or whose
+	 * zip code is equal to zip and whose day number is greater than day.
+	 *
+	 * @return the position of that entry, or size() if there is none
+	 */
+	private int firstAfter(int zip, int day){
+		int low = 0;
+		int high = zips.length;
+		while (low < high){
+			int middle = (low + high) >>> 1;
+			if (zips[middle] < zip || (zips[middle] == zip && days[middle] <= day)){
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+}
@@ -0,0 +1,310 @@
+package project5;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * This class runs a file of queries without the interactive loop of CollisionInfo. Every line of
+ * the file is one query "zip,start,end", for example "11207,01/01/2016,12/31/2016", and is
+ * validated with the same rules as the interactive loop. The queries run concurrently, on virtual
+ * threads when the JVM has them (Java 21 and later) and on a pool of one thread per processor
+ * otherwise, and their results are written in the order of the file, in one of three formats:
+ *
+ *	TEXT: the same header and report as the interactive loop, or its error message
+ *	CSV: one line per query with the zip code, the dates and the totals, or an error
+ *	JSON: an array with one object per query
+ *
+ * The wall time and the percentiles of the time of the queries are returned as a line of text.
+ *
+ * @author Gayeon_Park
+ *
+ */
+public class CollisionBatch {
+
+	/**
+	 * The formats of the results.
+	 */
+	public enum Format { TEXT, CSV, JSON }
+
+	//Messages of the interactive loop for the queries that are not valid
+	static final String INVALID_ZIP = "Invalid zip code. Try agian.";
+	static final String INVALID_DATE = "Invalid date format. Try agian.";
+	static final String INVALID_QUERY = "Invalid query, expected zip,start,end.";
+
+	private final CollisionReporter reporter;
+	private final Format format;
+
+	/**
+	 * Creates a batch that runs the queries with the given reporter, which has to allow
+	 * concurrent queries.
+	 *
+	 * @param reporter the loaded data
+	 * @param format the format of the results
+	 */
+	public CollisionBatch(CollisionReporter reporter, Format format){
+		this.reporter = reporter;
+		this.format = format;
+	}
+
+	/**
+	 * Runs all the queries of the query file and writes their results to the output file.
+	 *
+	 * @param queries the file of queries, one per line
+	 * @param output the file the results are written to
+	 * @return the statistics of the run in one line
+	 * @throws IOException when a file cannot be read or written
+	 * @throws InterruptedException when the thread is interrupted while waiting for the queries
+	 */
+	public String run(File queries, File output) throws IOException, InterruptedException {
+		List<String> lines = new ArrayList<String>();
+		try (BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(queries),
+				StandardCharsets.UTF_8))){
+			String line;
+			while ((line = in.readLine()) != null){
+				lines.add(line);
+			}
+		}
+		try (Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(output),
+				StandardCharsets.UTF_8), 1 << 16)){
+			return run(lines, out);
+		}
+	}
+
+	/**
+	 * Runs the given queries and writes their results in the same order. The blank lines are skipped,
+	 * but they are counted in the line numbers of the results.
+	 *
+	 * @param lines the queries "zip,start,end"
+	 * @param out where the results are written
+	 * @return the statistics of the run in one line
+	 * @throws IOException when the results cannot be written
+	 * @throws InterruptedException when the thread is interrupted while waiting for the queries
+	 */
+	public String run(List<String> lines, Writer out) throws IOException, InterruptedException {
+		//The time of every query, -1 for the blank lines
+		long[] nanos = new long[lines.size()];
+		Arrays.fill(nanos, -1);
+		int queries = 0;
+		int invalid = 0;
+		long start = System.nanoTime();
+		ExecutorService executor = newExecutor();
+		try {
+			List<Future<String>> results = new ArrayList<Future<String>>(lines.size());
+			for (int i = 0; i < lines.size(); i++){
+				int index = i;
+				String line = lines.get(i);
+				if (line.trim().length() == 0){
+					results.add(null);
+					continue;
+				}
+				queries++;
+				Callable<String> query = () -> {
+					long queryStart = System.nanoTime();
+					String result = query(index + 1, line);
+					nanos[index] = System.nanoTime() - queryStart;
+					return result;
+				};
+				results.add(executor.submit(query));
+			}
+			if (format == Format.CSV){
+				out.write("line,zip,start,end");
+				for (CollisionMetric metric : CollisionMetric.values()){
+					out.write(',');
+					out.write(metric.field());
+				}
+				out.write(",error\n");
+			} else if (format == Format.JSON){
+				out.write("[\n");
+			}
+			//The results are written in the order of the queries as soon as they are done
+			boolean first = true;
+			for (int i = 0; i < results.size(); i++){
+				if (results.get(i) == null){
+					continue;
+				}
+				String result;
+				try {
+					result = results.get(i).get();
+				} catch (ExecutionException e){
+					throw new IOException("query " + (i + 1) + " failed", e.getCause());
+				}
+				if (result.startsWith(ERROR_MARK)){
+					invalid++;
+					result = result.substring(ERROR_MARK.length());
+				}
+				if (format == Format.JSON && !first){
+					out.write(",\n");
+				}
+				first = false;
+				out.write(result);
+				if (format != Format.JSON){
+					out.write('\n');
+				}
+			}
+			if (format == Format.JSON){
+				out.write("\n]\n");
+			}
+		} finally {
+			executor.shutdown();
+		}
+		long wall = System.nanoTime() - start;
+		return statistics(queries, invalid, wall, nanos);
+	}
+
+	//Marks the results of the queries that are not valid, it is removed before the result is written
+	private static final String ERROR_MARK = "\u0000";
+
+	/*
+	 * Validates and runs one query and returns its result in the format of the batch.
+	 * The result of a query that is not valid starts with ERROR_MARK.
+	 */
+	private String query(int lineNumber, String line){
+		String[] fields = line.split(",", -1);
+		if (fields.length != 3){
+			return ERROR_MARK + error(lineNumber, line, null, INVALID_QUERY);
+		}
+		String zip = fields[0].trim();
+		if (!CollisionInfo.isValidZip(zip)){
+			return ERROR_MARK + error(lineNumber, line, fields, INVALID_ZIP);
+		}
+		Date start;
+		Date end;
+		try {
+			start = new Date(fields[1].trim());
+			end = new Date(fields[2].trim());
+		} catch (IllegalArgumentException e){
+			return ERROR_MARK + error(lineNumber, line, fields, INVALID_DATE);
+		}
+
+		switch (format){
+		case TEXT:
+			return CollisionInfo.reportHeader(zip, start, end) + '\n' + reporter.getReport(zip, start, end) + '\n';
+		case CSV: {
+			CollisionSummary summary = new CollisionSummary();
+			reporter.summarize(zip, start, end, summary);
+			StringBuilder s = new StringBuilder();
+			s.append(lineNumber).append(',').append(zip).append(',').append(start).append(',').append(end);
+			for (CollisionMetric metric : CollisionMetric.values()){
+				s.append(',').append(metric.of(summary));
+			}
+			return s.append(',').toString();
+		}
+		default: {
+			CollisionSummary summary = new CollisionSummary();
+			reporter.summarize(zip, start, end, summary);
+			StringBuilder s = new StringBuilder();
+			s.append("  {\"line\": ").append(lineNumber).append(", \"zip\": \"").append(zip)
+				.append("\", \"start\": \"").append(start).append("\", \"end\": \"").append(end).append("\", ");
+			return CollisionMetric.appendJson(s, summary).append('}').toString();
+		}
+		}
+	}
+
+	/*
+	 * Returns the result of a query that is not valid in the format of the batch.
+	 */
+	private String error(int lineNumber, String line, String[] fields, String message){
+		switch (format){
+		case TEXT:
+			return message + '\n';
+		case CSV: {
+			StringBuilder s = new StringBuilder();
+			s.append(lineNumber);
+			for (int i = 0; i < 3; i++){
+				s.append(',');
+				if (fields != null)
+					s.append(csv(fields[i].trim()));
+			}
+			for (int i = 0; i < CollisionMetric.values().length; i++){
+				s.append(',');
+			}
+			return s.append(',').append(csv(message)).toString();
+		}
+		default:
+			return "  {\"line\": " + lineNumber + ", \"query\": " + json(line) + ", \"error\": " + json(message) + "}";
+		}
+	}
+
+	/*
+	 * Quotes a CSV field if it has a comma, a quote or a line break.
+	 */
+	private static String csv(String s){
+		if (s.indexOf(',') < 0 && s.indexOf('"') < 0 && s.indexOf('\n') < 0 && s.indexOf('\r') < 0){
+			return s;
+		}
+		return '"' + s.replace("\"", "\"\"") + '"';
+	}
+
+	/*
+	 * Returns the string as a JSON string literal.
+	 */
+	static String json(String s){
+		StringBuilder out = new StringBuilder(s.length() + 2).append('"');
+		for (int i = 0; i < s.length(); i++){
+			char c = s.charAt(i);
+			if (c == '"' || c == '\\'){
+				out.append('\\').append(c);
+			} else if (c < 0x20){
+				out.append(String.format("\\u%04x", (int) c));
+			} else {
+				out.append(c);
+			}
+		}
+		return out.append('"').toString();
+	}
+
+	/*
+	 * Returns an executor that starts a virtual thread per query when the JVM has virtual threads.
+	 * The method is looked up by reflection, since the program is compiled for Java 17; on Java 17
+	 * a pool of one platform thread per processor is used instead.
+	 */
+	static ExecutorService newExecutor(){
+		try {
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (ReflectiveOperationException e){
+			return Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+		}
+	}
+
+	/*
+	 * Returns the number of queries, the wall time and the percentiles of the query times in one line.
+	 */
+	private static String statistics(int queries, int invalid, long wallNanos, long[] nanos){
+		//The blank lines sort first and are left out
+		long[] sorted = nanos.clone();
+		Arrays.sort(sorted);
+		sorted = Arrays.copyOfRange(sorted, sorted.length - queries, sorted.length);
+		return String.format(Locale.ROOT, "Ran %d queries (%d invalid) in %.1f ms: p50 %.1f us, p90 %.1f us, "
+				+ "p99 %.1f us, p99.9 %.1f us, max %.1f us", queries, invalid, wallNanos / 1e6,
+				percentile(sorted, 0.5) / 1e3, percentile(sorted, 0.9) / 1e3, percentile(sorted, 0.99) / 1e3,
+				percentile(sorted, 0.999) / 1e3, (sorted.length == 0 ? 0 : sorted[sorted.length - 1]) / 1e3);
+	}
+
+	/*
+	 * Returns the value at the given fraction of the sorted values (nearest rank), 0 if there are none.
+	 */
+	static long percentile(long[] sorted, double fraction){
+		if (sorted.length == 0){
+			return 0;
+		}
+		int rank = (int) Math.ceil(fraction * sorted.length);
+		return sorted[Math.max(0, Math.min(sorted.length - 1, rank - 1))];
+	}
+}
@@ -0,0 +1,57 @@
+package project5;
+
+/**
+ * This enum lists the sizes of the time buckets of a histogram (see CollisionsData.histogram).
+ * The buckets follow the calendar: a WEEK is an ISO week, from Monday to Sunday, a MONTH is
+ * a calendar month and a YEAR is a calendar year. The first bucket of a histogram is the one that
+ * contains its begin date, so it may start before the begin date, and the last one the one that
+ * contains its end date.
+ *
+ * @author Gayeon_Park
+ *
+ */
+public enum CollisionBucket {
+	DAY,
+	WEEK,
+	MONTH,
+	YEAR;
+
+	/**
+	 * Returns the number of buckets of a histogram from dateBegin to dateEnd (inclusive).
+	 *
+	 * @param dateBegin
+	 * @param dateEnd
+	 * @return the number of buckets, 0 if dateEnd is before dateBegin
+	 */
+	public int count(Date dateBegin, Date dateEnd){
+		if (dateBegin.compareTo(dateEnd) > 0){
+			return 0;
+		}
+		return index(dateBegin.getDayNumber(), dateEnd.getDayNumber()) + 1;
+	}
+
+	/*
+	 * Returns the position of the bucket of the given day number in a histogram that starts
+	 * at beginDay (both are day numbers, see Date.getDayNumber()).
+	 */
+	int index(int beginDay, int day){
+		switch (this){
+		case DAY:
+			return Date.epochDay(day) - Date.epochDay(beginDay);
+		case WEEK:
+			return (monday(Date.epochDay(day)) - monday(Date.epochDay(beginDay))) / 7;
+		case MONTH:
+			return day / 31 - beginDay / 31;
+		default:
+			return day / (12 * 31) - beginDay / (12 * 31);
+		}
+	}
+
+	/*
+	 * Returns the epoch day of the Monday of the ISO week of the given epoch day
+	 * (01/01/1970 was a Thursday).
+	 */
+	private static int monday(int epochDay){
+		return epochDay - Math.floorMod(epochDay + 3, 7);
+	}
+}
@@ -0,0 +1,259 @@
+package project5;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.function.Consumer;
+
+/**
+ * This class is a secondary index of a CollisionsData object: a second AVL tree over the same
+ * Collision objects, ordered by date, zip code and unique key instead of zip code, date and
+ * unique key. The Collision objects are shared with the main tree, only the nodes are added.
+ * The nodes keep the size and the casualty sums of their subtrees the same way the nodes of
+ * the main tree do, and the balancing code of CollisionsData is reused.
+ *
+ * The collisions of a date range are next to each other in this order, whatever their zip code,
+ * so the totals of all the zip codes within a date range take O(log n) time and the collisions
+ * of a date range can be visited in time proportional to their number.
+ *
+ * The index is kept up to date by CollisionsData (see CollisionsData.createDateIndex).
+ *
+ * @author Gayeon_Park
+ *
+ */
+class CollisionDateIndex {
+
+	//The order of the index: date, zip code and unique key
+	static final Comparator<Collision> DATE_ORDER = (a, b) -> {
+		long dayZipA = a.getDayZip();
+		long dayZipB = b.getDayZip();
+		if (dayZipA != dayZipB){
+			return dayZipA < dayZipB ? -1 : 1;
+		}
+		return Long.compare(a.getKeyNumber(), b.getKeyNumber());
+	};
+
+	//Root of the tree
+	private CollisionsData.Node<Collision> root;
+	//Helper variable used by the remove methods
+	private boolean found;
+
+	/*
+	 * Creates the index of the first count items, which have no duplicates and can be in any order.
+	 * The items are copied and sorted, so the array is not changed.
+	 */
+	CollisionDateIndex(Collision[] items, int count){
+		Collision[] sorted = Arrays.copyOf(items, count);
+		Arrays.parallelSort(sorted, DATE_ORDER);
+		root = buildBalanced(sorted, 0, count - 1);
+	}
+
+	/*
+	 * Builds a perfectly balanced tree from the sorted items [from, to].
+	 */
+	private static CollisionsData.Node<Collision> buildBalanced(Collision[] items, int from, int to){
+		if (from > to)
+			return null;
+		int middle = (from + to) >>> 1;
+		CollisionsData.Node<Collision> node = new CollisionsData.Node<Collision>(items[middle]);
+		node.left = buildBalanced(items, from, middle - 1);
+		node.right = buildBalanced(items, middle + 1, to);
+		CollisionsData.updateHeight(node);
+		return node;
+	}
+
+	/*
+	 * Adds the item, which the main tree did not have before.
+	 */
+	void add(Collision item){
+		root = recAdd(root, item);
+	}
+
+	private CollisionsData.Node<Collision> recAdd(CollisionsData.Node<Collision> node, Collision item){
+		if (node == null){
+			CollisionsData.Node<Collision> leaf = new CollisionsData.Node<Collision>(item);
+			CollisionsData.updateHeight(leaf);
+			return leaf;
+		}
+		int compare = DATE_ORDER.compare(node.data, item);
+		if (compare > 0){
+			node.left = recAdd(node.left, item);
+		} else if (compare < 0){
+			node.right = recAdd(node.right, item);
+		} else {
+			return node;
+		}
+		return balance(node);
+	}
+
+	/*
+	 * Removes the item equal to target, which the main tree has just removed.
+	 *
+	 * @return true if the item was found
+	 */
+	boolean remove(Collision target){
+		root = recRemove(target, root);
+		return found;
+	}
+
+	private CollisionsData.Node<Collision> recRemove(Collision target, CollisionsData.Node<Collision> node){
+		if (node == null){
+			found = false;
+			return null;
+		}
+		int compare = DATE_ORDER.compare(target, node.data);
+		if (compare < 0){
+			node.left = recRemove(target, node.left);
+		} else if (compare > 0){
+			node.right = recRemove(target, node.right);
+		} else {
+			found = true;
+			if (node.left == null){
+				return node.right;
+			}
+			if (node.right == null){
+				return node.left;
+			}
+			//replace the data with the one of the predecessor, which is removed instead
+			CollisionsData.Node<Collision> predecessor = node.left;
+			while (predecessor.right != null){
+				predecessor = predecessor.right;
+			}
+			node.data = predecessor.data;
+			node.left = recRemove(predecessor.data, node.left);
+		}
+		return balance(node);
+	}
+
+	/*
+	 * Updates the height and the sums of the node after one of its subtrees changed,
+	 * and rotates it if its subtrees differ in height by two.
+	 *
+	 * @return the new root of the subtree
+	 */
+	private static CollisionsData.Node<Collision> balance(CollisionsData.Node<Collision> node){
+		CollisionsData.updateHeight(node);
+		if (CollisionsData.balanceFactor(node) == 2){
+			if (CollisionsData.balanceFactor(node.right) < 0){
+				return CollisionsData.balanceRL(node);
+			}
+			return CollisionsData.balanceRR(node);
+		}
+		if (CollisionsData.balanceFactor(node) == -2){
+			if (CollisionsData.balanceFactor(node.left) > 0){
+				return CollisionsData.balanceLR(node);
+			}
+			return CollisionsData.balanceLL(node);
+		}
+		return node;
+	}
+
+	/*
+	 * Returns the height of the tree, -1 if it is empty.
+	 */
+	int height(){
+		return root == null ? -1 : root.height;
+	}
+
+	/*
+	 * Returns the number of collisions with a day number within [beginDay, endDay].
+	 */
+	int count(int beginDay, int endDay){
+		if (beginDay > endDay){
+			return 0;
+		}
+		return countBelow(Collision.dayZip(endDay + 1, 0)) - countBelow(Collision.dayZip(beginDay, 0));
+	}
+
+	/*
+	 * Returns the number of collisions whose packed day number and zip code is smaller than bound.
+	 */
+	private int countBelow(long bound){
+		int count = 0;
+		CollisionsData.Node<Collision> n = root;
+		while (n != null){
+			if (n.data.getDayZip() < bound){
+				count += 1 + (n.left == null ? 0 : n.left.size);
+				n = n.right;
+			} else {
+				n = n.left;
+			}
+		}
+		return count;
+	}
+
+	/*
+	 * Adds the collisions with a day number within [beginDay, endDay] to the summary, in O(log n)
+	 * time: the same descent as CollisionsData.find, with the whole subtrees between the two
+	 * paths added from the sums kept in their roots.
+	 */
+	void summarize(int beginDay, int endDay, CollisionSummary summary){
+		long low = Collision.dayZip(beginDay, 0);
+		long high = Collision.dayZip(endDay + 1, 0) - 1;
+		CollisionsData.Node<Collision> n = root;
+		//Find the node where the paths to the two ends of the range split
+		while (n != null){
+			long dayZip = n.data.getDayZip();
+			if (dayZip < low){
+				n = n.right;
+			} else if (dayZip > high){
+				n = n.left;
+			} else {
+				break;
+			}
+		}
+		if (n == null){
+			return;
+		}
+		summary.add(n.data);
+		for (CollisionsData.Node<Collision> m = n.left; m != null; ){
+			if (m.data.getDayZip() >= low){
+				summary.add(m.data);
+				CollisionsData.addSubtree(summary, m.right);
+				m = m.left;
+			} else {
+				m = m.right;
+			}
+		}
+		for (CollisionsData.Node<Collision> m = n.right; m != null; ){
+			if (m.data.getDayZip() <= high){
+				summary.add(m.data);
+				CollisionsData.addSubtree(summary, m.left);
+				m = m.right;
+			} else {
+				m = m.left;
+			}
+		}
+	}
+
+	/*
+	 * Passes the collisions with a day number within [beginDay, endDay] and a zip code within
+	 * [lowZip, highZip] to the action, in the order of the index. Only the subtrees that can
+	 * hold collisions of the date range are visited, so it takes O(log n + m) time for m
+	 * collisions in the date range.
+	 */
+	void forEach(int beginDay, int endDay, int lowZip, int highZip, Consumer<? super Collision> action){
+		if (beginDay <= endDay){
+			forEach(root, Collision.dayZip(beginDay, lowZip), Collision.dayZip(endDay, highZip),
+					lowZip, highZip, action);
+		}
+	}
+
+	private static void forEach(CollisionsData.Node<Collision> n, long low, long high, int lowZip, int highZip,
+			Consumer<? super Collision> action){
+		while (n != null){
+			long dayZip = n.data.getDayZip();
+			if (dayZip < low){
+				n = n.right;
+			} else if (dayZip > high){
+				n = n.left;
+			} else {
+				forEach(n.left, low, high, lowZip, highZip, action);
+				int zip = n.data.getZipCode();
+				if (zip >= lowZip && zip <= highZip){
+					action.accept(n.data);
+				}
+				n = n.right;
+			}
+		}
+	}
+}
@@ -0,0 +1,364 @@
+package project5;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class follows the input file while the program is running: the rows that are appended
+ * to the file are parsed and added to a CollisionsData object that is already being queried.
+ *
+ * The follower remembers the position after the last complete line it has processed. Every time
+ * the file changes (the WatchService reports a change, or the poll interval passes, for the
+ * file systems where the changes are not reported), only the bytes after that position are read,
+ * so the cost depends on the number of appended bytes and not on the size of the file. A line is
+ * processed once its line break has been written. The lines are parsed with the RowParser of
+ * MappedCollisionReader and the collisions are added to the tree in batches; each batch is added
+ * while holding the lock of the CollisionsData object, so the queries have to synchronize
+ * on it as well.
+ *
+ * If the file becomes shorter than the position, it is assumed to have been replaced and it is
+ * read again from the beginning (the collisions that are already in the tree are not added twice).
+ *
+ * @author Gayeon_Park
+ *
+ */
+public class CollisionFollower implements Runnable {
+
+	//Maximum number of collisions added to the tree while holding its lock
+	static final int BATCH_SIZE = 10000;
+	//Initial size of the buffer for the appended bytes, it grows for longer lines
+	private static final int BUFFER_SIZE = 1 << 20;
+
+	private final File file;
+	private final CollisionsData data;
+	private final long pollMillis;
+	private final MappedCollisionReader.RowParser parser = new MappedCollisionReader.RowParser();
+	private ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+	private volatile boolean running = true;
+
+	//Position after the last complete line that was processed
+	private volatile long offset;
+	//Quarantine file of the rejected lines (null without one) and the line number at offset
+	private CollisionQuarantine quarantine;
+	private long lineNumber;
+	//Metrics of the rows that were read since the follower started, the rows read are the valid 
+	//collisions and the rows added are the ones that were not in the tree yet
+	private volatile long rowsRead;
+	private volatile long rowsAdded;
+	private volatile long linesRejected;
+	private volatile long batches;
+	private volatile long lastLagMillis;
+	private volatile long maxLagMillis;
+	private volatile long fileLength;
+
+	/**
+	 * Creates a follower of the file that adds the new collisions to data.
+	 *
+	 * @param file the input file
+	 * @param data the collisions of the file that have been read so far
+	 * @param offset the position in the file where the rows that have not been read yet start
+	 * (usually the length of the file when it was read)
+	 * @param pollMillis the longest time between two checks of the file
+	 */
+	public CollisionFollower(File file, CollisionsData data, long offset, long pollMillis){
+		this.file = file;
+		this.data = data;
+		this.offset = offset;
+		this.fileLength = offset;
+		this.pollMillis = pollMillis;
+	}
+
+	/**
+	 * Writes the appended lines that are not valid collisions to the quarantine file.
+	 * It has to be called before the follower starts.
+	 *
+	 * @param quarantine the quarantine file
+	 * @param lineNumber the line number of the line at the offset given to the constructor,
+	 * the header is line 1
+	 */
+	public void setQuarantine(CollisionQuarantine quarantine, long lineNumber){
+		this.quarantine = quarantine;
+		this.lineNumber = lineNumber;
+	}
+
+	/**
+	 * Starts a daemon thread that follows the file until stop() is called.
+	 *
+	 * @return the started thread
+	 */
+	public Thread start(){
+		Thread thread = new Thread(this, "collision-follower");
+		thread.setDaemon(true);
+		thread.start();
+		return thread;
+	}
+
+	/**
+	 * Stops following the file, the rows that are being added are still added.
+	 */
+	public void stop(){
+		running = false;
+	}
+
+	/**
+	 * Waits for changes of the file and adds the appended rows until stop() is called.
+	 */
+	@Override
+	public void run(){
+		WatchService watcher = null;
+		Path path = file.getAbsoluteFile().toPath();
+		try {
+			watcher = FileSystems.getDefault().newWatchService();
+			path.getParent().register(watcher, StandardWatchEventKinds.ENTRY_MODIFY,
+					StandardWatchEventKinds.ENTRY_CREATE);
+		} catch (IOException | UnsupportedOperationException e){
+			//without a WatchService the file is only polled
+			watcher = null;
+		}
+		try {
+			while (running){
+				readAppended();
+				if (watcher == null){
+					Thread.sleep(pollMillis);
+				} else {
+					WatchKey key = watcher.poll(pollMillis, TimeUnit.MILLISECONDS);
+					if (key != null){
+						//the events only wake the follower up, the file is checked either way
+						key.pollEvents();
+						key.reset();
+					}
+				}
+			}
+		} catch (InterruptedException | ClosedWatchServiceException e){
+			//stop following
+		} catch (IOException e){
+			System.err.printf("WARNING: stopped following %s (%s).\n", file, e.getMessage());
+		} finally {
+			if (watcher != null){
+				try {
+					watcher.close();
+				} catch (IOException e){
+					//nothing else to do
+				}
+			}
+		}
+	}
+
+	/**
+	 * Reads the complete lines that were appended to the file since the last call and
+	 * adds their collisions to the tree.
+	 *
+	 * @return the number of collisions added to the tree
+	 * @throws IOException when the file cannot be read
+	 */
+	public int readAppended() throws IOException {
+		if (!file.isFile()){
+			return 0;
+		}
+		int added = 0;
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)){
+			long length = channel.size();
+			fileLength = length;
+			if (length < offset){
+				//the file was replaced, start again after its header
+				offset = 0;
+				lineNumber = 1;
+			}
+			if (length == offset){
+				return 0;
+			}
+			long modified = file.lastModified();
+			ArrayList<Collision> batch = new ArrayList<Collision>();
+			while (offset < length){
+				buffer.clear();
+				int read = channel.read(buffer, offset);
+				if (read <= 0){
+					break;
+				}
+				int complete = lastLineEnd(buffer, read);
+				if (complete == 0){
+					if (read < buffer.capacity()){
+						//the last line is not complete yet
+						break;
+					}
+					//a line longer than the buffer
+					buffer = ByteBuffer.allocate(buffer.capacity() * 2);
+					continue;
+				}
+				int from = 0;
+				if (offset == 0){
+					from = MappedCollisionReader.nextLine(buffer, 0, complete);
+					lineNumber++;
+				}
+				MappedCollisionReader.RejectedLines rejects = null;
+				if (quarantine != null){
+					ByteBuffer bytes = buffer;
+					long first = lineNumber;
+					rejects = (line, reason, start, end) -> quarantine.reject(first + line, reason, bytes, start, end);
+				}
+				int lines = MappedCollisionReader.parseRange(buffer, from, complete, parser, batch::add, rejects);
+				lineNumber += lines;
+				linesRejected += lines - batch.size();
+				added += addBatch(batch);
+				offset += complete;
+			}
+			if (added > 0){
+				lastLagMillis = Math.max(0, System.currentTimeMillis() - modified);
+				maxLagMillis = Math.max(maxLagMillis, lastLagMillis);
+			}
+		}
+		return added;
+	}
+
+	/*
+	 * Adds the collisions to the tree in batches of BATCH_SIZE while holding its lock,
+	 * and empties the list. Single adds are used instead of addAll, since addAll rebuilds
+	 * the whole tree.
+	 *
+	 * @return the number of collisions of the list that were not in the tree yet
+	 */
+	private int addBatch(ArrayList<Collision> collisions){
+		int added = 0;
+		for (int from = 0; from < collisions.size(); from += BATCH_SIZE){
+			int to = Math.min(collisions.size(), from + BATCH_SIZE);
+			synchronized (data){
+				//the collisions that are already in the tree (after the file was replaced) are ignored by add
+				int before = data.size();
+				for (int i = from; i < to; i++){
+					data.add(collisions.get(i));
+				}
+				added += data.size() - before;
+			}
+			batches++;
+		}
+		rowsRead += collisions.size();
+		rowsAdded += added;
+		collisions.clear();
+		return added;
+	}
+
+	/*
+	 * Returns the position after the line break of the last complete line within the first
+	 * length bytes of the buffer, or 0 if there is no complete line. A '\r' at the very end
+	 * does not end a line yet, since it may be followed by '\n'.
+	 */
+	private static int lastLineEnd(ByteBuffer buffer, int length){
+		for (int i = length - 1; i >= 0; i--){
+			byte b = buffer.get(i);
+			if (b == '\n' || (b == '\r' && i < length - 1)){
+				return i + 1;
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Returns the position after the last complete line among the first length bytes of the file,
+	 * which is where a follower of a file that was read up to length has to start.
+	 *
+	 * @param file the input file
+	 * @param length the number of bytes of the file that were read
+	 * @return the position after the line break of the last complete line, or 0 if there is none
+	 * @throws IOException when the file cannot be read
+	 */
+	public static long completeLength(File file, long length) throws IOException {
+		ByteBuffer tail = ByteBuffer.allocate(1 << 16);
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)){
+			long end = Math.min(length, channel.size());
+			while (end > 0){
+				long start = Math.max(0, end - tail.capacity());
+				tail.clear();
+				tail.limit((int) (end - start));
+				while (tail.hasRemaining() && channel.read(tail, start + tail.position()) > 0){
+					//read the whole block
+				}
+				int complete = lastLineEnd(tail, tail.position());
+				if (complete > 0){
+					return start + complete;
+				}
+				end = start;
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Returns the position in the file after the last complete line that was processed.
+	 * @return the position in the file
+	 */
+	public long getOffset(){
+		return offset;
+	}
+
+	/**
+	 * Returns the number of bytes of the file that have not been processed yet,
+	 * as of the last check of the file.
+	 * @return the number of bytes behind the end of the file
+	 */
+	public long getLagBytes(){
+		return Math.max(0, fileLength - offset);
+	}
+
+	/**
+	 * Returns the time between the last change of the file and the moment its new rows
+	 * were added to the tree, for the last rows that were added.
+	 * @return the ingest lag in milliseconds
+	 */
+	public long getLagMillis(){
+		return lastLagMillis;
+	}
+
+	/**
+	 * Returns the largest ingest lag since the follower started.
+	 * @return the largest ingest lag in milliseconds
+	 */
+	public long getMaxLagMillis(){
+		return maxLagMillis;
+	}
+
+	/**
+	 * Returns the number of valid collisions read from the appended rows.
+	 * @return the number of collisions read
+	 */
+	public long getRowsRead(){
+		return rowsRead;
+	}
+
+	/**
+	 * Returns the number of collisions read from the appended rows that were not in the tree yet.
+	 * @return the number of collisions added
+	 */
+	public long getRowsAdded(){
+		return rowsAdded;
+	}
+
+	/**
+	 * Returns the number of appended lines that were not valid collisions.
+	 * @return the number of rejected lines
+	 */
+	public long getLinesRejected(){
+		return linesRejected;
+	}
+
+	/**
+	 * Returns the metrics of the follower in one line.
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString(){
+		return String.format("Following %s: %d rows read, %d added in %d batches, %d lines rejected, "
+				+ "lag %d ms (max %d ms), %d bytes behind", file, rowsRead, rowsAdded, batches, linesRejected,
+				lastLagMillis, maxLagMillis, getLagBytes());
+	}
+}
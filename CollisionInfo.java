@@ -2,6 +2,8 @@ package project5;
 
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Scanner;
 
@@ -16,6 +18,39 @@ import java.util.Scanner;
  *
  */
 public class CollisionInfo {
+	
+	//System property that selects the way the input file is read
+	static final String INGEST_PROPERTY = "project5.ingest";
+	//Value of the ingest property that selects the memory-mapped reader
+	static final String INGEST_MAPPED = "mapped";
+	//Value of the ingest property that selects the parallel reader
+	static final String INGEST_PARALLEL = "parallel";
+	//System property with the number of threads used by the parallel reader
+	static final String THREADS_PROPERTY = "project5.threads";
+	//System property that selects what answers the queries after the file is read
+	static final String INDEX_PROPERTY = "project5.index";
+	//Values of the index property for the columnar store and the index of cumulative sums
+	static final String INDEX_COLUMNAR = "columnar";
+	static final String INDEX_AGGREGATE = "aggregate";
+	//Value of the index property for the tree whose nodes are kept outside of the Java heap
+	static final String INDEX_OFFHEAP = "offheap";
+	//System property with the name of the binary snapshot file of the data
+	static final String SNAPSHOT_PROPERTY = "project5.snapshot";
+	//Value of the index property that answers the queries from the mapped snapshot file
+	static final String INDEX_SNAPSHOT = "snapshot";
+	//System property with the poll interval (in milliseconds) of the follow mode, the mode is off without it
+	static final String FOLLOW_PROPERTY = "project5.follow";
+	//System property with the number of reports kept in the report cache of the tree, no cache without it
+	static final String CACHE_PROPERTY = "project5.cache";
+	//System properties of the batch mode: the query file (the mode is off without it), the output file
+	//(the query file with ".out" appended by default) and the format of the results (text, csv or json)
+	static final String BATCH_PROPERTY = "project5.batch";
+	static final String BATCH_OUTPUT_PROPERTY = "project5.batch.output";
+	static final String BATCH_FORMAT_PROPERTY = "project5.batch.format";
+	//System property with the port of the HTTP server, the program asks the user without it
+	static final String SERVER_PROPERTY = "project5.server";
+	//System property with the name of the quarantine file of the rejected rows, they are only counted without it
+	static final String QUARANTINE_PROPERTY = "project5.quarantine";
 
 	public static void main(String[] args) {
 		//Checks if there is a file passed in as a command line
@@ -35,25 +70,172 @@ public class CollisionInfo {
 			System.exit(1);
 		}
 		
-		//read the lines of the input file after the first line
-		//create an ArrayList<Strings> using the splitCSVLine (code given by Joanna)
-		//if and only if the ArrayList<String> created has more than 24 elements,
-		//create a Collision object and add it to the CollisionsData object
-		collisionDataFile.nextLine();
-		CollisionsData collisionStored = new CollisionsData();
-		while (collisionDataFile.hasNextLine()){
+		//The counters of the rows and the phases and the gauges of the tree are published over JMX,
+		//the MBean server is started on another thread since it takes a few hundred milliseconds
+		CollisionMonitor monitor = CollisionMonitor.get();
+		Thread register = new Thread(() -> {
+			if (!CollisionMonitor.register()){
+				System.err.printf("WARNING: %s cannot be registered.\n", CollisionMonitor.OBJECT_NAME);
+			}
+		}, "project5-jmx");
+		register.setDaemon(true);
+		register.start();
+		
+		//When a snapshot file is given and it was written for the same input file, the data
+		//is loaded from the snapshot and the input file is not read at all
+		CollisionSnapshot snapshot = null;
+		String snapshotName = System.getProperty(SNAPSHOT_PROPERTY);
+		if (snapshotName != null){
+			long start = System.nanoTime();
 			try {
-				String temp = collisionDataFile.nextLine();
-				ArrayList<String> possibleCollision = splitCSVLine(temp);
-				if (possibleCollision.size() > 23){
-					collisionStored.add(new Collision(possibleCollision));
+				snapshot = CollisionSnapshot.open(new File(snapshotName), new File(args[0]));
+			} catch (IOException e){
+				System.err.printf("WARNING: snapshot %s cannot be read (%s).\n", snapshotName, e.getMessage());
+			}
+			monitor.phase("snapshot", System.nanoTime() - start);
+		}
+		
+		//The rows that are not valid collisions are written to the quarantine file while the file is read
+		CollisionQuarantine quarantine = null;
+		String quarantineName = System.getProperty(QUARANTINE_PROPERTY);
+		if (quarantineName != null){
+			try {
+				quarantine = new CollisionQuarantine(new File(quarantineName));
+			} catch (IOException e){
+				System.err.printf("WARNING: quarantine file %s cannot be created (%s).\n", quarantineName, e.getMessage());
+			}
+		}
+		
+		//The length and the modification time of the file are taken before it is read: the follow mode
+		//reads the rows after it, and the snapshot is only valid for the file as it was read
+		long inputLength = new File(args[0]).length();
+		long inputModified = new File(args[0]).lastModified();
+		CollisionsData collisionStored = null;
+		if (snapshot == null){
+			collisionStored = readInputFile(args[0], collisionDataFile, quarantine);
+			//Save the data so that the next start can use the snapshot
+			if (snapshotName != null){
+				long start = System.nanoTime();
+				try {
+					CollisionSnapshot.write(collisionStored, new File(snapshotName), inputLength, inputModified);
+					snapshot = CollisionSnapshot.open(new File(snapshotName), new File(args[0]));
+				} catch (IOException e){
+					System.err.printf("WARNING: snapshot %s cannot be written (%s).\n", snapshotName, e.getMessage());
 				}
-			} catch (IllegalArgumentException e){
-
-			}	
+				monitor.phase("snapshot", System.nanoTime() - start);
+			}
 		}
 		//Close the input file
 		collisionDataFile.close();
+		
+		//The queries can be answered by a read only copy of the data built after loading:
+		//the "columnar" store, the "aggregate" index of cumulative sums or the "offheap" tree, 
+		//or by the "snapshot" file itself without building the tree
+		String index = System.getProperty(INDEX_PROPERTY, "");
+		CollisionReporter reports;
+		
+		//In the follow mode the rows appended to the input file are added to the tree while the
+		//queries run, so the queries use the tree and hold its lock
+		CollisionFollower follower = null;
+		int followMillis = Integer.getInteger(FOLLOW_PROPERTY, 0);
+		if (followMillis > 0){
+			if (collisionStored == null){
+				long start = System.nanoTime();
+				collisionStored = snapshot.toCollisionsData();
+				monitor.phase("build", System.nanoTime() - start);
+			}
+			if (index.length() > 0){
+				System.err.printf("WARNING: %s=%s is ignored in the follow mode.\n", INDEX_PROPERTY, index);
+			}
+			CollisionsData live = collisionStored;
+			reports = new CollisionReporter(){
+				@Override
+				public String getReport(String zip, Date dateBegin, Date dateEnd){
+					synchronized (live){
+						return live.getReport(zip, dateBegin, dateEnd);
+					}
+				}
+				
+				@Override
+				public void summarize(String zip, Date dateBegin, Date dateEnd, CollisionSummary summary){
+					synchronized (live){
+						live.summarize(zip, dateBegin, dateEnd, summary);
+					}
+				}
+			};
+			try {
+				long offset = CollisionFollower.completeLength(new File(args[0]), inputLength);
+				follower = new CollisionFollower(new File(args[0]), live, offset, followMillis);
+				if (quarantine != null){
+					//The line numbers of the appended rows continue after the lines already read
+					ByteBuffer read = MappedCollisionReader.map(new File(args[0]));
+					follower.setQuarantine(quarantine, MappedCollisionReader.countLines(read, (int) offset) + 1);
+				}
+				follower.start();
+			} catch (IOException e){
+				System.err.printf("WARNING: file %s cannot be followed (%s).\n", args[0], e.getMessage());
+			}
+		} else if (index.equalsIgnoreCase(INDEX_SNAPSHOT) && snapshot != null){
+			reports = snapshot;
+		} else {
+			if (collisionStored == null){
+				long start = System.nanoTime();
+				collisionStored = snapshot.toCollisionsData();
+				monitor.phase("build", System.nanoTime() - start);
+			}
+			reports = collisionStored;
+			long start = System.nanoTime();
+			if (index.equalsIgnoreCase(INDEX_COLUMNAR)){
+				reports = new CollisionStore(collisionStored);
+			} else if (index.equalsIgnoreCase(INDEX_AGGREGATE)){
+				reports = new CollisionAggregateIndex(collisionStored);
+			} else if (index.equalsIgnoreCase(INDEX_OFFHEAP)){
+				reports = new OffHeapCollisionsData(collisionStored);
+				//the objects of the tree are no longer needed and can be collected
+				collisionStored = null;
+			}
+			if (reports != collisionStored){
+				monitor.phase("index", System.nanoTime() - start);
+			}
+		}
+		monitor.setTree(collisionStored);
+		//Without a follower no more rows are rejected after loading
+		if (follower == null){
+			closeQuarantine(quarantine);
+		}
+		
+		//The report cache only works in front of the tree, the other indexes are read only
+		//and answer a query in a few binary searches anyway
+		CollisionReportCache cache = null;
+		int cacheSize = Integer.getInteger(CACHE_PROPERTY, 0);
+		if (cacheSize > 0){
+			if (collisionStored != null && (reports == collisionStored || followMillis > 0)){
+				cache = collisionStored.createReportCache(cacheSize);
+			} else {
+				System.err.printf("WARNING: %s is ignored with %s=%s.\n", CACHE_PROPERTY, INDEX_PROPERTY, index);
+			}
+		}
+		
+		//In the batch mode the queries of the query file are run instead of asking the user
+		String batchName = System.getProperty(BATCH_PROPERTY);
+		if (batchName != null){
+			runBatch(reports, batchName);
+			if (follower != null){
+				follower.stop();
+				closeQuarantine(quarantine);
+			}
+			if (cache != null){
+				System.out.println(cache);
+			}
+			return;
+		}
+		
+		//In the server mode the queries come from HTTP clients until the program is stopped
+		int port = Integer.getInteger(SERVER_PROPERTY, -1);
+		if (port >= 0){
+			runServer(port, reports, collisionStored, follower, quarantine, cache);
+			return;
+		}
 				
 		//First ask a user to enter in a zip code
 		System.out.print("Enter a zip code ('quit' to exit): ");
@@ -62,57 +244,240 @@ public class CollisionInfo {
 		
 		//The program will continue to ask the user for an input and will only terminate when the user enters "quit"
 		while (!userInput.equalsIgnoreCase("quit")){
+			//"stats" prints the counters of the rows and the phases and the gauges of the tree
+			if (userInput.equalsIgnoreCase("stats")){
+				System.out.println('\n' + monitor.dump());
+				System.out.print("Enter a zip code ('quit' to exit): ");
+				userInput = input.next();
+				continue;
+			}
 			String userZip = "";
 			boolean isValidZip = false;
 			Date userStartDate = null; 
 			Date userEndDate = null;
 
 			//Check if the user entry for zip is a valid zip code
-			if (userInput.length() != 5){ //check if the user input is 5 in length
-				System.out.println("Invalid zip code. Try agian." + '\n');
-			} else{
-				//Check if the user input of 5 in length contains digits only
-				String possibleNums = "0123456789";
-				for (int i = 0; i < userInput.length(); i ++){
-					if ( possibleNums.contains(userInput.substring(i,i+1)) ){
-						userZip += userInput.substring(i,i+1);
-						isValidZip = true;
+			if (isValidZip(userInput)){
+				userZip = userInput;
+				isValidZip = true;
+			} else {
+				System.out.println(CollisionBatch.INVALID_ZIP + '\n');
+			}
+			//If the user entry for zip is a valid zip code,
+			//check if the user entry for start and end dates are valid dates
+			if (isValidZip){
+				System.out.print("Enter start date (MM/DD/YYYY): ");
+				String userStartDateInput = input.next();
+				System.out.print("Enter end date (MM/DD/YYYY): ");
+				String userEndDateInput = input.next();
+
+				//Prints a report based on the data from the input file and user inputs
+				//The report is a summary of the collisions that occured in a given zip code
+				//within the specific dates
+				try{
+					userStartDate = new Date(userStartDateInput); 
+					userEndDate = new Date(userEndDateInput);
+					System.out.println('\n' + reportHeader(userZip, userStartDate, userEndDate));
+					System.out.println(reports.getReport(userZip,userStartDate,userEndDate));
+					if (follower != null){
+						System.out.println(follower);
 					}
-					else{
-						isValidZip = false;
-						System.out.println("Invalid zip code. Try agian." + '\n');
-						break;
-					}	
+				} catch (IllegalArgumentException e){
+					System.out.println(CollisionBatch.INVALID_DATE + '\n');
 				}	
-
-				//If the user entry for zip is a valid zip code,
-				//check if the user entry for start and end dates are valid dates
-				if (isValidZip){
-					System.out.print("Enter start date (MM/DD/YYYY): ");
-					String userStartDateInput = input.next();
-					System.out.print("Enter end date (MM/DD/YYYY): ");
-					String userEndDateInput = input.next();
-
-					//Prints a report based on the data from the input file and user inputs
-					//The report is a summary of the collisions that occured in a given zip code
-					//within the specific dates
-					try{
-						userStartDate = new Date(userStartDateInput); 
-						userEndDate = new Date(userEndDateInput);
-						String s1 = String.format("Motor Vehicle Collisions for zipcode %s (%s - %s)", 
-														userZip,userStartDate,userEndDate);
-						String s2 = String.format("%0" + s1.length() + "d", 0).replace("0","=");
-						System.out.println('\n' + s1 + '\n' + s2);
-						System.out.println(collisionStored.getReport(userZip,userStartDate,userEndDate));
-					} catch (IllegalArgumentException e){
-						System.out.println("Invalid date format. Try agian." + '\n');
-					}	
-				}				
-			}			
+			}				
 			//Prompt the user again to enter a zip code
 			System.out.print("Enter a zip code ('quit' to exit): ");
 			userInput = input.next();
 		}		
+		if (follower != null){
+			follower.stop();
+			closeQuarantine(quarantine);
+		}
+		if (cache != null){
+			System.out.println(cache);
+		}
+	}
+	
+	/*
+	 * Runs the queries of the query file with the batch properties and prints the statistics of the run.
+	 */
+	private static void runBatch(CollisionReporter reports, String batchName){
+		String outputName = System.getProperty(BATCH_OUTPUT_PROPERTY, batchName + ".out");
+		CollisionBatch.Format format;
+		try {
+			format = CollisionBatch.Format.valueOf(System.getProperty(BATCH_FORMAT_PROPERTY, "text").toUpperCase());
+		} catch (IllegalArgumentException e){
+			System.err.printf("Error: %s has to be text, csv or json.\n", BATCH_FORMAT_PROPERTY);
+			System.exit(1);
+			return;
+		}
+		try {
+			String statistics = new CollisionBatch(reports, format).run(new File(batchName), new File(outputName));
+			System.out.println(statistics);
+			System.out.printf("Results written to %s.\n", outputName);
+		} catch (IOException e){
+			System.err.printf("Error: the batch %s failed (%s).\n", batchName, e.getMessage());
+			System.exit(1);
+		} catch (InterruptedException e){
+			Thread.currentThread().interrupt();
+		}
+	}
+	
+	/*
+	 * Starts the HTTP server on the given port, it runs until the program is stopped.
+	 * The statistics of the cache are printed when the program stops.
+	 */
+	private static void runServer(int port, CollisionReporter reports, CollisionsData tree, CollisionFollower follower,
+			CollisionQuarantine quarantine, CollisionReportCache cache){
+		CollisionServer server;
+		try {
+			server = new CollisionServer(port, reports, tree, follower != null);
+		} catch (IOException e){
+			System.err.printf("Error: the server cannot listen on port %d (%s).\n", port, e.getMessage());
+			System.exit(1);
+			return;
+		}
+		server.start();
+		System.out.printf("Serving the reports on http://localhost:%d/report, /zips and /health.\n", server.getPort());
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+			server.stop(1);
+			System.out.printf("Answered %d requests.\n", server.getRequests());
+			if (follower != null){
+				follower.stop();
+				closeQuarantine(quarantine);
+			}
+			if (cache != null){
+				System.out.println(cache);
+			}
+		}));
+	}
+	
+	/*
+	 * Writes the remaining rows of the quarantine file and closes it, if there is one.
+	 */
+	private static void closeQuarantine(CollisionQuarantine quarantine){
+		if (quarantine == null){
+			return;
+		}
+		try {
+			quarantine.close();
+			System.out.printf("%d rejected rows written to %s.\n", quarantine.getRows(), quarantine.getFile());
+		} catch (IOException e){
+			System.err.printf("WARNING: quarantine file %s cannot be written (%s).\n", quarantine.getFile(), e.getMessage());
+		}
+	}
+	
+	/**
+	 * Checks that the zip code is in the correct format: exactly 5 characters, all of them digits.
+	 * @param zip the zip code entered by the user
+	 * @return true if the zip code is valid
+	 */
+	public static boolean isValidZip(String zip){
+		if (zip.length() != 5){
+			return false;
+		}
+		for (int i = 0; i < zip.length(); i++){
+			if (zip.charAt(i) < '0' || zip.charAt(i) > '9'){
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Returns the title of the report of a query, underlined, as it is printed before the report.
+	 * @param zip the zip code of the query
+	 * @param dateBegin the start date of the query
+	 * @param dateEnd the end date of the query
+	 * @return the title and the line under it
+	 */
+	public static String reportHeader(String zip, Date dateBegin, Date dateEnd){
+		String s1 = String.format("Motor Vehicle Collisions for zipcode %s (%s - %s)", zip, dateBegin, dateEnd);
+		String s2 = String.format("%0" + s1.length() + "d", 0).replace("0","=");
+		return s1 + '\n' + s2;
+	}
+	
+	/*
+	 * Reads the input file with the ingest mode selected by the ingest property:
+	 * the default mode reads the file line by line with the Scanner, 
+	 * the "mapped" mode memory-maps the file and only decodes the columns Collision needs
+	 * and the "parallel" mode parses the mapped file on several threads.
+	 * The rejected rows are written to the quarantine file if it is not null.
+	 */
+	private static CollisionsData readInputFile(String fileName, Scanner collisionDataFile, CollisionQuarantine quarantine){
+		String ingest = System.getProperty(INGEST_PROPERTY, "");
+		if (ingest.equalsIgnoreCase(INGEST_MAPPED) || ingest.equalsIgnoreCase(INGEST_PARALLEL)){
+			collisionDataFile.close();
+			try {
+				if (ingest.equalsIgnoreCase(INGEST_PARALLEL)){
+					int threads = Integer.getInteger(THREADS_PROPERTY, Runtime.getRuntime().availableProcessors());
+					return ParallelCollisionReader.read(new File(fileName), threads, quarantine);
+				}
+				return MappedCollisionReader.read(new File(fileName), quarantine);
+			} catch (IOException e){
+				System.err.printf("ERROR: file %s cannot be read (%s).\n", fileName, e.getMessage());
+				System.exit(1);
+				return null;
+			}
+		}
+		return readCollisions(collisionDataFile, quarantine);
+	}
+	
+	/**
+	 * Reads the lines of the input file after the first line.
+	 * Each line is split using the splitCSVLine (code given by Joanna) and
+	 * if and only if the ArrayList<String> created has more than 23 elements,
+	 * a Collision object is created. All the collisions are then added to the CollisionsData object.
+	 * Lines that do not make a valid Collision object are skipped.
+	 * 
+	 * @param collisionDataFile the Scanner positioned at the beginning of the input file
+	 * @return the CollisionsData object containing all the valid collisions of the file
+	 */
+	public static CollisionsData readCollisions(Scanner collisionDataFile){
+		return readCollisions(collisionDataFile, null);
+	}
+	
+	/**
+	 * Reads the collisions like readCollisions(collisionDataFile) and writes the rows that
+	 * are not valid collisions to the quarantine file.
+	 * 
+	 * @param collisionDataFile the input file
+	 * @param quarantine the quarantine file of the rejected rows, or null
+	 * @return the CollisionsData object containing all the valid collisions of the file
+	 */
+	public static CollisionsData readCollisions(Scanner collisionDataFile, CollisionQuarantine quarantine){
+		long start = System.nanoTime();
+		collisionDataFile.nextLine();
+		ArrayList<Collision> collisions = new ArrayList<Collision>();
+		//The rows are validated without exceptions, since a large share of them is not valid,
+		//and counted here and added to the monitor at the end
+		Collision.RowDecoder decoder = new Collision.RowDecoder();
+		long rows = 0;
+		long[] rejected = new long[CollisionMonitor.Reject.values().length];
+		while (collisionDataFile.hasNextLine()){
+			String temp = collisionDataFile.nextLine();
+			rows++;
+			CollisionMonitor.Reject reason = decoder.decode(splitCSVLine(temp));
+			if (reason == null){
+				collisions.add(decoder.toCollision());
+			} else {
+				rejected[reason.ordinal()]++;
+				if (quarantine != null){
+					//The header is line 1
+					quarantine.reject(rows + 1, reason, temp);
+				}
+			}
+		}
+		CollisionMonitor monitor = CollisionMonitor.get();
+		monitor.rows(rows, collisions.size(), rejected);
+		monitor.phase("parse", System.nanoTime() - start);
+		//All the collisions are added at once, which builds the balanced tree in linear time
+		start = System.nanoTime();
+		CollisionsData collisionStored = new CollisionsData();
+		collisionStored.addAll(collisions);
+		monitor.phase("build", System.nanoTime() - start);
+		return collisionStored;
 	}
 	
 	/**
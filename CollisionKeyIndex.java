@@ -0,0 +1,189 @@
+package project5;
+
+import java.util.Collection;
+
+/**
+ * This class is a hash index of the Collision objects of a CollisionsData object by their
+ * unique key, so that a collision can be found from its key alone in O(1) expected time
+ * instead of walking the whole tree, which is ordered by zip code and date.
+ *
+ * It is an open addressing hash table with linear probing over two parallel arrays, one of
+ * primitive keys and one of the Collision objects (which are shared with the tree), so there is
+ * no entry object and no boxing of the keys. A removed entry is filled by shifting the following
+ * entries of its probe sequence back, so no deleted markers are left behind.
+ *
+ * The unique keys of the NYPD data are unique, but the tree keeps two collisions with the same key
+ * and a different zip code or date as two collisions, so the index keeps an entry for every
+ * collision of the tree and a key may have several entries. get returns the one that was put last,
+ * and the others stay in the index and are found after it is removed.
+ *
+ * The index is kept up to date by CollisionsData (see CollisionsData.getByKey).
+ *
+ * @author Gayeon_Park
+ *
+ */
+class CollisionKeyIndex {
+
+	//Smallest number of slots
+	private static final int MIN_CAPACITY = 16;
+
+	//The slot of a key is empty when its Collision object is null
+	private long[] keys;
+	private Collision[] values;
+	private int mask;
+	private int size;
+
+	/*
+	 * Creates the index of the first count items.
+	 */
+	CollisionKeyIndex(Collision[] items, int count){
+		allocate(capacityFor(count));
+		for (int i = 0; i < count; i++){
+			put(items[i]);
+		}
+	}
+
+	/*
+	 * Returns the number of slots for the given number of entries: a power of two
+	 * that keeps the table at most two thirds full.
+	 */
+	private static int capacityFor(int count){
+		int capacity = MIN_CAPACITY;
+		while (capacity / 3 * 2 < count){
+			capacity <<= 1;
+		}
+		return capacity;
+	}
+
+	private void allocate(int capacity){
+		keys = new long[capacity];
+		values = new Collision[capacity];
+		mask = capacity - 1;
+	}
+
+	/*
+	 * Returns the first slot of the probe sequence of the key. The key is multiplied by the
+	 * golden ratio so that consecutive keys, which are common, are spread over the table.
+	 */
+	private int slot(long key){
+		long hash = key * 0x9E3779B97F4A7C15L;
+		return (int) (hash ^ (hash >>> 32)) & mask;
+	}
+
+	/*
+	 * Returns the number of collisions in the index.
+	 */
+	int size(){
+		return size;
+	}
+
+	/*
+	 * Returns the collision with the given unique key that was put last, or null if there is none.
+	 */
+	Collision get(long key){
+		for (int i = slot(key); values[i] != null; i = (i + 1) & mask){
+			if (keys[i] == key){
+				return values[i];
+			}
+		}
+		return null;
+	}
+
+	/*
+	 * Adds all the collisions with the given unique key to out, the one that was put last first.
+	 */
+	void getAll(long key, Collection<Collision> out){
+		for (int i = slot(key); values[i] != null; i = (i + 1) & mask){
+			if (keys[i] == key){
+				out.add(values[i]);
+			}
+		}
+	}
+
+	/*
+	 * Adds the collision, replacing an equal collision. A collision with the same unique key 
+	 * that is not equal keeps its entry: the new collision takes the first entry of the key, 
+	 * so that get finds it, and the entries of the key after it move one entry further.
+	 */
+	void put(Collision item){
+		long key = item.getKeyNumber();
+		for (int i = slot(key); values[i] != null; i = (i + 1) & mask){
+			if (keys[i] == key && values[i].equals(item)){
+				values[i] = item;
+				return;
+			}
+		}
+		int i = slot(key);
+		while (values[i] != null){
+			if (keys[i] == key){
+				Collision old = values[i];
+				values[i] = item;
+				item = old;
+			}
+			i = (i + 1) & mask;
+		}
+		keys[i] = key;
+		values[i] = item;
+		size++;
+		if (size > (mask + 1) / 3 * 2){
+			grow();
+		}
+	}
+
+	private void grow(){
+		long[] oldKeys = keys;
+		Collision[] oldValues = values;
+		allocate(oldKeys.length * 2);
+		//Starting after an empty slot keeps the entries of a key in the same order
+		int empty = 0;
+		while (oldValues[empty] != null){
+			empty++;
+		}
+		for (int n = 1; n <= oldKeys.length; n++){
+			int j = (empty + n) & (oldKeys.length - 1);
+			if (oldValues[j] != null){
+				int i = slot(oldKeys[j]);
+				while (values[i] != null){
+					i = (i + 1) & mask;
+				}
+				keys[i] = oldKeys[j];
+				values[i] = oldValues[j];
+			}
+		}
+	}
+
+	/*
+	 * Removes the entry of the collision equal to target, the other collisions with its unique key 
+	 * keep their entries.
+	 *
+	 * @return true if the entry was removed
+	 */
+	boolean remove(Collision target){
+		long key = target.getKeyNumber();
+		for (int i = slot(key); values[i] != null; i = (i + 1) & mask){
+			if (keys[i] == key && values[i].equals(target)){
+				removeSlot(i);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/*
+	 * Empties the slot and moves back the following entries of the cluster that can no longer be
+	 * found past the empty slot: an entry moves into the hole when the hole lies between the first
+	 * slot of its probe sequence and its current slot.
+	 */
+	private void removeSlot(int hole){
+		for (int j = (hole + 1) & mask; values[j] != null; j = (j + 1) & mask){
+			int home = slot(keys[j]);
+			if (((j - home) & mask) >= ((j - hole) & mask)){
+				keys[hole] = keys[j];
+				values[hole] = values[j];
+				hole = j;
+			}
+		}
+		values[hole] = null;
+		size--;
+	}
+}
@@ -0,0 +1,84 @@
+package project5;
+
+import java.util.Comparator;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * This enum lists the totals of a CollisionSummary that the zip codes can be ranked by,
+ * for example the zip codes with the most pedestrians injured within a date range.
+ *
+ * @author Gayeon_Park
+ *
+ */
+public enum CollisionMetric {
+	COLLISIONS,
+	PERSONS_KILLED,
+	PEDESTRIANS_KILLED,
+	CYCLISTS_KILLED,
+	MOTORISTS_KILLED,
+	PERSONS_INJURED,
+	PEDESTRIANS_INJURED,
+	CYCLISTS_INJURED,
+	MOTORISTS_INJURED;
+
+	/**
+	 * Returns the total of the summary that this metric stands for.
+	 *
+	 * @param summary
+	 * @return the value of this metric in the summary
+	 */
+	public int of(CollisionSummary summary){
+		switch (this){
+		case COLLISIONS: return summary.getCollisions();
+		case PERSONS_KILLED: return summary.getPersonsKilled();
+		case PEDESTRIANS_KILLED: return summary.getPedestriansKilled();
+		case CYCLISTS_KILLED: return summary.getCyclistsKilled();
+		case MOTORISTS_KILLED: return summary.getMotoristsKilled();
+		case PERSONS_INJURED: return summary.getPersonsInjured();
+		case PEDESTRIANS_INJURED: return summary.getPedestriansInjured();
+		case CYCLISTS_INJURED: return summary.getCyclistsInjured();
+		default: return summary.getMotoristsInjured();
+		}
+	}
+
+	/**
+	 * Returns the order of a ranking by this metric: the zip codes with the larger value first,
+	 * and the smaller zip code first when the values are the same.
+	 *
+	 * @return comparator of zip codes with their summaries
+	 */
+	public Comparator<Map.Entry<String, CollisionSummary>> ranking(){
+		return (a, b) -> {
+			int compare = Integer.compare(of(b.getValue()), of(a.getValue()));
+			return compare != 0 ? compare : a.getKey().compareTo(b.getKey());
+		};
+	}
+
+	/**
+	 * Returns the name of this metric in the CSV and JSON results, for example "persons_killed".
+	 *
+	 * @return the name of the field
+	 */
+	public String field(){
+		return name().toLowerCase(Locale.ROOT);
+	}
+
+	/**
+	 * Appends all the totals of the summary as the members of a JSON object, without the braces,
+	 * for example "collisions": 31, "persons_killed": 0, ...
+	 *
+	 * @param s the JSON text the totals are appended to
+	 * @param summary
+	 * @return s
+	 */
+	public static StringBuilder appendJson(StringBuilder s, CollisionSummary summary){
+		for (CollisionMetric metric : values()){
+			if (metric != COLLISIONS){
+				s.append(", ");
+			}
+			s.append('"').append(metric.field()).append("\": ").append(metric.of(summary));
+		}
+		return s;
+	}
+}
@@ -0,0 +1,255 @@
+package project5;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * This class collects the numbers that show what the program did with the input file and how
+ * the tree looks: the rows read, accepted and rejected (by the reason they were rejected for),
+ * the time of every phase of the loading, and the size, the height and the rotations of the tree.
+ * There is one monitor for the whole program (see get). It is published as a JMX MBean
+ * (see register and CollisionMonitorMXBean) and as a text dump (see dump).
+ *
+ * The readers count the rows of a chunk or a file locally and add them here once (see rows),
+ * so the counters cost nothing per row. The tree gauges are read from the tree without its lock,
+ * so while rows are added in the follow mode they can be a moment behind.
+ *
+ * @author Gayeon_Park
+ *
+ */
+public class CollisionMonitor implements CollisionMonitorMXBean {
+
+	/**
+	 * The reasons a row of the input file is rejected, in the order the columns are checked:
+	 * the first column that is not valid gives the reason, and a row whose columns are valid but
+	 * that has 23 or fewer of them is a short row.
+	 */
+	public enum Reject {
+		BAD_DATE("bad date"),
+		BAD_ZIP("bad zip"),
+		BAD_COUNT("bad count"),
+		NEGATIVE_COUNT("negative count"),
+		SHORT_ROW("short row"),
+		EMPTY_KEY("empty key"),
+		BAD_KEY("bad key");
+
+		private final String label;
+
+		Reject(String label){
+			this.label = label;
+		}
+
+		/**
+		 * Returns the reason in words, for example "bad zip".
+		 * @see java.lang.Enum#toString()
+		 */
+		@Override
+		public String toString(){
+			return label;
+		}
+	}
+
+	//Name of the MBean of the monitor
+	static final String OBJECT_NAME = "project5:type=CollisionMonitor";
+
+	private static final CollisionMonitor MONITOR = new CollisionMonitor();
+
+	private final LongAdder rowsRead = new LongAdder();
+	private final LongAdder rowsAccepted = new LongAdder();
+	private final AtomicLongArray rejected = new AtomicLongArray(Reject.values().length);
+	//Nanoseconds of every phase, in the order the phases first ran
+	private final Map<String, Long> phases = new LinkedHashMap<String, Long>();
+	//Rows read when the parse phase was last added: the rows that the follow mode reads later
+	//are not part of the parse time
+	private long parsedRows;
+	//The tree of the gauges, null until setTree is called
+	private volatile CollisionsData tree;
+
+	private CollisionMonitor(){
+	}
+
+	/**
+	 * Returns the monitor of the program.
+	 * @return the monitor
+	 */
+	public static CollisionMonitor get(){
+		return MONITOR;
+	}
+
+	/**
+	 * Registers the monitor with the platform MBean server, once.
+	 *
+	 * @return false if the monitor cannot be registered
+	 */
+	public static boolean register(){
+		try {
+			ObjectName name = new ObjectName(OBJECT_NAME);
+			if (!ManagementFactory.getPlatformMBeanServer().isRegistered(name)){
+				ManagementFactory.getPlatformMBeanServer().registerMBean(MONITOR, name);
+			}
+			return true;
+		} catch (JMException e){
+			return false;
+		}
+	}
+
+	/*
+	 * Adds the rows of a chunk or a file: the number of rows read, of the accepted rows, and of
+	 * the rejected rows of every reason (indexed by Reject.ordinal()).
+	 */
+	void rows(long read, long accepted, long[] rejectedByReason){
+		rowsRead.add(read);
+		rowsAccepted.add(accepted);
+		for (int i = 0; i < rejectedByReason.length; i++){
+			if (rejectedByReason[i] != 0){
+				rejected.addAndGet(i, rejectedByReason[i]);
+			}
+		}
+	}
+
+	/*
+	 * Adds the time of a phase of the loading, for example "parse" or "build". The readers 
+	 * add the parse phase after the rows of the file (see rows).
+	 */
+	synchronized void phase(String name, long nanos){
+		Long total = phases.get(name);
+		phases.put(name, total == null ? nanos : total + nanos);
+		if (name.equals("parse")){
+			parsedRows = rowsRead.sum();
+		}
+	}
+
+	/*
+	 * Sets the tree that the gauges are read from.
+	 */
+	void setTree(CollisionsData tree){
+		this.tree = tree;
+	}
+
+	@Override
+	public long getRowsRead(){
+		return rowsRead.sum();
+	}
+
+	@Override
+	public long getRowsAccepted(){
+		return rowsAccepted.sum();
+	}
+
+	@Override
+	public long getRowsRejected(){
+		long total = 0;
+		for (int i = 0; i < rejected.length(); i++){
+			total += rejected.get(i);
+		}
+		return total;
+	}
+
+	/**
+	 * Returns the number of rows rejected for the given reason.
+	 * @param reason
+	 * @return the number of rows
+	 */
+	public long getRejectedRows(Reject reason){
+		return rejected.get(reason.ordinal());
+	}
+
+	@Override
+	public Map<String, Long> getRejectedRows(){
+		Map<String, Long> rows = new LinkedHashMap<String, Long>();
+		for (Reject reason : Reject.values()){
+			rows.put(reason.toString(), rejected.get(reason.ordinal()));
+		}
+		return rows;
+	}
+
+	@Override
+	public synchronized Map<String, Long> getPhaseMillis(){
+		Map<String, Long> millis = new LinkedHashMap<String, Long>();
+		for (Map.Entry<String, Long> phase : phases.entrySet()){
+			millis.put(phase.getKey(), phase.getValue() / 1000000);
+		}
+		return millis;
+	}
+
+	@Override
+	public synchronized double getRowsPerSecond(){
+		Long nanos = phases.get("parse");
+		return nanos == null || nanos == 0 ? 0 : parsedRows * 1e9 / nanos;
+	}
+
+	@Override
+	public int getTreeSize(){
+		CollisionsData t = tree;
+		return t == null ? 0 : t.size();
+	}
+
+	@Override
+	public int getTreeHeight(){
+		CollisionsData t = tree;
+		return t == null ? -1 : t.height();
+	}
+
+	@Override
+	public long getRotationsLL(){
+		return rotation(0);
+	}
+
+	@Override
+	public long getRotationsRR(){
+		return rotation(1);
+	}
+
+	@Override
+	public long getRotationsLR(){
+		return rotation(2);
+	}
+
+	@Override
+	public long getRotationsRL(){
+		return rotation(3);
+	}
+
+	private long rotation(int type){
+		CollisionsData t = tree;
+		return t == null ? 0 : t.getRotations()[type];
+	}
+
+	@Override
+	public String dump(){
+		StringBuilder s = new StringBuilder(512);
+		long read = getRowsRead();
+		long rejectedRows = getRowsRejected();
+		s.append(String.format(Locale.ROOT, "Rows: %d read, %d accepted, %d rejected (%.1f%%)\n", read,
+				getRowsAccepted(), rejectedRows, read == 0 ? 0 : 100.0 * rejectedRows / read));
+		s.append("Rejected:");
+		for (Map.Entry<String, Long> reason : getRejectedRows().entrySet()){
+			s.append(' ').append(reason.getKey()).append(' ').append(reason.getValue()).append(',');
+		}
+		s.setCharAt(s.length() - 1, '\n');
+		s.append("Phases:");
+		Map<String, Long> millis = getPhaseMillis();
+		for (Map.Entry<String, Long> phase : millis.entrySet()){
+			s.append(' ').append(phase.getKey()).append(' ').append(phase.getValue()).append(" ms,");
+		}
+		if (millis.isEmpty()){
+			s.append(" none,");
+		}
+		s.setCharAt(s.length() - 1, '\n');
+		s.append(String.format(Locale.ROOT, "Parse rate: %.0f rows/s\n", getRowsPerSecond()));
+		CollisionsData t = tree;
+		if (t != null){
+			long[] rotations = t.getRotations();
+			s.append(String.format("Tree: %d collisions, height %d, rotations LL %d, RR %d, LR %d, RL %d\n",
+					t.size(), t.height(), rotations[0], rotations[1], rotations[2], rotations[3]));
+		}
+		return s.toString();
+	}
+}
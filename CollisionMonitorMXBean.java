@@ -0,0 +1,93 @@
+package project5;
+
+import java.util.Map;
+
+/**
+ * This interface is the management interface of CollisionMonitor, the attributes and the
+ * operation that JMX clients (for example jconsole) see under the name
+ * "project5:type=CollisionMonitor".
+ *
+ * @author Gayeon_Park
+ *
+ */
+public interface CollisionMonitorMXBean {
+
+	/**
+	 * Returns the number of rows of the input file read so far, without the header.
+	 * @return the number of rows read
+	 */
+	long getRowsRead();
+
+	/**
+	 * Returns the number of rows that made a valid collision.
+	 * @return the number of rows accepted
+	 */
+	long getRowsAccepted();
+
+	/**
+	 * Returns the number of rows that did not make a valid collision.
+	 * @return the number of rows rejected
+	 */
+	long getRowsRejected();
+
+	/**
+	 * Returns the number of rejected rows by the reason they were rejected for.
+	 * @return the number of rows of every reason, in the order of CollisionMonitor.Reject
+	 */
+	Map<String, Long> getRejectedRows();
+
+	/**
+	 * Returns the time spent in every phase of the loading of the data.
+	 * @return the milliseconds of every phase, in the order the phases first ran
+	 */
+	Map<String, Long> getPhaseMillis();
+
+	/**
+	 * Returns the number of rows parsed per second of the parse phase, the rows read later in 
+	 * the follow mode are not counted.
+	 * @return the rows per second, 0 before the file is parsed
+	 */
+	double getRowsPerSecond();
+
+	/**
+	 * Returns the number of collisions in the tree.
+	 * @return the size of the tree, 0 when there is no tree
+	 */
+	int getTreeSize();
+
+	/**
+	 * Returns the height of the tree.
+	 * @return the height of the tree, -1 when it is empty or there is no tree
+	 */
+	int getTreeHeight();
+
+	/**
+	 * Returns the number of LL rotations of the tree.
+	 * @return the number of LL rotations
+	 */
+	long getRotationsLL();
+
+	/**
+	 * Returns the number of RR rotations of the tree.
+	 * @return the number of RR rotations
+	 */
+	long getRotationsRR();
+
+	/**
+	 * Returns the number of LR rotations of the tree.
+	 * @return the number of LR rotations
+	 */
+	long getRotationsLR();
+
+	/**
+	 * Returns the number of RL rotations of the tree.
+	 * @return the number of RL rotations
+	 */
+	long getRotationsRL();
+
+	/**
+	 * Returns all the counters, timings and gauges as text, a few lines long.
+	 * @return the text dump of the monitor
+	 */
+	String dump();
+}
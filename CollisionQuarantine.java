@@ -0,0 +1,198 @@
+package project5;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * This class writes the rejected rows of the input file to a quarantine file, so that they can be
+ * looked at and fixed. Every rejected row is written as one line: its line number in the input file,
+ * the reason it was rejected for and the raw row, separated by tabs, for example
+ *
+ *	17	bad zip	01/05/2016,13:20,BROOKLYN,1120,...
+ *
+ * The readers do not wait for the file: the rows are collected in a buffer of BATCH_BYTES that is
+ * handed to a background thread when it is full, and the thread writes the buffers to the file.
+ * At most QUEUED_BATCHES buffers wait for the thread, so a slow disk slows the readers down
+ * instead of filling the memory. The methods can be called from several threads. The rows that
+ * are rejected after the file is closed are not written.
+ *
+ * @author Gayeon_Park
+ *
+ */
+public class CollisionQuarantine {
+
+	//Size of a buffer of rows handed to the writer thread
+	private static final int BATCH_BYTES = 1 << 16;
+	//Number of full buffers that can wait for the writer thread
+	private static final int QUEUED_BATCHES = 16;
+	//Buffer handed to the writer thread to make it stop
+	private static final byte[] END = new byte[0];
+
+	private final File file;
+	private final OutputStream out;
+	private final BlockingQueue<byte[]> queue = new ArrayBlockingQueue<byte[]>(QUEUED_BATCHES);
+	private final Thread writer;
+	//Error of the writer thread, reported by close
+	private volatile IOException failure;
+
+	private byte[] batch = new byte[BATCH_BYTES];
+	private int batchLength;
+	private long rows;
+	private boolean closed;
+
+	/**
+	 * Creates the quarantine file (or empties it) and starts its writer thread.
+	 *
+	 * @param file the quarantine file
+	 * @throws IOException when the file cannot be created
+	 */
+	public CollisionQuarantine(File file) throws IOException {
+		this.file = file;
+		this.out = new FileOutputStream(file);
+		this.writer = new Thread(this::write, "project5-quarantine");
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	/**
+	 * Adds a rejected row.
+	 *
+	 * @param lineNumber the line number of the row in the input file, the header is line 1
+	 * @param reason the reason the row was rejected for
+	 * @param row the row without its line break
+	 */
+	public void reject(long lineNumber, CollisionMonitor.Reject reason, String row){
+		byte[] bytes = row.getBytes(StandardCharsets.UTF_8);
+		reject(lineNumber, reason, ByteBuffer.wrap(bytes), 0, bytes.length);
+	}
+
+	/*
+	 * Adds a rejected row that is the bytes [start, end) of the buffer, the buffer is only read
+	 * with absolute gets.
+	 */
+	synchronized void reject(long lineNumber, CollisionMonitor.Reject reason, ByteBuffer buffer, int start, int end){
+		//A follower can still reject rows while the program closes the file
+		if (closed){
+			return;
+		}
+		String prefix = lineNumber + "\t" + reason + "\t";
+		ensureCapacity(prefix.length() + end - start + 1);
+		for (int i = 0; i < prefix.length(); i++){
+			batch[batchLength++] = (byte) prefix.charAt(i);
+		}
+		for (int i = start; i < end; i++){
+			batch[batchLength++] = buffer.get(i);
+		}
+		batch[batchLength++] = '\n';
+		rows++;
+	}
+
+	/*
+	 * Hands the buffer to the writer thread if the next row does not fit in it. A row that is
+	 * longer than a buffer gets a buffer of its own.
+	 */
+	private void ensureCapacity(int length){
+		if (batchLength + length <= batch.length){
+			return;
+		}
+		if (batchLength > 0){
+			hand(Arrays.copyOf(batch, batchLength));
+			batchLength = 0;
+		}
+		if (length > batch.length){
+			batch = new byte[length];
+		} else if (batch.length > BATCH_BYTES){
+			batch = new byte[BATCH_BYTES];
+		}
+	}
+
+	private void hand(byte[] bytes){
+		try {
+			queue.put(bytes);
+		} catch (InterruptedException e){
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/*
+	 * Writes the buffers to the file until the END buffer is handed over.
+	 */
+	private void write(){
+		try {
+			while (true){
+				byte[] bytes = queue.take();
+				if (bytes == END){
+					break;
+				}
+				out.write(bytes);
+			}
+		} catch (IOException e){
+			failure = e;
+			//keep taking the buffers so that the readers do not wait
+			drain();
+		} catch (InterruptedException e){
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void drain(){
+		try {
+			while (queue.take() != END){
+			}
+		} catch (InterruptedException e){
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Returns the number of rejected rows added so far.
+	 * @return the number of rows
+	 */
+	public synchronized long getRows(){
+		return rows;
+	}
+
+	/**
+	 * Returns the quarantine file.
+	 * @return the file
+	 */
+	public File getFile(){
+		return file;
+	}
+
+	/**
+	 * Writes the remaining rows, waits for the writer thread and closes the file.
+	 * Calling it again does nothing.
+	 *
+	 * @throws IOException when the file could not be written
+	 */
+	public void close() throws IOException {
+		synchronized (this){
+			if (closed){
+				return;
+			}
+			closed = true;
+			if (batchLength > 0){
+				hand(Arrays.copyOf(batch, batchLength));
+				batchLength = 0;
+			}
+			hand(END);
+		}
+		try {
+			writer.join();
+		} catch (InterruptedException e){
+			Thread.currentThread().interrupt();
+		}
+		out.close();
+		if (failure != null){
+			throw failure;
+		}
+	}
+}
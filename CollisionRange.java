@@ -0,0 +1,219 @@
+package project5;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * This class represents the Collision objects of a CollisionsData object that fall between
+ * two bounds (in the order of Collision.compareTo), for example one zip code within a date range.
+ * Nothing is copied when the range is created: the iterator walks the tree in order with an
+ * explicit stack and only visits the nodes within the bounds, and the spliterator splits the
+ * range by subtrees, so a parallel stream divides a large range across threads without
+ * collecting the results first.
+ *
+ * The range reads the tree while it is iterated, so the tree should not be changed
+ * at the same time.
+ *
+ * @author Gayeon_Park
+ *
+ */
+public class CollisionRange implements Iterable<Collision> {
+
+	private final CollisionsData.Node<Collision> root;
+	private final int treeSize;
+	//Lower and upper bounds (inclusive) as a packed zip code and day number and a unique key
+	private final long lowZipDay;
+	private final long lowKey;
+	private final long highZipDay;
+	private final long highKey;
+
+	/*
+	 * Creates the range of the tree with the given root between the two bounds.
+	 * The bounds are inclusive, zip codes and days are packed with Collision.zipDay.
+	 */
+	CollisionRange(CollisionsData.Node<Collision> root, int treeSize, long lowZipDay, long lowKey,
+			long highZipDay, long highKey){
+		this.root = root;
+		this.treeSize = treeSize;
+		this.lowZipDay = lowZipDay;
+		this.lowKey = lowKey;
+		this.highZipDay = highZipDay;
+		this.highKey = highKey;
+	}
+
+	/**
+	 * Returns an iterator over the Collision objects of this range in sorted order.
+	 * @see java.lang.Iterable#iterator()
+	 */
+	@Override
+	public Iterator<Collision> iterator(){
+		return new RangeSpliterator(this);
+	}
+
+	/**
+	 * Returns a spliterator over the Collision objects of this range in sorted order
+	 * that splits the range by subtrees.
+	 * @see java.lang.Iterable#spliterator()
+	 */
+	@Override
+	public Spliterator<Collision> spliterator(){
+		return new RangeSpliterator(this);
+	}
+
+	/**
+	 * Returns a sequential stream of the Collision objects of this range,
+	 * call parallel() on it to process the range on several threads.
+	 *
+	 * @return stream of the Collision objects of this range
+	 */
+	public Stream<Collision> stream(){
+		return StreamSupport.stream(spliterator(), false);
+	}
+
+	/*
+	 * Returns a negative value, zero or a positive value if c is below, within or above the range.
+	 */
+	private int position(Collision c){
+		long zipDay = c.getZipDay();
+		long key = c.getKeyNumber();
+		if (zipDay < lowZipDay || (zipDay == lowZipDay && key < lowKey))
+			return -1;
+		if (zipDay > highZipDay || (zipDay == highZipDay && key > highKey))
+			return 1;
+		return 0;
+	}
+
+	/*
+	 * Iterates over the range in order. The stack holds the nodes of the range that
+	 * have not been returned yet and whose left subtrees (within the range) are done; after
+	 * a node is returned, the left spine of its right subtree is pushed.
+	 */
+	private static class RangeSpliterator implements Spliterator<Collision>, Iterator<Collision> {
+
+		private final CollisionRange range;
+		private final CollisionsData.Node<Collision>[] stack;
+		private int depth;
+		private long estimate;
+
+		RangeSpliterator(CollisionRange range){
+			this.range = range;
+			this.stack = newStack(range.root == null ? 1 : range.root.height + 2);
+			this.estimate = range.treeSize;
+			pushLeft(range.root);
+		}
+
+		private RangeSpliterator(CollisionRange range, int capacity, long estimate){
+			this.range = range;
+			this.stack = newStack(capacity);
+			this.estimate = estimate;
+		}
+
+		/*
+		 * Creates the array of the stack, arrays of a generic type can only be created raw.
+		 */
+		@SuppressWarnings({"unchecked", "rawtypes"})
+		private static CollisionsData.Node<Collision>[] newStack(int capacity){
+			return new CollisionsData.Node[capacity];
+		}
+
+		/*
+		 * Pushes the nodes of the range on the left spine of the subtree, skipping the nodes
+		 * that are below the range (together with their left subtrees) and the nodes that are above it
+		 * (together with their right subtrees).
+		 */
+		private void pushLeft(CollisionsData.Node<Collision> node){
+			while (node != null){
+				int position = range.position(node.data);
+				if (position < 0){
+					node = node.right;
+				} else if (position > 0){
+					node = node.left;
+				} else {
+					stack[depth++] = node;
+					node = node.left;
+				}
+			}
+		}
+
+		@Override
+		public boolean hasNext(){
+			return depth > 0;
+		}
+
+		@Override
+		public Collision next(){
+			if (depth == 0)
+				throw new NoSuchElementException();
+			CollisionsData.Node<Collision> node = stack[--depth];
+			pushLeft(node.right);
+			return node.data;
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super Collision> action){
+			if (depth == 0)
+				return false;
+			action.accept(next());
+			return true;
+		}
+
+		@Override
+		public void forEachRemaining(Consumer<? super Collision> action){
+			while (depth > 0){
+				action.accept(next());
+			}
+		}
+
+		/*
+		 * Splits off the nodes below the bottom of the stack: they and their right subtrees are
+		 * all smaller than the bottom node, which keeps its right subtree. When the stack holds a
+		 * single node, that node is split off on its own and its right subtree is kept.
+		 */
+		@Override
+		public Spliterator<Collision> trySplit(){
+			if (depth >= 2){
+				RangeSpliterator prefix = new RangeSpliterator(range, stack.length, estimate / 2);
+				System.arraycopy(stack, 1, prefix.stack, 0, depth - 1);
+				prefix.depth = depth - 1;
+				depth = 1;
+				estimate -= prefix.estimate;
+				return prefix;
+			}
+			if (depth == 1){
+				CollisionsData.Node<Collision> node = stack[0];
+				depth = 0;
+				pushLeft(node.right);
+				if (depth == 0){
+					//nothing else is left in the range
+					stack[depth++] = node;
+					return null;
+				}
+				estimate = Math.max(1, estimate - 1);
+				return Spliterators.spliterator(new Object[] {node.data}, characteristics());
+			}
+			return null;
+		}
+
+		@Override
+		public long estimateSize(){
+			return depth == 0 ? 0 : estimate;
+		}
+
+		@Override
+		public int characteristics(){
+			return ORDERED | DISTINCT | SORTED | NONNULL;
+		}
+
+		@Override
+		public Comparator<? super Collision> getComparator(){
+			//sorted in the natural order of the Collision objects
+			return null;
+		}
+	}
+}
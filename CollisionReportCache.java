@@ -0,0 +1,244 @@
+package project5;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * This class is a bounded cache of the reports of a CollisionsData object, so that a query that is
+ * asked again (the same zip code and the same two dates) returns the report that was already
+ * rendered instead of searching the tree and formatting the report again.
+ *
+ * A query is the key of the cache as one number: the zip code and the day numbers of the two dates
+ * packed together (see key). When the cache is full, the least recently used report is evicted.
+ * When a collision is added to or removed from the tree, only the reports of its zip code whose
+ * date range contains its date are removed; the cache keeps the keys of every zip code for that.
+ * A batch of more collisions than the cache can keep clears the whole cache instead.
+ *
+ * The cache counts its hits, misses, evictions and invalidations, and the time of the hits and the
+ * misses, so that its effect can be seen (see toString). All the methods are synchronized, since
+ * a lookup changes the order of the entries.
+ *
+ * The cache is created and kept up to date by CollisionsData (see CollisionsData.createReportCache).
+ *
+ * @author Gayeon_Park
+ *
+ */
+public class CollisionReportCache {
+
+	//Number of bits of the day numbers and of the zip code in a key
+	private static final int DAY_BITS = 20;
+	private static final int ZIP_BITS = 17;
+	private static final int DAY_MASK = (1 << DAY_BITS) - 1;
+
+	private final int capacity;
+	private final LinkedHashMap<Long, String> reports;
+	//The keys of the cached reports of every zip code
+	private final Map<Integer, Set<Long>> keysByZip = new HashMap<Integer, Set<Long>>();
+
+	private long hits;
+	private long misses;
+	private long evictions;
+	private long invalidations;
+	private long hitNanos;
+	private long missNanos;
+
+	/*
+	 * Creates an empty cache of at most capacity reports.
+	 */
+	CollisionReportCache(int capacity){
+		if (capacity < 1){
+			throw new IllegalArgumentException("Error: the size of the cache has to be positive.");
+		}
+		this.capacity = capacity;
+		this.reports = new LinkedHashMap<Long, String>(16, 0.75f, true){
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Long, String> eldest){
+				if (size() <= CollisionReportCache.this.capacity){
+					return false;
+				}
+				forgetKey(eldest.getKey());
+				evictions++;
+				return true;
+			}
+		};
+	}
+
+	/*
+	 * Returns the key of the query, or -1 if the query cannot be cached (a zip code or a day number
+	 * that does not fit in its bits). The zip code is in the highest bits, then the begin day and
+	 * the end day.
+	 */
+	static long key(int zip, int beginDay, int endDay){
+		if (zip < 0 || zip >= (1 << ZIP_BITS) || beginDay < 0 || beginDay > DAY_MASK || endDay < 0 || endDay > DAY_MASK){
+			return -1;
+		}
+		return ((long) zip << (2 * DAY_BITS)) | ((long) beginDay << DAY_BITS) | endDay;
+	}
+
+	/*
+	 * Returns the cached report of the key, or null if it is not cached.
+	 * The caller records the time of the lookup with hit or miss.
+	 */
+	synchronized String get(long key){
+		return reports.get(key);
+	}
+
+	/*
+	 * Counts a hit that took the given time.
+	 */
+	synchronized void hit(long nanos){
+		hits++;
+		hitNanos += nanos;
+	}
+
+	/*
+	 * Counts a miss that took the given time and caches its report.
+	 */
+	synchronized void miss(long key, String report, long nanos){
+		misses++;
+		missNanos += nanos;
+		int zip = (int) (key >>> (2 * DAY_BITS));
+		Set<Long> keys = keysByZip.get(zip);
+		if (keys == null){
+			keys = new HashSet<Long>();
+			keysByZip.put(zip, keys);
+		}
+		keys.add(key);
+		reports.put(key, report);
+	}
+
+	/*
+	 * Removes the cached reports of the zip code whose date range contains the day number,
+	 * after a collision with that zip code and date was added or removed.
+	 */
+	synchronized void invalidate(int zip, int day){
+		Set<Long> keys = keysByZip.get(zip);
+		if (keys == null){
+			return;
+		}
+		for (Iterator<Long> i = keys.iterator(); i.hasNext(); ){
+			long key = i.next();
+			int beginDay = (int) (key >>> DAY_BITS) & DAY_MASK;
+			int endDay = (int) key & DAY_MASK;
+			if (beginDay <= day && day <= endDay){
+				i.remove();
+				reports.remove(key);
+				invalidations++;
+			}
+		}
+		if (keys.isEmpty()){
+			keysByZip.remove(zip);
+		}
+	}
+
+	/*
+	 * Removes all the cached reports, after a change of the tree that is too large
+	 * to invalidate collision by collision.
+	 */
+	synchronized void invalidateAll(){
+		invalidations += reports.size();
+		reports.clear();
+		keysByZip.clear();
+	}
+
+	private void forgetKey(long key){
+		int zip = (int) (key >>> (2 * DAY_BITS));
+		Set<Long> keys = keysByZip.get(zip);
+		if (keys != null){
+			keys.remove(key);
+			if (keys.isEmpty()){
+				keysByZip.remove(zip);
+			}
+		}
+	}
+
+	/**
+	 * Returns the largest number of reports the cache keeps.
+	 * @return the capacity of the cache
+	 */
+	public int getCapacity(){
+		return capacity;
+	}
+
+	/**
+	 * Returns the number of reports in the cache.
+	 * @return the number of cached reports
+	 */
+	public synchronized int size(){
+		return reports.size();
+	}
+
+	/**
+	 * Returns the number of queries answered from the cache.
+	 * @return the number of hits
+	 */
+	public synchronized long getHits(){
+		return hits;
+	}
+
+	/**
+	 * Returns the number of queries that were not in the cache.
+	 * @return the number of misses
+	 */
+	public synchronized long getMisses(){
+		return misses;
+	}
+
+	/**
+	 * Returns the fraction of the queries answered from the cache.
+	 * @return the hit ratio between 0 and 1, 0 before the first query
+	 */
+	public synchronized double getHitRatio(){
+		return hits + misses == 0 ? 0 : (double) hits / (hits + misses);
+	}
+
+	/**
+	 * Returns the number of reports removed because the cache was full.
+	 * @return the number of evictions
+	 */
+	public synchronized long getEvictions(){
+		return evictions;
+	}
+
+	/**
+	 * Returns the number of reports removed because the tree changed.
+	 * @return the number of invalidations
+	 */
+	public synchronized long getInvalidations(){
+		return invalidations;
+	}
+
+	/**
+	 * Returns the average time of a query answered from the cache.
+	 * @return the average time of a hit in nanoseconds
+	 */
+	public synchronized double getAverageHitNanos(){
+		return hits == 0 ? 0 : (double) hitNanos / hits;
+	}
+
+	/**
+	 * Returns the average time of a query that was not in the cache,
+	 * including the search of the tree and the formatting of the report.
+	 * @return the average time of a miss in nanoseconds
+	 */
+	public synchronized double getAverageMissNanos(){
+		return misses == 0 ? 0 : (double) missNanos / misses;
+	}
+
+	/**
+	 * Returns the statistics of the cache in one line.
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public synchronized String toString(){
+		return String.format("Report cache: %d/%d reports, %d hits, %d misses (hit ratio %.1f%%), %d evictions, "
+				+ "%d invalidations, %.0f ns per hit, %.0f ns per miss", reports.size(), capacity, hits, misses,
+				100 * getHitRatio(), evictions, invalidations, getAverageHitNanos(), getAverageMissNanos());
+	}
+}
@@ -0,0 +1,40 @@
+package project5;
+
+/**
+ * This interface is implemented by the classes that can produce the report about the
+ * collisions of a zip code within a date range (the tree, the columnar store and the indexes
+ * built from them), so that the program can answer the queries with any of them.
+ * The totals are collected in a CollisionSummary, the report text is rendered from it.
+ *
+ * @author Gayeon_Park
+ *
+ */
+public interface CollisionReporter {
+
+	/**
+	 * Returns a string containing info about the total number of fatalities and injuries
+	 * along with the breakdown of each for pedestrians, cyclists, and motorists for a given zip code and date range.
+	 *
+	 * @param zip
+	 * @param dateBegin
+	 * @param dateEnd
+	 * @return a string that represents the summary of the collisions that occured in the
+	 * given zip code within the specified dates, inclusive.
+	 */
+	default String getReport(String zip, Date dateBegin, Date dateEnd){
+		CollisionSummary summary = new CollisionSummary();
+		summarize(zip, dateBegin, dateEnd, summary);
+		return summary.toString();
+	}
+
+	/**
+	 * Adds the collisions of the given zip code within the given date range (inclusive)
+	 * to the summary. The summary is not cleared first.
+	 *
+	 * @param zip
+	 * @param dateBegin
+	 * @param dateEnd
+	 * @param summary the totals that the matching collisions are added to
+	 */
+	void summarize(String zip, Date dateBegin, Date dateEnd, CollisionSummary summary);
+}
@@ -0,0 +1,287 @@
+package project5;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * This class serves the reports of the loaded data over HTTP, so that the data is loaded once
+ * and many clients can query it, with the HTTP server of the JDK (com.sun.net.httpserver).
+ * Every request runs on its own virtual thread when the JVM has them (see CollisionBatch.newExecutor).
+ * The answers are JSON objects with the same totals as the reports of getReport:
+ *
+ *	GET /report?zip=11207&start=01/01/2016&end=12/31/2016
+ *		the totals of one zip code within the dates
+ *	GET /zips?low=11201&high=11239&start=01/01/2016&end=12/31/2016
+ *		the totals of every zip code of the range that has collisions within the dates and their sum,
+ *		only when the queries are answered by the tree (see CollisionsData.summarizeZips)
+ *	GET /health
+ *		the state of the server, the number of collisions and the number of requests
+ *	GET /metrics
+ *		the text dump of the CollisionMonitor: the rows read and rejected, the phases and the tree
+ *
+ * A query that is not valid is answered with 400 and the message of the interactive loop.
+ * The queries only read the data and run concurrently; when the tree changes while the server
+ * runs (the follow mode), the zip range queries hold the lock of the tree like the reporter does.
+ *
+ * @author Gayeon_Park
+ *
+ */
+public class CollisionServer {
+
+	//System property of the JDK that sets TCP_NODELAY on the connections of the server
+	private static final String NODELAY_PROPERTY = "sun.net.httpserver.nodelay";
+
+	private final CollisionReporter reporter;
+	private final CollisionsData tree;
+	private final boolean treeChanges;
+	private final HttpServer server;
+	private final ExecutorService executor;
+	private final long startMillis = System.currentTimeMillis();
+	private final LongAdder requests = new LongAdder();
+	private final LongAdder errors = new LongAdder();
+
+	/**
+	 * Creates a server on the given port that answers the queries with the reporter.
+	 * The server does not accept connections before start is called.
+	 *
+	 * @param port the port of the server, 0 for any free port
+	 * @param reporter the loaded data, it has to allow concurrent queries
+	 * @param tree the tree for the zip range queries, or null if there is none
+	 * @param treeChanges true if collisions are added to the tree while the server runs
+	 * @throws IOException when the port cannot be used
+	 */
+	public CollisionServer(int port, CollisionReporter reporter, CollisionsData tree, boolean treeChanges)
+			throws IOException {
+		this.reporter = reporter;
+		this.tree = tree;
+		this.treeChanges = treeChanges;
+		//The server writes the headers and the body of an answer separately, so without TCP_NODELAY
+		//the body waits for the delayed ACK of the client (40 ms) on every request of a kept-alive
+		//connection; the property is read when the first server is created
+		if (System.getProperty(NODELAY_PROPERTY) == null){
+			System.setProperty(NODELAY_PROPERTY, "true");
+		}
+		this.server = HttpServer.create(new InetSocketAddress(port), 0);
+		this.executor = CollisionBatch.newExecutor();
+		server.setExecutor(executor);
+		server.createContext("/report", this::report);
+		server.createContext("/zips", this::zips);
+		server.createContext("/health", this::health);
+		server.createContext("/metrics", this::metrics);
+	}
+
+	/**
+	 * Starts accepting connections.
+	 */
+	public void start(){
+		server.start();
+	}
+
+	/**
+	 * Stops the server after the requests that are being answered are done,
+	 * waiting at most the given number of seconds.
+	 *
+	 * @param seconds the longest time to wait for the requests
+	 */
+	public void stop(int seconds){
+		server.stop(seconds);
+		executor.shutdown();
+	}
+
+	/**
+	 * Returns the port the server listens on.
+	 * @return the port of the server
+	 */
+	public int getPort(){
+		return server.getAddress().getPort();
+	}
+
+	/**
+	 * Returns the number of requests answered so far.
+	 * @return the number of requests
+	 */
+	public long getRequests(){
+		return requests.sum();
+	}
+
+	/*
+	 * Answers GET /report with the totals of one zip code within the dates.
+	 */
+	private void report(HttpExchange exchange) throws IOException {
+		Map<String, String> query = parameters(exchange);
+		if (query == null){
+			return;
+		}
+		String zip = query.getOrDefault("zip", "");
+		if (!CollisionInfo.isValidZip(zip)){
+			error(exchange, 400, CollisionBatch.INVALID_ZIP);
+			return;
+		}
+		Date start;
+		Date end;
+		try {
+			start = new Date(query.getOrDefault("start", ""));
+			end = new Date(query.getOrDefault("end", ""));
+		} catch (IllegalArgumentException e){
+			error(exchange, 400, CollisionBatch.INVALID_DATE);
+			return;
+		}
+		CollisionSummary summary = new CollisionSummary();
+		reporter.summarize(zip, start, end, summary);
+		StringBuilder s = new StringBuilder(256);
+		s.append("{\"zip\": \"").append(zip).append("\", \"start\": \"").append(start)
+			.append("\", \"end\": \"").append(end).append("\", ");
+		CollisionMetric.appendJson(s, summary).append('}');
+		send(exchange, 200, s.toString());
+	}
+
+	/*
+	 * Answers GET /zips with the totals of every zip code of the range within the dates.
+	 */
+	private void zips(HttpExchange exchange) throws IOException {
+		Map<String, String> query = parameters(exchange);
+		if (query == null){
+			return;
+		}
+		if (tree == null){
+			error(exchange, 501, "Zip range queries need the tree.");
+			return;
+		}
+		String low = query.getOrDefault("low", "");
+		String high = query.getOrDefault("high", "");
+		if (!CollisionInfo.isValidZip(low) || !CollisionInfo.isValidZip(high)){
+			error(exchange, 400, CollisionBatch.INVALID_ZIP);
+			return;
+		}
+		Date start;
+		Date end;
+		try {
+			start = new Date(query.getOrDefault("start", ""));
+			end = new Date(query.getOrDefault("end", ""));
+		} catch (IllegalArgumentException e){
+			error(exchange, 400, CollisionBatch.INVALID_DATE);
+			return;
+		}
+		CollisionSummary total = new CollisionSummary();
+		SortedMap<String, CollisionSummary> zips;
+		if (treeChanges){
+			synchronized (tree){
+				zips = tree.summarizeZips(low, high, start, end, total);
+			}
+		} else {
+			zips = tree.summarizeZips(low, high, start, end, total);
+		}
+		StringBuilder s = new StringBuilder(128 + 256 * zips.size());
+		s.append("{\"low\": \"").append(low).append("\", \"high\": \"").append(high)
+			.append("\", \"start\": \"").append(start).append("\", \"end\": \"").append(end).append("\", \"total\": {");
+		CollisionMetric.appendJson(s, total).append("}, \"zips\": {");
+		boolean first = true;
+		for (Map.Entry<String, CollisionSummary> zip : zips.entrySet()){
+			if (!first){
+				s.append(", ");
+			}
+			first = false;
+			s.append('"').append(zip.getKey()).append("\": {");
+			CollisionMetric.appendJson(s, zip.getValue()).append('}');
+		}
+		send(exchange, 200, s.append("}}").toString());
+	}
+
+	/*
+	 * Answers GET /health with the state of the server.
+	 */
+	private void health(HttpExchange exchange) throws IOException {
+		if (parameters(exchange) == null){
+			return;
+		}
+		StringBuilder s = new StringBuilder(128);
+		s.append("{\"status\": \"ok\"");
+		if (tree != null){
+			int size;
+			if (treeChanges){
+				synchronized (tree){
+					size = tree.size();
+				}
+			} else {
+				size = tree.size();
+			}
+			s.append(", \"collisions\": ").append(size);
+		}
+		s.append(", \"uptime_millis\": ").append(System.currentTimeMillis() - startMillis)
+			.append(", \"requests\": ").append(requests.sum())
+			.append(", \"errors\": ").append(errors.sum()).append('}');
+		send(exchange, 200, s.toString());
+	}
+
+	/*
+	 * Answers GET /metrics with the text dump of the monitor.
+	 */
+	private void metrics(HttpExchange exchange) throws IOException {
+		if (parameters(exchange) == null){
+			return;
+		}
+		send(exchange, 200, "text/plain", CollisionMonitor.get().dump());
+	}
+
+	/*
+	 * Returns the decoded parameters of the query of a GET request, or answers the request
+	 * with an error and returns null if it is not a GET request.
+	 */
+	private Map<String, String> parameters(HttpExchange exchange) throws IOException {
+		if (!exchange.getRequestMethod().equals("GET")){
+			exchange.getResponseHeaders().set("Allow", "GET");
+			error(exchange, 405, "Only GET requests are supported.");
+			return null;
+		}
+		Map<String, String> parameters = new HashMap<String, String>();
+		String query = exchange.getRequestURI().getRawQuery();
+		if (query == null){
+			return parameters;
+		}
+		for (String parameter : query.split("&")){
+			int equals = parameter.indexOf('=');
+			try {
+				if (equals < 0){
+					parameters.put(URLDecoder.decode(parameter, StandardCharsets.UTF_8), "");
+				} else {
+					parameters.put(URLDecoder.decode(parameter.substring(0, equals), StandardCharsets.UTF_8),
+							URLDecoder.decode(parameter.substring(equals + 1), StandardCharsets.UTF_8));
+				}
+			} catch (IllegalArgumentException e){
+				error(exchange, 400, "Invalid query string.");
+				return null;
+			}
+		}
+		return parameters;
+	}
+
+	private void error(HttpExchange exchange, int status, String message) throws IOException {
+		errors.increment();
+		send(exchange, status, "{\"error\": " + CollisionBatch.json(message) + "}");
+	}
+
+	private void send(HttpExchange exchange, int status, String json) throws IOException {
+		send(exchange, status, "application/json", json);
+	}
+
+	private void send(HttpExchange exchange, int status, String type, String text) throws IOException {
+		requests.increment();
+		byte[] body = text.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", type + "; charset=utf-8");
+		exchange.sendResponseHeaders(status, body.length);
+		try (OutputStream out = exchange.getResponseBody()){
+			out.write(body);
+		}
+	}
+}
@@ -0,0 +1,277 @@
+package project5;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * This class is a binary snapshot of a CollisionsData object saved in a file, so that the
+ * data can be loaded again without reading and validating the input file.
+ *
+ * The file starts with a header of HEADER_SIZE bytes: a magic number, the version of the format,
+ * the number of records, the length and the last modification time of the input file the data
+ * was read from and a CRC32 checksum of the fields before it and of all the records.
+ * The header is followed by one record of RECORD_SIZE bytes per collision, in the order of the
+ * tree (zip code, date and unique key): the zip code, the day number of the date, the unique key
+ * and the eight casualty counts in the order of the columns of the input file.
+ *
+ * An opened snapshot is memory-mapped. It can rebuild the tree without comparing the records,
+ * or it can answer the reports itself with two binary searches over the records, the same way
+ * CollisionStore does.
+ *
+ * @author Gayeon_Park
+ *
+ */
+public class CollisionSnapshot implements CollisionReporter {
+
+	//"CSNP" in ASCII
+	static final int MAGIC = 0x43534E50;
+	//Version of the format, changed whenever the layout of the header or the records changes
+	static final int VERSION = 1;
+	static final int HEADER_SIZE = 40;
+	static final int RECORD_SIZE = 48;
+	//Position of the checksum in the header, it covers the fields before it and all the records
+	private static final int CHECKSUM_POSITION = 32;
+	//Position of the fields of a record
+	private static final int ZIP_OFFSET = 0;
+	private static final int DAY_OFFSET = 4;
+	private static final int KEY_OFFSET = 8;
+	private static final int COUNTS_OFFSET = 16;
+
+	private final ByteBuffer buffer;
+	private final int size;
+
+	private CollisionSnapshot(ByteBuffer buffer, int size){
+		this.buffer = buffer;
+		this.size = size;
+	}
+
+	/**
+	 * Writes all the collisions of the given CollisionsData object to the snapshot file.
+	 * The data is written to a temporary file first, which then replaces the snapshot file,
+	 * so the snapshot file is never left half written. The temporary file is deleted when the
+	 * snapshot cannot be written.
+	 *
+	 * The length and the last modification time of the input file have to be taken before
+	 * the file is read: a row appended while the file is read is then not in the data, and the
+	 * snapshot does not match the longer file.
+	 *
+	 * @param data the collisions to save
+	 * @param snapshot the snapshot file
+	 * @param sourceLength the length of the input file before the collisions were read from it
+	 * @param sourceModified the last modification time of the input file before the collisions were read from it
+	 * @throws IOException when the snapshot file cannot be written
+	 */
+	public static void write(CollisionsData data, File snapshot, long sourceLength, long sourceModified)
+			throws IOException {
+		Collision[] collisions = data.toArray();
+		if ((long) collisions.length * RECORD_SIZE > Integer.MAX_VALUE - HEADER_SIZE){
+			throw new IOException("too many collisions for a snapshot: " + collisions.length);
+		}
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		header.putInt(MAGIC);
+		header.putInt(VERSION);
+		header.putInt(collisions.length);
+		header.putInt(RECORD_SIZE);
+		header.putLong(sourceLength);
+		header.putLong(sourceModified);
+		CRC32 crc = new CRC32();
+		crc.update(header.array(), 0, CHECKSUM_POSITION);
+
+		File temp = new File(snapshot.getPath() + ".tmp");
+		boolean written = false;
+		try {
+			writeRecords(collisions, header, crc, temp);
+			Files.move(temp.toPath(), snapshot.toPath(), StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+			written = true;
+		} finally {
+			if (!written){
+				temp.delete();
+			}
+		}
+	}
+
+	/*
+	 * Writes the header and the records of the collisions to the temporary file.
+	 */
+	private static void writeRecords(Collision[] collisions, ByteBuffer header, CRC32 crc, File temp)
+			throws IOException {
+		try (FileChannel channel = FileChannel.open(temp.toPath(), StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)){
+			//the records are written in blocks after the header, the checksum is known at the end
+			ByteBuffer block = ByteBuffer.allocate(RECORD_SIZE * 4096);
+			channel.position(HEADER_SIZE);
+			for (int i = 0; i < collisions.length; i++){
+				Collision c = collisions[i];
+				block.putInt(c.getZipCode());
+				block.putInt(c.getDate().getDayNumber());
+				block.putLong(c.getKeyNumber());
+				block.putInt(c.getPersonsInjured());
+				block.putInt(c.getPersonsKilled());
+				block.putInt(c.getPedestriansInjured());
+				block.putInt(c.getPedestriansKilled());
+				block.putInt(c.getCyclistsInjured());
+				block.putInt(c.getCyclistsKilled());
+				block.putInt(c.getMotoristsInjured());
+				block.putInt(c.getMotoristsKilled());
+				if (!block.hasRemaining() || i == collisions.length - 1){
+					block.flip();
+					crc.update(block.array(), 0, block.limit());
+					writeFully(channel, block);
+					block.clear();
+				}
+			}
+			header.putLong(crc.getValue());
+			header.flip();
+			channel.position(0);
+			writeFully(channel, header);
+			channel.force(false);
+		}
+	}
+
+	private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()){
+			channel.write(buffer);
+		}
+	}
+
+	/**
+	 * Opens the snapshot file if it can be used for the given input file.
+	 *
+	 * @param snapshot the snapshot file
+	 * @param source the input file the snapshot should have been written for
+	 * @return the snapshot, or null if the snapshot file does not exist, was written by another
+	 * version, was written for a different length or modification time of the input file
+	 * or its checksum does not match
+	 * @throws IOException when the snapshot file exists but cannot be read
+	 */
+	public static CollisionSnapshot open(File snapshot, File source) throws IOException {
+		if (!snapshot.isFile() || snapshot.length() < HEADER_SIZE){
+			return null;
+		}
+		ByteBuffer buffer = MappedCollisionReader.map(snapshot);
+		if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION || buffer.getInt(12) != RECORD_SIZE){
+			return null;
+		}
+		int size = buffer.getInt(8);
+		if (size < 0 || buffer.limit() != HEADER_SIZE + (long) size * RECORD_SIZE){
+			return null;
+		}
+		if (buffer.getLong(16) != source.length() || buffer.getLong(24) != source.lastModified()){
+			return null;
+		}
+		if (buffer.getLong(CHECKSUM_POSITION) != checksum(buffer)){
+			return null;
+		}
+		return new CollisionSnapshot(buffer, size);
+	}
+
+	/*
+	 * Returns the CRC32 checksum of the file: the header before the checksum field and all the records.
+	 */
+	private static long checksum(ByteBuffer buffer){
+		CRC32 crc = new CRC32();
+		ByteBuffer data = buffer.duplicate();
+		data.position(0).limit(CHECKSUM_POSITION);
+		crc.update(data);
+		data.limit(buffer.limit()).position(HEADER_SIZE);
+		crc.update(data);
+		return crc.getValue();
+	}
+
+	/**
+	 * Determines the number of collisions in this snapshot.
+	 *
+	 * @return number of collisions in this snapshot
+	 */
+	public int size(){
+		return size;
+	}
+
+	/**
+	 * Creates a CollisionsData object with all the collisions of this snapshot.
+	 * The records are already sorted, so the tree is built directly from them.
+	 *
+	 * @return a new CollisionsData object
+	 */
+	public CollisionsData toCollisionsData(){
+		Collision[] collisions = new Collision[size];
+		int[] counts = new int[8];
+		for (int i = 0; i < size; i++){
+			int record = HEADER_SIZE + i * RECORD_SIZE;
+			for (int j = 0; j < counts.length; j++){
+				counts[j] = buffer.getInt(record + COUNTS_OFFSET + 4 * j);
+			}
+			collisions[i] = new Collision(Date.fromDayNumber(buffer.getInt(record + DAY_OFFSET)),
+					buffer.getInt(record + ZIP_OFFSET), buffer.getLong(record + KEY_OFFSET), counts);
+		}
+		return CollisionsData.fromSorted(collisions);
+	}
+
+	/**
+	 * Adds the collisions of the given zip code within the given date range (inclusive)
+	 * to the summary, reading the records of the mapped file directly.
+	 * The totals are the same as the ones of CollisionsData.summarize.
+	 *
+	 * @param zip
+	 * @param dateBegin
+	 * @param dateEnd
+	 * @param summary the totals that the matching collisions are added to
+	 */
+	public void summarize(String zip, Date dateBegin, Date dateEnd, CollisionSummary summary){
+		int zipCode = Integer.parseInt(zip);
+		int from = firstAfter(zipCode, dateBegin.getDayNumber() - 1);
+		int to = firstAfter(zipCode, dateEnd.getDayNumber());
+
+		int totFatalities = 0;
+		int totPedFatalities = 0;
+		int totCycFatalities = 0;
+		int totMotFatalities = 0;
+		int totInjuries = 0;
+		int totPedInjuries = 0;
+		int totCycInjuries = 0;
+		int totMotInjuries = 0;
+		//the counts of a record are in the order of the columns of the input file
+		for (int i = from; i < to; i++){
+			int record = HEADER_SIZE + i * RECORD_SIZE + COUNTS_OFFSET;
+			totInjuries += buffer.getInt(record);
+			totFatalities += buffer.getInt(record + 4);
+			totPedInjuries += buffer.getInt(record + 8);
+			totPedFatalities += buffer.getInt(record + 12);
+			totCycInjuries += buffer.getInt(record + 16);
+			totCycFatalities += buffer.getInt(record + 20);
+			totMotInjuries += buffer.getInt(record + 24);
+			totMotFatalities += buffer.getInt(record + 28);
+		}
+		summary.add(Math.max(0, to - from), totFatalities, totPedFatalities, totCycFatalities,
+				totMotFatalities, totInjuries, totPedInjuries, totCycInjuries, totMotInjuries);
+	}
+
+	/*
+	 * Binary search for the first record whose zip code is greater than zip, or whose
+	 * zip code is equal to zip and whose day number is greater than day.
+	 *
+	 * @return the position of that record, or size() if there is none
+	 */
+	private int firstAfter(int zip, int day){
+		int low = 0;
+		int high = size;
+		while (low < high){
+			int middle = (low + high) >>> 1;
+			int record = HEADER_SIZE + middle * RECORD_SIZE;
+			int recordZip = buffer.getInt(record + ZIP_OFFSET);
+			if (recordZip < zip || (recordZip == zip && buffer.getInt(record + DAY_OFFSET) <= day)){
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+}
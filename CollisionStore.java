@@ -0,0 +1,274 @@
+package project5;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * This class is a read only, columnar copy of a CollisionsData object.
+ * Instead of one Collision object and one Node object per record, every field is kept
+ * in its own array of primitives, and the records are sorted by zip code, date and unique key
+ * (the order of the AVL tree). The records of one zip code within a date range are
+ * then next to each other, so a report is two binary searches for the first and the last
+ * record of the range and a loop over the arrays between them.
+ *
+ * The store does not change when the CollisionsData object it was created from changes.
+ *
+ * The store also keeps where the records of every zip code start, so that all the zip codes
+ * can be ranked by one of their totals within a date range in one pass (see topZips).
+ *
+ * @author Gayeon_Park
+ *
+ */
+public class CollisionStore implements CollisionReporter {
+
+	//The fields of the records, one array per field, all sorted by zip code, date and unique key
+	private final int[] zips;
+	private final int[] days;
+	private final long[] keys;
+	private final int[] personsInjured;
+	private final int[] personsKilled;
+	private final int[] pedestriansInjured;
+	private final int[] pedestriansKilled;
+	private final int[] cyclistsInjured;
+	private final int[] cyclistsKilled;
+	private final int[] motoristsInjured;
+	private final int[] motoristsKilled;
+	//Position of the first record of every zip code, followed by size()
+	private final int[] zipStarts;
+
+	/**
+	 * Creates a store with all the collisions of the given CollisionsData object.
+	 *
+	 * @param data the collisions to copy
+	 */
+	public CollisionStore(CollisionsData data){
+		Collision[] collisions = data.toArray();
+		int size = collisions.length;
+		zips = new int[size];
+		days = new int[size];
+		keys = new long[size];
+		personsInjured = new int[size];
+		personsKilled = new int[size];
+		pedestriansInjured = new int[size];
+		pedestriansKilled = new int[size];
+		cyclistsInjured = new int[size];
+		cyclistsKilled = new int[size];
+		motoristsInjured = new int[size];
+		motoristsKilled = new int[size];
+
+		for (int i = 0; i < size; i++){
+			Collision c = collisions[i];
+			zips[i] = c.getZipCode();
+			days[i] = c.getDate().getDayNumber();
+			keys[i] = c.getKeyNumber();
+			personsInjured[i] = c.getPersonsInjured();
+			personsKilled[i] = c.getPersonsKilled();
+			pedestriansInjured[i] = c.getPedestriansInjured();
+			pedestriansKilled[i] = c.getPedestriansKilled();
+			cyclistsInjured[i] = c.getCyclistsInjured();
+			cyclistsKilled[i] = c.getCyclistsKilled();
+			motoristsInjured[i] = c.getMotoristsInjured();
+			motoristsKilled[i] = c.getMotoristsKilled();
+		}
+
+		int zipCount = 0;
+		for (int i = 0; i < size; i++){
+			if (i == 0 || zips[i] != zips[i - 1]){
+				zipCount++;
+			}
+		}
+		zipStarts = new int[zipCount + 1];
+		zipCount = 0;
+		for (int i = 0; i < size; i++){
+			if (i == 0 || zips[i] != zips[i - 1]){
+				zipStarts[zipCount++] = i;
+			}
+		}
+		zipStarts[zipCount] = size;
+	}
+
+	/**
+	 * Determines the number of records stored in this store.
+	 *
+	 * @return number of records in this store
+	 */
+	public int size(){
+		return zips.length;
+	}
+
+	/**
+	 * Adds the collisions of the given zip code within the given date range (inclusive)
+	 * to the summary. The totals are the same as the ones of CollisionsData.summarize.
+	 *
+	 * @param zip
+	 * @param dateBegin
+	 * @param dateEnd
+	 * @param summary the totals that the matching collisions are added to
+	 */
+	public void summarize(String zip, Date dateBegin, Date dateEnd, CollisionSummary summary){
+		int zipCode = Integer.parseInt(zip);
+		int from = firstAfter(zipCode, dateBegin.getDayNumber() - 1);
+		int to = firstAfter(zipCode, dateEnd.getDayNumber());
+		addRange(from, to, summary);
+	}
+
+	/**
+	 * Ranks the zip codes by the given metric of their collisions within the given date range
+	 * (inclusive) and returns the k zip codes with the largest values, with their summaries.
+	 * Zip codes with the same value are ranked by zip code, and zip codes without collisions
+	 * in the date range are not ranked.
+	 *
+	 * The zip codes are split into blocks that are summarized in parallel on the common
+	 * ForkJoinPool. Every block keeps only its best k zip codes in a bounded heap, and the heaps
+	 * are merged when the blocks are joined, so the data is read once, instead of once per zip
+	 * code with one summarize call each.
+	 *
+	 * @param dateBegin
+	 * @param dateEnd
+	 * @param metric the total the zip codes are ranked by
+	 * @param k the largest number of zip codes returned
+	 * @return the best zip codes and their summaries, in the order of the ranking
+	 */
+	public Map<String, CollisionSummary> topZips(Date dateBegin, Date dateEnd, CollisionMetric metric, int k){
+		if (k < 1){
+			throw new IllegalArgumentException("Error: the number of zip codes has to be positive.");
+		}
+		int blocks = zipStarts.length - 1;
+		//a few blocks per thread, so that the threads stay busy when the zip codes differ in size
+		int blockSize = Math.max(1, blocks / (ForkJoinPool.getCommonPoolParallelism() * 4));
+		PriorityQueue<Map.Entry<String, CollisionSummary>> heap = ForkJoinPool.commonPool().invoke(
+				new TopZipsTask(dateBegin.getDayNumber(), dateEnd.getDayNumber(), metric, k, blockSize, 0, blocks));
+
+		List<Map.Entry<String, CollisionSummary>> ranking = new ArrayList<Map.Entry<String, CollisionSummary>>(heap);
+		ranking.sort(metric.ranking());
+		Map<String, CollisionSummary> top = new LinkedHashMap<String, CollisionSummary>();
+		for (Map.Entry<String, CollisionSummary> entry : ranking){
+			top.put(entry.getKey(), entry.getValue());
+		}
+		return top;
+	}
+
+	/*
+	 * Adds the records [from, to) to the summary, nothing if to is not greater than from.
+	 */
+	private void addRange(int from, int to, CollisionSummary summary){
+		int totFatalities = 0;
+		int totPedFatalities = 0;
+		int totCycFatalities = 0;
+		int totMotFatalities = 0;
+		int totInjuries = 0;
+		int totPedInjuries = 0;
+		int totCycInjuries = 0;
+		int totMotInjuries = 0;
+		for (int i = from; i < to; i++){
+			totFatalities += personsKilled[i];
+			totPedFatalities += pedestriansKilled[i];
+			totCycFatalities += cyclistsKilled[i];
+			totMotFatalities += motoristsKilled[i];
+			totInjuries += personsInjured[i];
+			totPedInjuries += pedestriansInjured[i];
+			totCycInjuries += cyclistsInjured[i];
+			totMotInjuries += motoristsInjured[i];
+		}
+		summary.add(Math.max(0, to - from), totFatalities, totPedFatalities, totCycFatalities,
+				totMotFatalities, totInjuries, totPedInjuries, totCycInjuries, totMotInjuries);
+	}
+
+
+	/*
+	 * Summarizes the zip codes of the blocks [from, to) by splitting the range in halves until
+	 * at most blockSize zip codes are left, and keeps the best k of them in a heap whose head
+	 * is the worst zip code kept.
+	 */
+	private class TopZipsTask extends RecursiveTask<PriorityQueue<Map.Entry<String, CollisionSummary>>> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int beginDay;
+		private final int endDay;
+		private final CollisionMetric metric;
+		private final int k;
+		private final int blockSize;
+		private final int from;
+		private final int to;
+
+		TopZipsTask(int beginDay, int endDay, CollisionMetric metric, int k, int blockSize, int from, int to){
+			this.beginDay = beginDay;
+			this.endDay = endDay;
+			this.metric = metric;
+			this.k = k;
+			this.blockSize = blockSize;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected PriorityQueue<Map.Entry<String, CollisionSummary>> compute(){
+			if (to - from > blockSize){
+				int middle = (from + to) >>> 1;
+				TopZipsTask right = new TopZipsTask(beginDay, endDay, metric, k, blockSize, middle, to);
+				right.fork();
+				PriorityQueue<Map.Entry<String, CollisionSummary>> heap =
+						new TopZipsTask(beginDay, endDay, metric, k, blockSize, from, middle).compute();
+				for (Map.Entry<String, CollisionSummary> entry : right.join()){
+					offer(heap, entry);
+				}
+				return heap;
+			}
+			PriorityQueue<Map.Entry<String, CollisionSummary>> heap =
+					new PriorityQueue<Map.Entry<String, CollisionSummary>>(k + 1, metric.ranking().reversed());
+			for (int block = from; block < to; block++){
+				int zip = zips[zipStarts[block]];
+				int first = firstAfter(zip, beginDay - 1);
+				int last = firstAfter(zip, endDay);
+				if (last > first){
+					CollisionSummary summary = new CollisionSummary();
+					addRange(first, last, summary);
+					offer(heap, new AbstractMap.SimpleImmutableEntry<String, CollisionSummary>(
+							Collision.zipString(zip), summary));
+				}
+			}
+			return heap;
+		}
+
+		/*
+		 * Adds the entry to the heap if the heap has fewer than k entries or the entry
+		 * is ranked before the worst entry of the heap, which is then removed.
+		 */
+		private void offer(PriorityQueue<Map.Entry<String, CollisionSummary>> heap,
+				Map.Entry<String, CollisionSummary> entry){
+			if (heap.size() < k){
+				heap.add(entry);
+			} else if (heap.comparator().compare(entry, heap.peek()) > 0){
+				heap.poll();
+				heap.add(entry);
+			}
+		}
+	}
+
+	/*
+	 * Binary search for the first record whose zip code is greater than zip, or whose
+	 * zip code is equal to zip and whose day number is greater than day.
+	 *
+	 * @return the position of that record, or size() if there is none
+	 */
+	int firstAfter(int zip, int day){
+		int low = 0;
+		int high = zips.length;
+		while (low < high){
+			int middle = (low + high) >>> 1;
+			if (zips[middle] < zip || (zips[middle] == zip && days[middle] <= day)){
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+}
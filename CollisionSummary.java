@@ -0,0 +1,176 @@
+package project5;
+
+/**
+ * This class holds the totals of a report: the number of collisions and the number of
+ * fatalities and injuries with the breakdown for pedestrians, cyclists and motorists.
+ * A summary is an accumulator: the queries add to it and it can be cleared and reused for
+ * the next query, so that answering a query does not allocate anything.
+ * toString() renders the totals as the text returned by getReport.
+ *
+ * @author Gayeon_Park
+ *
+ */
+public class CollisionSummary {
+
+	private int numCollisions;
+	private int totFatalities;
+	private int totPedFatalities;
+	private int totCycFatalities;
+	private int totMotFatalities;
+	private int totInjuries;
+	private int totPedInjuries;
+	private int totCycInjuries;
+	private int totMotInjuries;
+
+	/**
+	 * Sets all the totals back to zero.
+	 */
+	public void clear(){
+		numCollisions = 0;
+		totFatalities = 0;
+		totPedFatalities = 0;
+		totCycFatalities = 0;
+		totMotFatalities = 0;
+		totInjuries = 0;
+		totPedInjuries = 0;
+		totCycInjuries = 0;
+		totMotInjuries = 0;
+	}
+
+	/**
+	 * Adds a single collision to the totals.
+	 *
+	 * @param c the collision to add
+	 */
+	public void add(Collision c){
+		numCollisions++;
+		totFatalities += c.getPersonsKilled();
+		totPedFatalities += c.getPedestriansKilled();
+		totCycFatalities += c.getCyclistsKilled();
+		totMotFatalities += c.getMotoristsKilled();
+		totInjuries += c.getPersonsInjured();
+		totPedInjuries += c.getPedestriansInjured();
+		totCycInjuries += c.getCyclistsInjured();
+		totMotInjuries += c.getMotoristsInjured();
+	}
+
+	/**
+	 * Adds the totals of another summary to the totals of this one.
+	 *
+	 * @param other the summary to add
+	 */
+	public void add(CollisionSummary other){
+		add(other.numCollisions, other.totFatalities, other.totPedFatalities, other.totCycFatalities,
+				other.totMotFatalities, other.totInjuries, other.totPedInjuries, other.totCycInjuries,
+				other.totMotInjuries);
+	}
+
+	/*
+	 * Adds the given totals to the totals of this summary.
+	 */
+	void add(int numCollisions, int totFatalities, int totPedFatalities, int totCycFatalities, int totMotFatalities,
+			int totInjuries, int totPedInjuries, int totCycInjuries, int totMotInjuries){
+		this.numCollisions += numCollisions;
+		this.totFatalities += totFatalities;
+		this.totPedFatalities += totPedFatalities;
+		this.totCycFatalities += totCycFatalities;
+		this.totMotFatalities += totMotFatalities;
+		this.totInjuries += totInjuries;
+		this.totPedInjuries += totPedInjuries;
+		this.totCycInjuries += totCycInjuries;
+		this.totMotInjuries += totMotInjuries;
+	}
+
+	/**
+	 * Returns the total number of collisions.
+	 * @return
+	 */
+	public int getCollisions(){
+		return numCollisions;
+	}
+
+	/**
+	 * Returns the total number of persons killed.
+	 * @return
+	 */
+	public int getPersonsKilled(){
+		return totFatalities;
+	}
+
+	/**
+	 * Returns the total number of pedestrians killed.
+	 * @return
+	 */
+	public int getPedestriansKilled(){
+		return totPedFatalities;
+	}
+
+	/**
+	 * Returns the total number of cyclists killed.
+	 * @return
+	 */
+	public int getCyclistsKilled(){
+		return totCycFatalities;
+	}
+
+	/**
+	 * Returns the total number of motorists killed.
+	 * @return
+	 */
+	public int getMotoristsKilled(){
+		return totMotFatalities;
+	}
+
+	/**
+	 * Returns the total number of persons injured.
+	 * @return
+	 */
+	public int getPersonsInjured(){
+		return totInjuries;
+	}
+
+	/**
+	 * Returns the total number of pedestrians injured.
+	 * @return
+	 */
+	public int getPedestriansInjured(){
+		return totPedInjuries;
+	}
+
+	/**
+	 * Returns the total number of cyclists injured.
+	 * @return
+	 */
+	public int getCyclistsInjured(){
+		return totCycInjuries;
+	}
+
+	/**
+	 * Returns the total number of motorists injured.
+	 * @return
+	 */
+	public int getMotoristsInjured(){
+		return totMotInjuries;
+	}
+
+	/**
+	 * Returns the report text for these totals, the same text that getReport returns.
+	 * @see java.lang.Object#toString()
+	 * @return a string that represents the summary of the collisions
+	 */
+	@Override
+	public String toString(){
+		String s1 = String.format("Total number of collisions: %d", numCollisions);
+		String s2 = String.format("Number of fatalities: %d", totFatalities);
+		String s3 = String.format("%20s:%2d", "pedestrians", totPedFatalities);
+		String s4 = String.format("%20s:%2d", "cyclists", totCycFatalities);
+		String s5 = String.format("%20s:%2d", "motorists", totMotFatalities);
+		String s6 = String.format("Number of injuries: %d", totInjuries);
+		String s7 = String.format("%18s:%2d", "pedestrians", totPedInjuries);
+		String s8 = String.format("%18s:%2d", "cyclists", totCycInjuries);
+		String s9 = String.format("%18s:%2d", "motorists", totMotInjuries);
+
+		return s1 + '\n' + s2 + '\n' + s3 + '\n' + s4 + '\n' + s5 + '\n'
+				+ s6 + '\n' + s7 + '\n' + s8 + '\n' + s9;
+	}
+}
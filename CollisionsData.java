@@ -1,16 +1,30 @@
 package project5;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.function.Consumer;
 
 /**
  * This class represents an AVL tree that stores all of the collision records 
  * It uses the BST tree implementation provided to us 
  * and is specialized to work with Collision class. 
  * 
+ * The tree is ordered by zip code first. For the queries over all the zip codes of a date range 
+ * an optional secondary index ordered by date can be created (see createDateIndex), which is 
+ * then kept up to date by add, addAll and remove and used by the queries when it is cheaper.
+ * The same is done with a hash index by unique key, which is created the first time a collision 
+ * is looked up or removed by its key (see getByKey). An optional cache of the reports 
+ * (see createReportCache) is invalidated by add, addAll and remove in the same way.
+ * 
  * @author Gayeon_Park
  *
  */
-public class CollisionsData {
+public class CollisionsData implements CollisionReporter {
 	
 	//Root of the tree
 	protected Node<Collision> root;
@@ -18,6 +32,17 @@ public class CollisionsData {
 	protected int numOfElements;
 	//Helper variable used by the remove methods 
 	private boolean found;
+	//Secondary index ordered by date, null unless createDateIndex was called
+	private CollisionDateIndex dateIndex;
+	//Hash index by unique key, null until a collision is first looked up or removed by key
+	private CollisionKeyIndex keyIndex;
+	//Cache of the reports, null unless createReportCache was called
+	private CollisionReportCache reportCache;
+	//Number of rotations of every type done by add and remove, for the instrumentation (see getRotations)
+	private long rotationsLL;
+	private long rotationsRR;
+	private long rotationsLR;
+	private long rotationsRL;
 
 	/**
 	 * Default constructor that creates an empty tree.
@@ -36,7 +61,16 @@ public class CollisionsData {
 	public void add(Collision item) {
 		if (item == null)
 			return;
+		int before = numOfElements;
 		root = recAdd(root, item);
+		if (numOfElements > before){
+			if (dateIndex != null)
+				dateIndex.add(item);
+			if (keyIndex != null)
+				keyIndex.put(item);
+			if (reportCache != null)
+				reportCache.invalidate(item.getZipCode(), item.getDate().getDayNumber());
+		}
 	}
 
 	/* 
@@ -51,7 +85,9 @@ public class CollisionsData {
 	private Node<Collision> recAdd(Node<Collision> node, Collision item){
 		if (node == null){ 
 			numOfElements++;
-			return new Node<Collision>(item);
+			Node<Collision> leaf = new Node<Collision>(item);
+			updateHeight(leaf);
+			return leaf;
 		}
 		else if (node.data.compareTo(item) > 0){
 			node.left = recAdd(node.left, item);
@@ -60,8 +96,10 @@ public class CollisionsData {
 			if (balanceFactor(node) == -2){
 				if (balanceFactor(node.left) > 0){
 					node = balanceLR(node);
+					rotationsLR++;
 				} else if (balanceFactor(node.left) <= 0){
 					node = balanceLL(node);
+					rotationsLL++;
 				}
 			}
 		}	
@@ -72,14 +110,141 @@ public class CollisionsData {
 			if (balanceFactor(node) == 2){
 				if (balanceFactor(node.right) < 0){
 					node = balanceRL(node);
+					rotationsRL++;
 				} else if (balanceFactor(node.right) >= 0){
 					node = balanceRR(node);
+					rotationsRR++;
 				}
 			}
 		}
 		return node; 
 	}
 
+	/**
+	 * This method adds all the given Collision objects to the AVL tree at once.
+	 * The items are sorted (in parallel) and the tree is rebuilt from the sorted items
+	 * together with the items already in the tree, which takes linear time after the sort
+	 * instead of one descent and rebalancing per item. 
+	 * As with add, null items are ignored and an item equal to one that is already in the tree 
+	 * (or to an earlier item of the collection) does not change the tree. 
+	 * 
+	 * @param items the new elements to be added to the tree
+	 */
+	public void addAll(Collection<Collision> items) {
+		if (items == null || items.isEmpty())
+			return;
+		Collision[] batch = new Collision[items.size()];
+		int batchSize = 0;
+		for (Collision item : items){
+			if (item != null)
+				batch[batchSize++] = item;
+		}
+		//The parallel sort is stable, so the first of several equal items stays first
+		Arrays.parallelSort(batch, 0, batchSize);
+		
+		Collision[] current = toArray();
+		
+		//Merge the items of the tree with the batch, keeping only the first of equal items
+		Collision[] merged = new Collision[current.length + batchSize];
+		int count = 0;
+		int i = 0;
+		int j = 0;
+		while (i < current.length || j < batchSize){
+			Collision next;
+			if (j == batchSize || (i < current.length && current[i].compareTo(batch[j]) <= 0))
+				next = current[i++];
+			else
+				next = batch[j++];
+			if (count == 0 || merged[count - 1].compareTo(next) != 0)
+				merged[count++] = next;
+		}
+		root = buildBalanced(merged, 0, count - 1);
+		numOfElements = count;
+		if (dateIndex != null)
+			dateIndex = new CollisionDateIndex(merged, count);
+		if (keyIndex != null)
+			keyIndex = new CollisionKeyIndex(merged, count);
+		invalidateReports(batch, batchSize);
+	}
+	
+	/*
+	 * Removes the cached reports that the added or removed items change. When there are more 
+	 * items than the cache has reports, the whole cache is cleared instead: every invalidate 
+	 * goes through the cached reports of the zip code of the item, so clearing is cheaper 
+	 * and most of the reports would be removed anyway.
+	 */
+	private void invalidateReports(Collision[] items, int count){
+		if (reportCache == null)
+			return;
+		if (count > reportCache.getCapacity()){
+			reportCache.invalidateAll();
+			return;
+		}
+		for (int i = 0; i < count; i++){
+			reportCache.invalidate(items[i].getZipCode(), items[i].getDate().getDayNumber());
+		}
+	}
+	
+	/*
+	 * Creates a tree from items that are already sorted and have no duplicates,
+	 * without comparing them again.
+	 * 
+	 * @param items sorted items without duplicates
+	 * @return a new balanced tree with the items
+	 */
+	static CollisionsData fromSorted(Collision[] items){
+		CollisionsData data = new CollisionsData();
+		data.root = data.buildBalanced(items, 0, items.length - 1);
+		data.numOfElements = items.length;
+		return data;
+	}
+	
+	/*
+	 * Returns all the Collision objects of the tree in sorted order.
+	 * 
+	 * @return a new array with the data of the tree in inorder
+	 */
+	Collision[] toArray(){
+		Collision[] items = new Collision[numOfElements];
+		inOrderFill(root, items, 0);
+		return items;
+	}
+	
+	/*
+	 * Copies the data of the subtree into the array using an inorder traversal.
+	 * 
+	 * @param node the root of the current subtree
+	 * @param items the array to fill
+	 * @param index the position of the first item of this subtree in the array
+	 * @return the position after the last item of this subtree
+	 */
+	private int inOrderFill(Node<Collision> node, Collision[] items, int index){
+		if (node == null)
+			return index;
+		index = inOrderFill(node.left, items, index);
+		items[index++] = node.data;
+		return inOrderFill(node.right, items, index);
+	}
+	
+	/*
+	 * Builds a perfectly balanced tree from the sorted items [from, to]. 
+	 * The middle item becomes the root, so the heights of the two subtrees 
+	 * of every node differ by at most one.
+	 * 
+	 * @param items sorted items without duplicates
+	 * @return the root of the new subtree
+	 */
+	private Node<Collision> buildBalanced(Collision[] items, int from, int to){
+		if (from > to)
+			return null;
+		int middle = (from + to) >>> 1;
+		Node<Collision> node = new Node<Collision>(items[middle]);
+		node.left = buildBalanced(items, from, middle - 1);
+		node.right = buildBalanced(items, middle + 1, to);
+		updateHeight(node);
+		return node;
+	}
+
 	/**
 	 * Returns true if the target was removed from the AVL tree and the AVL tree is changed  
 	 * or returns false if the target is null or was not found in the AVL tree, hence not removed,
@@ -90,8 +255,172 @@ public class CollisionsData {
 	 */
 	public boolean remove(Collision target){
 		root = recRemove(target, root);
+		if (found && dateIndex != null)
+			dateIndex.remove(target);
+		if (found && keyIndex != null)
+			keyIndex.remove(target);
+		if (found && reportCache != null)
+			reportCache.invalidate(target.getZipCode(), target.getDate().getDayNumber());
 		return found;
 	}
+	
+	/**
+	 * Creates a cache of the reports of getReport that keeps at most the given number of reports, 
+	 * replacing the cache that existed before. From then on a report that is asked again is 
+	 * returned from the cache until add, addAll or remove changes a collision of its zip code 
+	 * within its date range. See CollisionReportCache.
+	 * 
+	 * @param capacity the largest number of reports in the cache
+	 * @return the new cache, which has the statistics of its hits and misses
+	 * @throws IllegalArgumentException when the capacity is not positive
+	 */
+	public CollisionReportCache createReportCache(int capacity) throws IllegalArgumentException {
+		reportCache = new CollisionReportCache(capacity);
+		return reportCache;
+	}
+	
+	/**
+	 * Removes the cache of the reports, if it exists.
+	 */
+	public void dropReportCache(){
+		reportCache = null;
+	}
+	
+	/**
+	 * Returns the cache of the reports.
+	 * @return the cache of the reports, or null if createReportCache was not called
+	 */
+	public CollisionReportCache getReportCache(){
+		return reportCache;
+	}
+	
+	/**
+	 * Returns the collision with the given unique key, or null if there is none. 
+	 * The tree keeps collisions with the same unique key and a different zip code or date as 
+	 * different collisions; for such a key one of them is returned, and once it is removed 
+	 * another one, so none of them becomes unreachable (see removeByKey). 
+	 * The first call creates a hash index of all the collisions by their unique key 
+	 * (which takes O(n) time and about 24 bytes per collision), and from then on add, addAll 
+	 * and remove keep it up to date, so the lookups take O(1) expected time.
+	 * 
+	 * @param key the unique key of the collision
+	 * @return the collision with the key, or null if the tree has none
+	 */
+	public Collision getByKey(long key){
+		return keyIndex().get(key);
+	}
+	
+	/**
+	 * Removes the collision with the given unique key, without knowing its zip code and date. 
+	 * The collision is found with the hash index by unique key (see getByKey) and then 
+	 * removed from the tree in O(log n) time. When several collisions have the key, only the 
+	 * one that getByKey returns is removed, and the next call removes the next one.
+	 * 
+	 * @param key the unique key of the collision
+	 * @return true if a collision was removed, false if the tree has no collision with the key
+	 */
+	public boolean removeByKey(long key){
+		Collision target = keyIndex().get(key);
+		return target != null && remove(target);
+	}
+	
+	/**
+	 * Removes the collisions with the given unique keys, for example a batch of corrections. 
+	 * All the collisions with one of the keys are removed, and keys that are not in the tree are ignored. 
+	 * 
+	 * The collisions are found with the hash index by unique key (see getByKey) and sorted 
+	 * in the order of the tree, so that consecutive removals go down nearly the same path. 
+	 * When the batch is so large that the removals would visit more nodes than the tree has, 
+	 * the remaining collisions are rebuilt into a balanced tree instead, in O(n) time.
+	 * 
+	 * @param keys the unique keys of the collisions to remove
+	 * @return the number of collisions removed
+	 */
+	public int removeAllByKeys(long[] keys){
+		CollisionKeyIndex index = keyIndex();
+		ArrayList<Collision> found = new ArrayList<Collision>(keys.length);
+		for (long key : keys){
+			index.getAll(key, found);
+		}
+		Collision[] targets = found.toArray(new Collision[found.size()]);
+		int count = targets.length;
+		Arrays.sort(targets, 0, count);
+		//The same key may be given more than once
+		int unique = 0;
+		for (int i = 0; i < count; i++){
+			if (unique == 0 || targets[unique - 1] != targets[i])
+				targets[unique++] = targets[i];
+		}
+		if (unique == 0)
+			return 0;
+		
+		if ((long) unique * (root.height + 1) < numOfElements){
+			for (int i = 0; i < unique; i++){
+				remove(targets[i]);
+			}
+			return unique;
+		}
+		
+		//Merge the items of the tree with the targets, keeping the items that are not targets
+		Collision[] current = toArray();
+		Collision[] kept = new Collision[current.length - unique];
+		int size = 0;
+		int j = 0;
+		for (Collision item : current){
+			if (j < unique && targets[j] == item)
+				j++;
+			else
+				kept[size++] = item;
+		}
+		root = buildBalanced(kept, 0, size - 1);
+		numOfElements = size;
+		for (int i = 0; i < unique; i++){
+			index.remove(targets[i]);
+		}
+		invalidateReports(targets, unique);
+		if (dateIndex != null)
+			dateIndex = new CollisionDateIndex(kept, size);
+		return unique;
+	}
+	
+	/*
+	 * Returns the hash index by unique key, creating it from the tree the first time.
+	 */
+	private CollisionKeyIndex keyIndex(){
+		if (keyIndex == null){
+			Collision[] items = toArray();
+			keyIndex = new CollisionKeyIndex(items, items.length);
+		}
+		return keyIndex;
+	}
+	
+	/**
+	 * Creates the secondary index ordered by date, zip code and unique key, if it does not exist yet. 
+	 * The index shares the Collision objects with the tree and adds one node per collision. 
+	 * From then on add, addAll and remove keep it up to date, and summarizeCity, summarizeZips 
+	 * and forEachInDates use it when it is cheaper than the tree.
+	 */
+	public void createDateIndex(){
+		if (dateIndex == null){
+			Collision[] items = toArray();
+			dateIndex = new CollisionDateIndex(items, items.length);
+		}
+	}
+	
+	/**
+	 * Removes the secondary index ordered by date, if it exists.
+	 */
+	public void dropDateIndex(){
+		dateIndex = null;
+	}
+	
+	/**
+	 * Returns true if the secondary index ordered by date exists.
+	 * @return true if createDateIndex was called and dropDateIndex was not called after it
+	 */
+	public boolean hasDateIndex(){
+		return dateIndex != null;
+	}
 
 	/*
 	 * This is a recursive implementation of remove method: find the node to remove.  
@@ -109,8 +438,10 @@ public class CollisionsData {
 			if (balanceFactor(node) == 2){
 				if (balanceFactor(node.right) < 0){
 					node = balanceRL(node);
+					rotationsRL++;
 				} else if (balanceFactor(node.right) >= 0){
 					node = balanceRR(node);
+					rotationsRR++;
 				}
 			}
 		} else if (target.compareTo(node.data) > 0){
@@ -120,26 +451,31 @@ public class CollisionsData {
 				if (balanceFactor(node) == -2){
 					if (balanceFactor(node.left) > 0){
 						node = balanceLR(node);
+						rotationsLR++;
 					} else if (balanceFactor(node.left) <= 0){
 						node = balanceLL(node);
+						rotationsLL++;
 					}
 				}
 		} else {
-			numOfElements --;
 			node = removeNode(node);
 			updateHeight(node); 
 			if (balanceFactor(node) == 2){
 				if (balanceFactor(node.right) < 0){
 					node = balanceRL(node);
+					rotationsRL++;
 				} else if (balanceFactor(node.right) >= 0){
 					node = balanceRR(node);
+					rotationsRR++;
 				}
 			}
 			if (balanceFactor(node) == -2){
 				if (balanceFactor(node.left) > 0){
 					node = balanceLR(node);
+					rotationsLR++;
 				} else if (balanceFactor(node.left) <= 0){
 					node = balanceLL(node);
+					rotationsLL++;
 				}
 			}
 			found = true;
@@ -156,10 +492,16 @@ public class CollisionsData {
 	 */
 	private Node<Collision> removeNode(Node<Collision> node){
 		Collision data;
-		if (node.left == null)
+		//The number of elements only changes where a node is actually unlinked, 
+		//a node with two children is replaced by its predecessor which is removed recursively
+		if (node.left == null){
+			numOfElements --;
 			return node.right;
-		else if (node.right  == null)
+		}
+		else if (node.right  == null){
+			numOfElements --;
 			return node.left;
+		}
 		else {
 			data = getPredecessor(node.left);
 			node.data = data;
@@ -193,12 +535,35 @@ public class CollisionsData {
 		return numOfElements;
 	}
 	
+	/**
+	 * Returns the height of the AVL tree: the number of edges on the longest path 
+	 * from the root to a leaf.
+	 * 
+	 * @return the height of the tree, 0 for a single node and -1 for an empty tree
+	 */
+	public int height() {
+		return root == null ? -1 : root.height;
+	}
+	
+	/**
+	 * Returns the number of rotations done by add and remove to keep the tree balanced,
+	 * by type. Building the tree at once (see addAll) does not rotate.
+	 * 
+	 * @return the numbers of LL, RR, LR and RL rotations, in this order
+	 */
+	public long[] getRotations() {
+		return new long[] {rotationsLL, rotationsRR, rotationsLR, rotationsRL};
+	}
+	
 	/*
 	 * This method updates the height of the Node<Collision> n.
 	 * This code is taken from the lecture note.
+	 * It also updates the size of the subtree and its sums of the casualty counts 
+	 * from the node itself and its children, so every method that calls it after changing 
+	 * the children of a node (adding, removing and the rotations) keeps them correct.
 	 * @param current
 	 */
-	private void updateHeight(Node<Collision> current){
+	static void updateHeight(Node<Collision> current){
 		if (current == null){
 			return;
 		} if (current.left == null && current.right == null){
@@ -209,6 +574,37 @@ public class CollisionsData {
 			current.height = current.left.height + 1;
 		} else 
 			current.height = Math.max(current.right.height, current.left.height) + 1;
+		
+		Collision c = current.data;
+		current.size = 1;
+		current.personsInjured = c.getPersonsInjured();
+		current.personsKilled = c.getPersonsKilled();
+		current.pedestriansInjured = c.getPedestriansInjured();
+		current.pedestriansKilled = c.getPedestriansKilled();
+		current.cyclistsInjured = c.getCyclistsInjured();
+		current.cyclistsKilled = c.getCyclistsKilled();
+		current.motoristsInjured = c.getMotoristsInjured();
+		current.motoristsKilled = c.getMotoristsKilled();
+		addSubtree(current, current.left);
+		addSubtree(current, current.right);
+	}
+	
+	/*
+	 * Adds the size and the sums of the subtree to the ones of the node.
+	 */
+	private static void addSubtree(Node<Collision> node, Node<Collision> subtree){
+		if (subtree == null){
+			return;
+		}
+		node.size += subtree.size;
+		node.personsInjured += subtree.personsInjured;
+		node.personsKilled += subtree.personsKilled;
+		node.pedestriansInjured += subtree.pedestriansInjured;
+		node.pedestriansKilled += subtree.pedestriansKilled;
+		node.cyclistsInjured += subtree.cyclistsInjured;
+		node.cyclistsKilled += subtree.cyclistsKilled;
+		node.motoristsInjured += subtree.motoristsInjured;
+		node.motoristsKilled += subtree.motoristsKilled;
 	}
 	
 	/*
@@ -218,7 +614,7 @@ public class CollisionsData {
 	 * @param n
 	 * @return the integer value that represents the balanceFactor of the node.
 	 */
-	private int balanceFactor(Node<Collision> n){
+	static int balanceFactor(Node<Collision> n){
 		if (n == null){
 			return -1;
 		}
@@ -238,7 +634,7 @@ public class CollisionsData {
 	 * @param A
 	 * @return the new node that's now the root of the sorted subtree
 	 */
-	private Node<Collision> balanceLL(Node<Collision> A){
+	static Node<Collision> balanceLL(Node<Collision> A){
 		Node<Collision> B= A.left;
 		
 		A.left = B.right;
@@ -257,7 +653,7 @@ public class CollisionsData {
 	 * @param A
 	 * @return the new node that's now the root of the sorted subtree
 	 */
-	private Node<Collision> balanceRR(Node<Collision> A){
+	static Node<Collision> balanceRR(Node<Collision> A){
 		Node<Collision> B= A.right;
 		
 		A.right = B.left;
@@ -276,7 +672,7 @@ public class CollisionsData {
 	 * @param A
 	 * @return the new node that's now the root of the sorted subtree
 	 */
-	private Node<Collision> balanceLR(Node<Collision> A){
+	static Node<Collision> balanceLR(Node<Collision> A){
 		Node<Collision> B= A.left;
 		Node<Collision> C = B.right;
 		
@@ -299,7 +695,7 @@ public class CollisionsData {
 	 * @param A
 	 * @return the new node that's now the root of the sorted subtree
 	 */
-	private Node<Collision> balanceRL(Node<Collision> A){
+	static Node<Collision> balanceRL(Node<Collision> A){
 		Node<Collision> B= A.right;
 		Node<Collision> C = B.left;
 		
@@ -391,67 +787,388 @@ public class CollisionsData {
 		}
 	}
 	
-	//This will be used in the find() and getReport() method to store all the Collision objects that meet the criteria 
-	//given by the parameters of the getReport method (same zip, date in the correct date range)
-	private ArrayList<Collision> match = new ArrayList<Collision>();
-	
 	/*
-	 * This method recursively finds the Collision object with the same zip and date that 
-	 * falls in the date range given by the parameter
+	 * This method adds the Collision objects with the same zip and a date that falls in the 
+	 * date range given by the parameters to the summary, without visiting all of them. 
+	 * The zip code and the dates are given as the packed numbers of Collision.zipDay, 
+	 * so the descent only compares numbers.
 	 * 
-	 * @param zip
-	 * @param beginDate
-	 * @param endDate
+	 * The descent goes down to the first node within the range, where the paths to the two ends 
+	 * of the range split. Below it, the path to the beginning of the range adds every node within 
+	 * the range together with the whole right subtree of the node (whose size and sums are kept 
+	 * in the subtree root), and the path to the end of the range does the same with the left 
+	 * subtrees. Only the two paths are visited, so it takes O(log n) time however many 
+	 * collisions are in the range.
+	 * 
+	 * @param low the zip code and the begin date packed into one number
+	 * @param high the zip code and the end date packed into one number
 	 * @param n
+	 * @param summary the totals that all the Collision objects that meet the criteria are added to
+	 */
+	private void find(long low, long high, Node<Collision> n, CollisionSummary summary){
+		//Find the node where the paths to the two ends of the range split
+		while (n != null){
+			long zipDay = n.data.getZipDay();
+			if (zipDay < low){
+				n = n.right;
+			} else if (zipDay > high){
+				n = n.left;
+			} else {
+				break;
+			}
+		}
+		if (n == null){
+			return;
+		}
+		summary.add(n.data);
+		
+		//Path to the beginning of the range: all the nodes from here on are smaller than high
+		for (Node<Collision> m = n.left; m != null; ){
+			if (m.data.getZipDay() >= low){
+				summary.add(m.data);
+				addSubtree(summary, m.right);
+				m = m.left;
+			} else {
+				m = m.right;
+			}
+		}
+		//Path to the end of the range: all the nodes from here on are greater than low
+		for (Node<Collision> m = n.right; m != null; ){
+			if (m.data.getZipDay() <= high){
+				summary.add(m.data);
+				addSubtree(summary, m.left);
+				m = m.right;
+			} else {
+				m = m.left;
+			}
+		}
+	}
+	
+	/*
+	 * Adds the size and the sums of the subtree to the summary.
+	 */
+	static void addSubtree(CollisionSummary summary, Node<Collision> subtree){
+		if (subtree != null){
+			summary.add(subtree.size, subtree.personsKilled, subtree.pedestriansKilled, subtree.cyclistsKilled,
+					subtree.motoristsKilled, subtree.personsInjured, subtree.pedestriansInjured, 
+					subtree.cyclistsInjured, subtree.motoristsInjured);
+		}
+	}
+	
+	/**
+	 * Adds the collisions of all the zip codes between lowZip and highZip (inclusive) within the 
+	 * given date range (inclusive) to the summary, and returns the totals of every zip code of the 
+	 * range that has at least one such collision. 
+	 * All the zip codes are handled in one traversal of the tree, see findZips, or in one traversal 
+	 * of the collisions of the date range in the date index when that visits fewer nodes 
+	 * (see useDateIndex).
+	 * 
+	 * @param lowZip the smallest zip code of the range
+	 * @param highZip the largest zip code of the range
+	 * @param dateBegin
+	 * @param dateEnd
+	 * @param summary the totals that the matching collisions of all the zip codes are added to
+	 * @return the totals of every zip code, sorted by zip code
+	 */
+	public SortedMap<String, CollisionSummary> summarizeZips(String lowZip, String highZip, Date dateBegin, Date dateEnd,
+			CollisionSummary summary){
+		int low = Integer.parseInt(lowZip);
+		int high = Integer.parseInt(highZip);
+		ZipQuery query = new ZipQuery(low, high, dateBegin.getDayNumber(), dateEnd.getDayNumber());
+		if (low <= high && dateBegin.compareTo(dateEnd) <= 0){
+			if (useDateIndex(low, high, dateBegin.getDayNumber(), dateEnd.getDayNumber())){
+				dateIndex.forEach(query.beginDay, query.endDay, low, high, c -> query.totalsOf(c.getZipCode()).add(c));
+			} else {
+				findZips(root, Long.MIN_VALUE, Long.MAX_VALUE, query);
+			}
+		}
+		SortedMap<String, CollisionSummary> zips = query.zips;
+		for (CollisionSummary zip : zips.values()){
+			summary.add(zip);
+		}
+		return zips;
+	}
+	
+	/**
+	 * Same as summarizeZips for all the zip codes that start with the given digits, 
+	 * for example "112" for the zip codes 11200 to 11299.
+	 * 
+	 * @param prefix one to five digits
+	 * @param dateBegin
+	 * @param dateEnd
+	 * @param summary the totals that the matching collisions of all the zip codes are added to
+	 * @return the totals of every zip code, sorted by zip code
+	 * @throws IllegalArgumentException when the prefix is not one to five digits
 	 */
-	private void find(String zip, Date beginDate, Date endDate, Node<Collision> n){
+	public SortedMap<String, CollisionSummary> summarizeZipPrefix(String prefix, Date dateBegin, Date dateEnd, 
+			CollisionSummary summary) throws IllegalArgumentException {
+		if (prefix.length() < 1 || prefix.length() > 5){
+			throw new IllegalArgumentException("Error: a zip code prefix has one to five digits.");
+		}
+		for (int i = 0; i < prefix.length(); i++){
+			if (prefix.charAt(i) < '0' || prefix.charAt(i) > '9'){
+				throw new IllegalArgumentException("Error: a zip code prefix has one to five digits.");
+			}
+		}
+		int scale = 1;
+		for (int i = prefix.length(); i < 5; i++){
+			scale *= 10;
+		}
+		int low = Integer.parseInt(prefix) * scale;
+		return summarizeZips(Integer.toString(low), Integer.toString(low + scale - 1), dateBegin, dateEnd, summary);
+	}
+	
+	/*
+	 * Adds the collisions of the subtree with a zip code within [lowZip, highZip] and a day number 
+	 * within [beginDay, endDay] to the totals of their zip codes.
+	 * 
+	 * lower and upper are bounds (inclusive) of the packed zip codes and days (see Collision.zipDay) 
+	 * of the subtree that come from its ancestors, Long.MIN_VALUE and Long.MAX_VALUE when there is 
+	 * no bound. A subtree is skipped when no zip code and day within its bounds can match, and a 
+	 * subtree whose bounds are within one zip code of the range and within the dates is added as 
+	 * a whole from the sums kept in its root, without going further down. So the traversal only 
+	 * follows the edges of the date range of each zip code, O(log n) nodes per zip code.
+	 * The nodes are visited in order, so the zip codes are added in increasing order.
+	 */
+	private void findZips(Node<Collision> n, long lower, long upper, ZipQuery query){
 		if (n == null){
 			return;
 		}
+		int lowZip = query.lowZip;
+		int highZip = query.highZip;
+		int beginDay = query.beginDay;
+		int endDay = query.endDay;
+		//zip codes and days of the bounds
+		long zipLower = lower == Long.MIN_VALUE ? Long.MIN_VALUE : lower >>> 32;
+		long zipUpper = upper == Long.MAX_VALUE ? Long.MAX_VALUE : upper >>> 32;
+		long dayLower = lower == Long.MIN_VALUE ? Long.MIN_VALUE : (int) lower;
+		long dayUpper = upper == Long.MAX_VALUE ? Long.MAX_VALUE : (int) upper;
 		
-		//If the zip of the current node is equal to the zip given and the date is within the range of the dates given, 
-		//add the data of the current node to the ArrayList<Collision> match
-		if (Integer.parseInt(zip) == Integer.parseInt(n.data.getZip()) 
-				&& (n.data.getDate()).compareTo(beginDate) >= 0 
-				&& (n.data.getDate()).compareTo(endDate) <= 0){
-			match.add(n.data);
+		//the zip codes of the range within the bounds, and the days that are possible for the first and the last one
+		long first = Math.max(zipLower, lowZip);
+		long last = Math.min(zipUpper, highZip);
+		if (first > last){
+			return;
+		}
+		long firstDay = first == zipLower ? dayLower : Long.MIN_VALUE;
+		long lastDay = last == zipUpper ? dayUpper : Long.MAX_VALUE;
+		if (first == last){
+			if (Math.max(firstDay, beginDay) > Math.min(lastDay, endDay)){
+				return;
+			}
+			if (zipLower == zipUpper && dayLower >= beginDay && dayUpper <= endDay){
+				addSubtree(query.totals((int) first), n);
+				return;
+			}
+		} else if (last - first == 1 && firstDay > endDay && lastDay < beginDay){
+			return;
 		}
 		
-		//If the zip of the current node is greater than the zip given, 
-		//go to the left node to keep finding the node with qualifying data
-		if (Integer.parseInt(zip) < Integer.parseInt(n.data.getZip())){
-			find(zip,beginDate,endDate,n.left); 
-		} 
-		//If the zip of the current node is less than the zip given, 
-		//go to the right node to keep finding the node with qualifying data
-		else if (Integer.parseInt(zip) > Integer.parseInt(n.data.getZip())){
-			find(zip,beginDate,endDate,n.right); 
-		} else { //If the zip of the current node is equal to the zip given		
-			//and if the date of the current node is less than the start date
-			//go to the right node to keep finding the node with qualifying data
-			if (n.data.getDate().compareTo(beginDate) < 0){
-				//Recur on the right subtree
-				find(zip,beginDate,endDate,n.right); 
+		long zipDay = n.data.getZipDay();
+		findZips(n.left, lower, zipDay, query);
+		int nodeZip = n.data.getZipCode();
+		int nodeDay = (int) zipDay;
+		if (nodeZip >= lowZip && nodeZip <= highZip && nodeDay >= beginDay && nodeDay <= endDay){
+			query.totals(nodeZip).add(n.data);
+		}
+		findZips(n.right, zipDay, upper, query);
+	}
+	
+	/**
+	 * Adds the collisions of all the zip codes within the given date range (inclusive) to the summary. 
+	 * With the date index it takes O(log n) time, like summarize, otherwise every zip code of the 
+	 * tree is summarized in one traversal (see summarizeZips).
+	 * 
+	 * @param dateBegin
+	 * @param dateEnd
+	 * @param summary the totals that the matching collisions are added to
+	 */
+	public void summarizeCity(Date dateBegin, Date dateEnd, CollisionSummary summary){
+		if (dateIndex != null){
+			dateIndex.summarize(dateBegin.getDayNumber(), dateEnd.getDayNumber(), summary);
+		} else {
+			summarizeZips("00000", "99999", dateBegin, dateEnd, summary);
+		}
+	}
+	
+	/**
+	 * Passes all the collisions within the given date range (inclusive) to the action, whatever 
+	 * their zip code. With the date index the collisions are passed in the order of their dates and 
+	 * only the collisions of the range are visited, otherwise they are passed in the order of the 
+	 * tree and the whole tree is visited.
+	 * 
+	 * @param dateBegin
+	 * @param dateEnd
+	 * @param action what to do with every matching collision
+	 */
+	public void forEachInDates(Date dateBegin, Date dateEnd, Consumer<? super Collision> action){
+		int beginDay = dateBegin.getDayNumber();
+		int endDay = dateEnd.getDayNumber();
+		if (dateIndex != null){
+			dateIndex.forEach(beginDay, endDay, 0, 99999, action);
+		} else {
+			rangeOfZips("00000", "99999").forEach(c -> {
+				int day = c.getDate().getDayNumber();
+				if (day >= beginDay && day <= endDay){
+					action.accept(c);
+				}
+			});
+		}
+	}
+	
+	/*
+	 * Decides whether summarizeZips should walk the collisions of the date range in the date index 
+	 * instead of the zip codes of the range in the tree. The tree visits about two paths, 
+	 * 2 * (height + 1) nodes, for every zip code of the range that is in the tree, while the 
+	 * date index visits every collision of the date range, which it counts in O(log n) time. 
+	 * The zip codes are only counted until the date index is known to be cheaper, 
+	 * so the decision never costs more than the cheaper plan.
+	 */
+	private boolean useDateIndex(int lowZip, int highZip, int beginDay, int endDay){
+		if (dateIndex == null || root == null){
+			return false;
+		}
+		int pathNodes = 2 * (root.height + 1);
+		int limit = dateIndex.count(beginDay, endDay) / pathNodes + 1;
+		int zips = 0;
+		long bound = Collision.zipDay(lowZip, 0);
+		while (zips < limit){
+			Collision next = ceiling(bound);
+			if (next == null || next.getZipCode() > highZip){
+				return false;
 			}
-			//If the date of the current node is greater than the end date
-			//go to the left node to keep finding the node with qualifying data
-			else if (n.data.getDate().compareTo(endDate) > 0){
-				//Recur on the left subtree
-				find(zip,beginDate,endDate,n.left); 
+			zips++;
+			bound = Collision.zipDay(next.getZipCode() + 1, 0);
+		}
+		return true;
+	}
+	
+	/*
+	 * Returns the first collision whose packed zip code and day number is at least bound, 
+	 * or null if there is none.
+	 */
+	private Collision ceiling(long bound){
+		Collision result = null;
+		Node<Collision> n = root;
+		while (n != null){
+			if (n.data.getZipDay() >= bound){
+				result = n.data;
+				n = n.left;
+			} else {
+				n = n.right;
 			}
-			//If the date of the current node is within or equal to the date range specified by the parameter,
-			//go to both left and right node to keep finding the node with qualifying data
-			else if (n.data.getDate().compareTo(endDate) <= 0 && n.data.getDate().compareTo(beginDate) >= 0){
-				//Recur on the left subtree
-				find(zip,beginDate,endDate,n.left); 
-				find(zip,beginDate,endDate,n.right); 
-			} 
 		}
+		return result;
+	}
+	
+	/**
+	 * Returns the number of collisions with the given zip code and a date before the given date, 
+	 * which is the position (starting from 0) that a collision of that zip code and date 
+	 * has among the collisions of the zip code.
+	 * 
+	 * @param zip
+	 * @param date
+	 * @return the number of collisions of the zip code before the date
+	 */
+	public int rank(String zip, Date date){
+		int zipCode = Integer.parseInt(zip);
+		return countBelow(Collision.zipDay(zipCode, date.getDayNumber())) 
+				- countBelow(Collision.zipDay(zipCode, 0));
+	}
+	
+	/**
+	 * Returns the k-th collision (starting from 0) of the given zip code, in the order of 
+	 * the dates and the unique keys.
+	 * 
+	 * @param zip
+	 * @param k the position of the collision among the collisions of the zip code
+	 * @return the k-th collision of the zip code, or null if the zip code has k or fewer collisions
+	 */
+	public Collision select(String zip, int k){
+		int zipCode = Integer.parseInt(zip);
+		if (k < 0){
+			return null;
+		}
+		int index = countBelow(Collision.zipDay(zipCode, 0)) + k;
+		if (index >= numOfElements){
+			return null;
+		}
+		Collision c = select(index);
+		return c.getZipCode() == zipCode ? c : null;
+	}
+	
+	/*
+	 * Returns the number of collisions whose packed zip code and day number is smaller than bound.
+	 */
+	private int countBelow(long bound){
+		int count = 0;
+		Node<Collision> n = root;
+		while (n != null){
+			if (n.data.getZipDay() < bound){
+				count += 1 + (n.left == null ? 0 : n.left.size);
+				n = n.right;
+			} else {
+				n = n.left;
+			}
+		}
+		return count;
+	}
+	
+	/*
+	 * Returns the collision at the given position (starting from 0) of the sorted order of the tree.
+	 */
+	private Collision select(int index){
+		Node<Collision> n = root;
+		while (n != null){
+			int leftSize = n.left == null ? 0 : n.left.size;
+			if (index < leftSize){
+				n = n.left;
+			} else if (index == leftSize){
+				return n.data;
+			} else {
+				index -= leftSize + 1;
+				n = n.right;
+			}
+		}
+		return null;
+	}
+	
+	/**
+	 * Returns the Collision objects with the given zip code and a date within the given range (inclusive).
+	 * The range is lazy: nothing is copied, the tree is walked in order while the range is iterated 
+	 * or streamed, so the tree should not be changed until the range is used up. 
+	 * 
+	 * @param zip
+	 * @param dateBegin
+	 * @param dateEnd
+	 * @return the range of the matching Collision objects in sorted order
+	 */
+	public CollisionRange range(String zip, Date dateBegin, Date dateEnd){
+		int zipCode = Integer.parseInt(zip);
+		return new CollisionRange(root, numOfElements, 
+				Collision.zipDay(zipCode, dateBegin.getDayNumber()), Long.MIN_VALUE,
+				Collision.zipDay(zipCode, dateEnd.getDayNumber()), Long.MAX_VALUE);
+	}
+	
+	/**
+	 * Returns the Collision objects with a zip code between the two given zip codes (inclusive).
+	 * The range is lazy, see range(String, Date, Date).
+	 * 
+	 * @param lowZip the smallest zip code of the range
+	 * @param highZip the largest zip code of the range
+	 * @return the range of the matching Collision objects in sorted order
+	 */
+	public CollisionRange rangeOfZips(String lowZip, String highZip){
+		return new CollisionRange(root, numOfElements, 
+				Collision.zipDay(Integer.parseInt(lowZip), 0), Long.MIN_VALUE,
+				Collision.zipDay(Integer.parseInt(highZip), Integer.MAX_VALUE), Long.MAX_VALUE);
 	}
 	
 	/**
 	 * Returns a string containing info about the total number of fatalities and injuries
 	 * along with the breakdown of each for pedestrians, cyclists, and motorists for a given zip code and date range.
+	 * When the report cache exists (see createReportCache), a report that was already rendered 
+	 * and is still valid is returned from the cache.
 	 * 
 	 * @param zip
 	 * @param dateBegin
@@ -460,47 +1177,163 @@ public class CollisionsData {
 	 * given zip code within the specified dates, inclusive. 
 	 */
 	public String getReport(String zip, Date dateBegin, Date dateEnd){
-		int numCollisions = 0;
-		int totFatalities = 0;
-		int totPedFatalities = 0;
-		int totCycFatalities = 0;
-		int totMotFatalities = 0;
-		
-		int totInjuries = 0;
-		int totPedInjuries = 0;
-		int totCycInjuries = 0;
-		int totMotInjuries = 0;
+		CollisionReportCache cache = reportCache;
+		long key = cache == null ? -1 
+				: CollisionReportCache.key(Integer.parseInt(zip), dateBegin.getDayNumber(), dateEnd.getDayNumber());
+		if (key < 0){
+			return report(zip, dateBegin, dateEnd);
+		}
+		//With the cache, the time of the hits and the misses is measured
+		long start = System.nanoTime();
+		String report = cache.get(key);
+		if (report != null){
+			cache.hit(System.nanoTime() - start);
+			return report;
+		}
+		report = report(zip, dateBegin, dateEnd);
+		cache.miss(key, report, System.nanoTime() - start);
+		return report;
+	}
+	
+	/*
+	 * Renders the report of the query without the cache.
+	 */
+	private String report(String zip, Date dateBegin, Date dateEnd){
+		CollisionSummary summary = new CollisionSummary();
+		summarize(zip, dateBegin, dateEnd, summary);
+		return summary.toString();
+	}
+	
+	/**
+	 * Adds the collisions of the given zip code within the given date range (inclusive) 
+	 * to the summary. Nothing is allocated, so the same summary can be cleared and reused 
+	 * for every query. The totals come from the sums kept in the nodes, so the time 
+	 * does not depend on the number of collisions in the range.
+	 * 
+	 * @param zip
+	 * @param dateBegin
+	 * @param dateEnd
+	 * @param summary the totals that the matching collisions are added to
+	 */
+	public void summarize(String zip, Date dateBegin, Date dateEnd, CollisionSummary summary){
+		int zipCode = Integer.parseInt(zip);
+		find(Collision.zipDay(zipCode, dateBegin.getDayNumber()), Collision.zipDay(zipCode, dateEnd.getDayNumber()), 
+				root, summary);
+	}
+
+	/**
+	 * Returns the totals of the collisions of the given zip code within the given date range 
+	 * (inclusive), one summary per time bucket: element i holds the collisions of the i-th day, 
+	 * ISO week, month or year of the range, counting from the one that contains dateBegin 
+	 * (see CollisionBucket). Buckets without collisions have a summary with all totals 0.
+	 * 
+	 * The buckets are filled in one in-order walk of the collisions of the zip code within the 
+	 * range, see findBuckets. Only the array and its summaries are allocated.
+	 * 
+	 * @param zip
+	 * @param dateBegin
+	 * @param dateEnd
+	 * @param bucket the size of the buckets
+	 * @return the totals of every bucket in order, an empty array if dateEnd is before dateBegin
+	 */
+	public CollisionSummary[] histogram(String zip, Date dateBegin, Date dateEnd, CollisionBucket bucket){
+		int zipCode = Integer.parseInt(zip);
+		CollisionSummary[] buckets = new CollisionSummary[bucket.count(dateBegin, dateEnd)];
+		for (int i = 0; i < buckets.length; i++){
+			buckets[i] = new CollisionSummary();
+		}
+		if (buckets.length > 0){
+			findBuckets(root, Long.MIN_VALUE, Long.MAX_VALUE, Collision.zipDay(zipCode, dateBegin.getDayNumber()), 
+					Collision.zipDay(zipCode, dateEnd.getDayNumber()), bucket, dateBegin.getDayNumber(), buckets);
+		}
+		return buckets;
+	}
+	
+	/*
+	 * Adds the collisions of the subtree within [low, high] (packed zip codes and days of one zip 
+	 * code, see Collision.zipDay) to the bucket of their day.
+	 * 
+	 * lower and upper are bounds (inclusive) of the packed zip codes and days of the subtree that 
+	 * come from its ancestors, the same as in findZips. A subtree outside the range is skipped, and 
+	 * a subtree whose bounds are within the range and within one bucket is added as a whole from 
+	 * the sums kept in its root. So a day, week or month with many collisions costs O(log n) 
+	 * nodes, not one node per collision.
+	 */
+	private void findBuckets(Node<Collision> n, long lower, long upper, long low, long high, 
+			CollisionBucket bucket, int beginDay, CollisionSummary[] buckets){
+		if (n == null || upper < low || lower > high){
+			return;
+		}
+		if (lower >= low && upper <= high){
+			int first = bucket.index(beginDay, (int) lower);
+			if (first == bucket.index(beginDay, (int) upper)){
+				addSubtree(buckets[first], n);
+				return;
+			}
+		}
+		long zipDay = n.data.getZipDay();
+		findBuckets(n.left, lower, zipDay, low, high, bucket, beginDay, buckets);
+		if (zipDay >= low && zipDay <= high){
+			buckets[bucket.index(beginDay, (int) zipDay)].add(n.data);
+		}
+		findBuckets(n.right, zipDay, upper, low, high, bucket, beginDay, buckets);
+	}
+
+	/*
+	 * The bounds of a query of summarizeZips and the totals of the zip codes found so far.
+	 */
+	private static class ZipQuery {
+		private final int lowZip;
+		private final int highZip;
+		private final int beginDay;
+		private final int endDay;
+		private final SortedMap<String, CollisionSummary> zips = new TreeMap<String, CollisionSummary>();
+		//The zip code that was found last and its totals
+		private int lastZip = -1;
+		private CollisionSummary last;
+		//The totals by zip code, only used when the zip codes are not found in order
+		private Map<Integer, CollisionSummary> byZip;
 		
-		match.clear();
-		find(zip,dateBegin,dateEnd,root);
+		ZipQuery(int lowZip, int highZip, int beginDay, int endDay){
+			this.lowZip = lowZip;
+			this.highZip = highZip;
+			this.beginDay = beginDay;
+			this.endDay = endDay;
+		}
 		
-		for (int i = 0; i < match.size(); i ++){
-			numCollisions ++;
-			totFatalities += match.get(i).getPersonsKilled();
-			totPedFatalities += match.get(i).getPedestriansKilled();
-			totCycFatalities += match.get(i).getCyclistsKilled();
-			totMotFatalities += match.get(i).getMotoristsKilled();
-
-			totInjuries += match.get(i).getPersonsInjured();
-			totPedInjuries += match.get(i).getPedestriansInjured();
-			totCycInjuries += match.get(i).getCyclistsInjured();
-			totMotInjuries += match.get(i).getMotoristsInjured();
+		/*
+		 * Returns the totals of the zip code, a new summary the first time the zip code is found. 
+		 * The zip codes are found in increasing order, so only the last one has to be remembered.
+		 */
+		CollisionSummary totals(int zip){
+			if (zip != lastZip){
+				last = new CollisionSummary();
+				lastZip = zip;
+				zips.put(Collision.zipString(zip), last);
+			}
+			return last;
 		}
 		
-		String s1 = String.format("Total number of collisions: %d", numCollisions);
-		String s2 = String.format("Number of fatalities: %d", totFatalities);
-		String s3 = String.format("%20s:%2d", "pedestrians", totPedFatalities);
-		String s4 = String.format("%20s:%2d", "cyclists", totCycFatalities);
-		String s5 = String.format("%20s:%2d", "motorists", totMotFatalities);
-		String s6 = String.format("Number of injuries: %d", totInjuries);
-		String s7 = String.format("%18s:%2d", "pedestrians", totPedInjuries);
-		String s8 = String.format("%18s:%2d", "cyclists", totCycInjuries);
-		String s9 = String.format("%18s:%2d", "motorists", totMotInjuries);
-
-		return s1 + '\n' + s2 + '\n' + s3 + '\n' + s4 + '\n' + s5 + '\n' 
-				+ s6 + '\n' + s7 + '\n' + s8 + '\n' + s9;		
+		/*
+		 * Same as totals, for zip codes that are found in any order (from the date index).
+		 */
+		CollisionSummary totalsOf(int zip){
+			if (zip != lastZip){
+				if (byZip == null){
+					byZip = new HashMap<Integer, CollisionSummary>();
+				}
+				last = byZip.get(zip);
+				if (last == null){
+					last = new CollisionSummary();
+					byZip.put(zip, last);
+					zips.put(Collision.zipString(zip), last);
+				}
+				lastZip = zip;
+			}
+			return last;
+		}
 	}
-
+	
 	/**
 	 * Node class is used to represent nodes in a binary search tree.
 	 * It contains a data item that has to implement Comparable interface
@@ -518,6 +1351,16 @@ public class CollisionsData {
 		protected Node <Collision> right; //reference to the right subtree
 		protected Collision data;         //data item stored in the node
 		protected int height; 		  //the height of the node
+		protected int size;               //the number of nodes in the subtree of the node
+		//sums of the casualty counts of all the collisions in the subtree of the node
+		protected int personsInjured;
+		protected int personsKilled;
+		protected int pedestriansInjured;
+		protected int pedestriansKilled;
+		protected int cyclistsInjured;
+		protected int cyclistsKilled;
+		protected int motoristsInjured;
+		protected int motoristsKilled;
 
 		/**
 		 * Constructs a BSTNode initializing the data part 
@@ -10,41 +10,27 @@ import java.util.Scanner;
  * @author Joanna Klukowska
  */
 public class Date implements Comparable<Date>{
-	private int year;
-	private int month;
-	private int day;
+	//Range of the years that are accepted
+	private static final int MIN_YEAR = 1900;
+	private static final int MAX_YEAR = 2020;
+	//Canonical Date objects, indexed by day number - FIRST_DAY_NUMBER, created when they are first needed
+	private static final int FIRST_DAY_NUMBER = dayNumber(MIN_YEAR, 1, 1);
+	private static final Date[] CACHE = new Date[dayNumber(MAX_YEAR, 12, 31) - FIRST_DAY_NUMBER + 1];
+
+	//The year, month and day packed into one number, see getDayNumber()
+	private final int dayNumber;
 	
 	
 	/**
 	 * Creates a Date object using a string in the format mm/dd/yyy. 
+	 * The string is read the same way a Scanner with the delimiter "/" reads three integers:
+	 * a single '/' at the beginning and anything after the third number are ignored.
 	 * @param s string in the format mm/dd/yyyy
 	 * @throws IllegalArgumentException when s does not contain valid values or is not formatted
 	 * correctly 
 	 */
 	public Date(String s) throws IllegalArgumentException{
-		Scanner tokenizer = new Scanner(s);
-		try {
-			tokenizer.useDelimiter("/");
-			
-			month = tokenizer.nextInt();
-			day = tokenizer.nextInt(); 
-			year = tokenizer.nextInt() ;
-			tokenizer.close();
-		}
-		catch (InputMismatchException ex ) {
-				throw new IllegalArgumentException ( "year, month, day should be numbers"); 
-		}
-		catch (NoSuchElementException ex ){
-			throw new IllegalArgumentException ( "invalid date format"); 
-		}
-		if (month < 1 || month > 12) 
-			throw new IllegalArgumentException ("month < 1 or > 12 detected");
-		if (day < 1 || day > 31) 
-			throw new IllegalArgumentException ("day < 1 or > 31 detected");
-		if (year < 1900 || year > 2020) 
-			throw new IllegalArgumentException ("year < 1900 or > 2020 detected");
-		
-		
+		this(parse(s));
 	}
 
 	
@@ -58,19 +44,286 @@ public class Date implements Comparable<Date>{
 	 * correctly 
 	 */
 	public Date(int year, int month, int day)  throws IllegalArgumentException{
-		this.year = year;
-		this.month = month;
-		this.day = day;
-		if (year < 1900 || year > 2020) 
+		this(checkedDayNumber(year, month, day));
+	}
+
+	private Date(int dayNumber){
+		this.dayNumber = dayNumber;
+	}
+
+
+
+	/**
+	 * Returns the Date object for the string in the format mm/dd/yyyy. It is the same date as 
+	 * new Date(s), but all the calls for the same date return the same shared object. 
+	 * @param s string in the format mm/dd/yyyy
+	 * @return the Date object for s
+	 * @throws IllegalArgumentException when s does not contain valid values or is not formatted
+	 * correctly 
+	 */
+	public static Date valueOf(String s) throws IllegalArgumentException{
+		return cached(parse(s));
+	}
+
+	/**
+	 * Returns the Date object for the given year, month and day. It is the same date as 
+	 * new Date(year, month, day), but all the calls for the same date return the same shared object. 
+	 * @param year year for this date
+	 * @param month month for this date 
+	 * @param day day for this date 
+	 * @return the Date object for the year, month and day
+	 * @throws IllegalArgumentException when the values are not valid
+	 */
+	public static Date valueOf(int year, int month, int day) throws IllegalArgumentException{
+		return cached(checkedDayNumber(year, month, day));
+	}
+
+	/*
+	 * Returns the canonical Date object with the given day number (see getDayNumber()).
+	 *
+	 * @throws IllegalArgumentException when the day number is not one of a valid date
+	 */
+	static Date fromDayNumber(int dayNumber) throws IllegalArgumentException{
+		if (dayNumber < FIRST_DAY_NUMBER || dayNumber - FIRST_DAY_NUMBER >= CACHE.length)
+			throw new IllegalArgumentException ("year < 1900 or > 2020 detected");
+		return cached(dayNumber);
+	}
+
+	/*
+	 * Returns the canonical Date object with the given (valid) day number. Two threads may 
+	 * create the same date at the same time, that only costs an extra object since the 
+	 * Date objects cannot change.
+	 */
+	private static Date cached(int dayNumber){
+		int index = dayNumber - FIRST_DAY_NUMBER;
+		Date date = CACHE[index];
+		if (date == null){
+			date = new Date(dayNumber);
+			CACHE[index] = date;
+		}
+		return date;
+	}
+
+	/*
+	 * Validates the year, month and day (in the same order as the constructor always did) 
+	 * and returns their day number.
+	 */
+	private static int checkedDayNumber(int year, int month, int day){
+		if (year < MIN_YEAR || year > MAX_YEAR) 
 			throw new IllegalArgumentException ("year < 1900 or > 2020 detected");
 		if (month < 1 || month > 12) 
 			throw new IllegalArgumentException ("month < 1 or > 12 detected");
 		if (day < 1 || day > 31) 
 			throw new IllegalArgumentException ("day < 1 or > 31 detected");
-		
+		return dayNumber(year, month, day);
 	}
 
+	private static int dayNumber(int year, int month, int day){
+		return (year * 12 + month - 1) * 31 + day - 1;
+	}
 
+	//Status codes of parseDayNumber for a string that is not a valid date, one per message
+	static final int INVALID_FORMAT = -1;
+	static final int NOT_NUMBERS = -2;
+	static final int INVALID_MONTH = -3;
+	static final int INVALID_DAY = -4;
+	static final int INVALID_YEAR = -5;
+	private static final String[] MESSAGES = {"invalid date format", "year, month, day should be numbers",
+			"month < 1 or > 12 detected", "day < 1 or > 31 detected", "year < 1900 or > 2020 detected"};
+
+	/*
+	 * Parses the string into the day number of the date, 
+	 * and throws the IllegalArgumentException of the status code when it is not valid.
+	 */
+	private static int parse(String s){
+		int dayNumber = parseDayNumber(s);
+		if (dayNumber < 0)
+			throw new IllegalArgumentException (MESSAGES[-dayNumber - 1]);
+		return dayNumber;
+	}
+
+	/*
+	 * Parses the string into the day number of the date, or returns a negative status code
+	 * when it is not a valid date, so that the readers can reject a row without the cost of an 
+	 * exception. The three numbers are read the way Scanner.nextInt() reads them with the 
+	 * delimiter "/": before each number one '/' is skipped, a missing number is INVALID_FORMAT 
+	 * and an empty number or one that is not an int is NOT_NUMBERS. Numbers made of an optional 
+	 * sign and the digits 0-9 are decoded here, and so are the numbers with letters or white space, 
+	 * which are never ints. Anything else (digits of other scripts, grouping separators of the 
+	 * locale) is rare enough to be left to the Scanner itself.
+	 */
+	static int parseDayNumber(String s){
+		int length = s.length();
+		int month = 0;
+		int day = 0;
+		int year = 0;
+		int pos = 0;
+		for (int i = 0; i < 3; i++){
+			if (pos < length && s.charAt(pos) == '/')
+				pos++;
+			if (pos == length)
+				return INVALID_FORMAT;
+			int end = s.indexOf('/', pos);
+			if (end < 0)
+				end = length;
+			long value = parseInt(s, pos, end);
+			if (value == NOT_AN_INT)
+				return NOT_NUMBERS;
+			if (value == OTHER_CHARACTERS){
+				int[] values = scan(s);
+				if (values.length == 1)
+					return values[0];
+				month = values[0];
+				day = values[1];
+				year = values[2];
+				break;
+			}
+			if (i == 0)
+				month = (int) value;
+			else if (i == 1)
+				day = (int) value;
+			else
+				year = (int) value;
+			pos = end;
+		}
+		if (month < 1 || month > 12) 
+			return INVALID_MONTH;
+		if (day < 1 || day > 31) 
+			return INVALID_DAY;
+		if (year < MIN_YEAR || year > MAX_YEAR) 
+			return INVALID_YEAR;
+		return dayNumber(year, month, day);
+	}
+
+	//Results of parseInt for the characters that are not an int
+	private static final long NOT_AN_INT = Long.MIN_VALUE;
+	private static final long OTHER_CHARACTERS = Long.MIN_VALUE + 1;
+
+	/*
+	 * Parses the characters [from, to) as an int made of an optional sign and the digits 0-9.
+	 *
+	 * @return the value, NOT_AN_INT if the number is empty, does not fit in an int or has
+	 * letters or white space, or OTHER_CHARACTERS if it has any other character
+	 */
+	private static long parseInt(String s, int from, int to){
+		if (from == to)
+			return NOT_AN_INT;
+		boolean negative = false;
+		char first = s.charAt(from);
+		if (first == '-' || first == '+'){
+			negative = first == '-';
+			from++;
+			if (from == to)
+				return NOT_AN_INT;
+		}
+		long value = 0;
+		for (int i = from; i < to; i++){
+			char c = s.charAt(i);
+			if (c < '0' || c > '9')
+				return otherCharacters(s, i, to);
+			value = value * 10 + (c - '0');
+			if (value > (long) Integer.MAX_VALUE + 1)
+				return NOT_AN_INT;
+		}
+		if (negative)
+			value = -value;
+		if (value > Integer.MAX_VALUE)
+			return NOT_AN_INT;
+		return value;
+	}
+
+	/*
+	 * Returns NOT_AN_INT if the characters [from, to) have an ASCII letter or white space,
+	 * which a Scanner never reads as an int, OTHER_CHARACTERS otherwise.
+	 */
+	private static long otherCharacters(String s, int from, int to){
+		for (int i = from; i < to; i++){
+			char c = s.charAt(i);
+			if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c <= ' ')
+				return NOT_AN_INT;
+		}
+		return OTHER_CHARACTERS;
+	}
+
+	/*
+	 * Reads the month, day and year with a Scanner, the way this class always did.
+	 * 
+	 * @return the month, day and year, or the status code alone if they cannot be read
+	 */
+	private static int[] scan(String s){
+		Scanner tokenizer = new Scanner(s);
+		try {
+			tokenizer.useDelimiter("/");
+			
+			int month = tokenizer.nextInt();
+			int day = tokenizer.nextInt(); 
+			int year = tokenizer.nextInt() ;
+			return new int[] {month, day, year};
+		}
+		catch (InputMismatchException ex ) {
+			return new int[] {NOT_NUMBERS}; 
+		}
+		catch (NoSuchElementException ex ){
+			return new int[] {INVALID_FORMAT}; 
+		}
+		finally {
+			tokenizer.close();
+		}
+	}
+
+
+
+	/**
+	 * Returns a number that represents this date: the days of every month are numbered 
+	 * 31 at a time, starting from January of year 0. Comparing the day numbers of two dates gives 
+	 * the same order as compareTo. (It is not a count of calendar days, since a date 
+	 * like 02/31/2017 is accepted and has to stay different from 03/03/2017.)
+	 * @return the day number of this date
+	 */
+	int getDayNumber() {
+		return dayNumber;
+	}
+
+	int getYear() {
+		return dayNumber / (12 * 31);
+	}
+
+	int getMonth() {
+		return dayNumber / 31 % 12 + 1;
+	}
+
+	int getDay() {
+		return dayNumber % 31 + 1;
+	}
+
+	/*
+	 * Returns the number of calendar days from 01/01/1970 to the date with the given day number 
+	 * (see getDayNumber()). A day after the end of its month, like 02/31/2017, counts as the last 
+	 * day of the month, so the result never decreases when the day number increases.
+	 */
+	static int epochDay(int dayNumber) {
+		int year = dayNumber / (12 * 31);
+		int month = dayNumber / 31 % 12 + 1;
+		int day = Math.min(dayNumber % 31 + 1, lengthOfMonth(year, month));
+		//days from 03/01/0000, so that the leap day is the last day of a year
+		int y = month <= 2 ? year - 1 : year;
+		int era = y / 400;
+		int yearOfEra = y - era * 400;
+		int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+		int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+		return era * 146097 + dayOfEra - 719468;
+	}
+
+	private static int lengthOfMonth(int year, int month) {
+		switch (month) {
+		case 2:
+			return (year % 4 == 0 && year % 100 != 0) || year % 400 == 0 ? 29 : 28;
+		case 4: case 6: case 9: case 11:
+			return 30;
+		default:
+			return 31;
+		}
+	}
 
 	/**
 	 * Compares two Date objects for equality.
@@ -86,13 +339,16 @@ public class Date implements Comparable<Date>{
 		if (!(obj instanceof Date))
 			return false;
 		Date other = (Date) obj;
-		if (day != other.day)
-			return false;
-		if (month != other.month)
-			return false;
-		if (year != other.year)
-			return false;
-		return true;
+		return dayNumber == other.dayNumber;
+	}
+
+	/**
+	 * Returns a hash code that is consistent with equals.
+	 * @return the hash code of this date
+	 */
+	@Override
+	public int hashCode() {
+		return dayNumber;
 	}
 
 	
@@ -104,7 +360,7 @@ public class Date implements Comparable<Date>{
 	 */
 	@Override
 	public String toString() {
-		return String.format("%02d/%02d/%4d",month, day, year);
+		return String.format("%02d/%02d/%4d",getMonth(), getDay(), getYear());
 	}
 	
 	
@@ -116,11 +372,7 @@ public class Date implements Comparable<Date>{
 	 */
 	@Override
 	public int compareTo(Date o) {
-		if (this.year != o.year) 
-			return this.year - o.year;
-		if (this.month != o.month)
-			return this.month - o.month;
-		return this.day - o.day; 
+		return this.dayNumber - o.dayNumber; 
 	}
 	
 	
@@ -0,0 +1,469 @@
+package project5;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * This class reads the collision records from the input file without the Scanner and
+ * without splitCSVLine. The input file is memory-mapped and scanned byte by byte.
+ * Only the columns used by the Collision class (the date, the zip code, the eight
+ * casualty counts and the unique key) are kept and they are decoded straight into
+ * primitive values, so no String is created for the individual entries of a line.
+ *
+ * Quotes, commas and white space are handled the same way splitCSVLine handles them,
+ * so exactly the same rows are accepted as with the Scanner based reading.
+ *
+ * @author Gayeon_Park
+ *
+ */
+public class MappedCollisionReader {
+
+	//Positions of the entries that are used by the Collision class
+	static final int DATE_COLUMN = 0;
+	static final int ZIP_COLUMN = 3;
+	static final int FIRST_COUNT_COLUMN = 10;
+	static final int LAST_COUNT_COLUMN = 17;
+	static final int KEY_COLUMN = 23;
+
+	/**
+	 * Reads all valid collisions of the given file into a new CollisionsData object.
+	 * The first line of the file is a header and is skipped. Lines that do not make
+	 * a valid Collision object are skipped.
+	 *
+	 * @param file the input file
+	 * @return the CollisionsData object containing all the valid collisions of the file
+	 * @throws IOException when the file cannot be opened or mapped
+	 */
+	public static CollisionsData read(File file) throws IOException {
+		return read(file, null);
+	}
+
+	/**
+	 * Reads all valid collisions of the given file into a new CollisionsData object,
+	 * and writes the lines that do not make a valid Collision object to the quarantine file.
+	 *
+	 * @param file the input file
+	 * @param quarantine the quarantine file of the rejected lines, or null
+	 * @return the CollisionsData object containing all the valid collisions of the file
+	 * @throws IOException when the file cannot be opened or mapped
+	 */
+	public static CollisionsData read(File file, CollisionQuarantine quarantine) throws IOException {
+		long phaseStart = System.nanoTime();
+		ByteBuffer buffer = map(file);
+		ArrayList<Collision> rows = new ArrayList<Collision>();
+		int start = nextLine(buffer, 0, buffer.limit());
+		//The header is line 1
+		RejectedLines rejects = quarantine == null ? null 
+				: (line, reason, from, to) -> quarantine.reject(line + 2, reason, buffer, from, to);
+		parseRange(buffer, start, buffer.limit(), new RowParser(), rows::add, rejects);
+		CollisionMonitor.get().phase("parse", System.nanoTime() - phaseStart);
+		phaseStart = System.nanoTime();
+		CollisionsData collisions = new CollisionsData();
+		collisions.addAll(rows);
+		CollisionMonitor.get().phase("build", System.nanoTime() - phaseStart);
+		return collisions;
+	}
+
+	/*
+	 * Maps the whole file into memory for reading.
+	 *
+	 * @param file the input file
+	 * @return read only buffer with the content of the file
+	 * @throws IOException when the file cannot be opened, or is too large to be mapped at once
+	 */
+	static ByteBuffer map(File file) throws IOException {
+		try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+				FileChannel channel = raf.getChannel()){
+			long size = channel.size();
+			if (size > Integer.MAX_VALUE){
+				throw new IOException("file " + file + " is too large to be mapped.");
+			}
+			return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+		}
+	}
+
+	/*
+	 * Parses every line that starts within [from, to) and passes each valid Collision to out.
+	 * from has to be the beginning of a line and to has to be the end of the buffer
+	 * or the beginning of a line.
+	 *
+	 * @param buffer the content of the file
+	 * @param from position of the first line
+	 * @param to position after the last line
+	 * @param parser the parser used for the individual lines
+	 * @param out receives the valid collisions in the order of the file
+	 * @param rejects receives the lines that are not valid collisions, or null
+	 * @return the number of lines that were parsed, valid or not
+	 */
+	static int parseRange(ByteBuffer buffer, int from, int to, RowParser parser, Consumer<Collision> out,
+			RejectedLines rejects){
+		int lines = 0;
+		//The rows of the range are counted here and added to the monitor at the end
+		int accepted = 0;
+		long[] rejected = new long[CollisionMonitor.Reject.values().length];
+		int start = from;
+		while (start < to){
+			lines++;
+			int end = start;
+			byte b;
+			while (end < to && (b = buffer.get(end)) != '\n' && b != '\r'){
+				end++;
+			}
+			if (parser.parse(buffer, start, end)){
+				out.accept(parser.toCollision());
+				accepted++;
+			} else {
+				rejected[parser.reason.ordinal()]++;
+				if (rejects != null){
+					rejects.reject(lines - 1, parser.reason, start, end);
+				}
+			}
+			start = skipLineBreak(buffer, end, to);
+		}
+		CollisionMonitor.get().rows(lines, accepted, rejected);
+		return lines;
+	}
+
+	/*
+	 * Receives the lines of parseRange that are not valid collisions.
+	 */
+	interface RejectedLines {
+
+		/*
+		 * Receives a rejected line: its index within the range (0 for the first line of the range),
+		 * the reason and the position of the line in the buffer, [start, end) without the line break.
+		 */
+		void reject(int line, CollisionMonitor.Reject reason, int start, int end);
+	}
+
+	/*
+	 * Returns the number of lines that start before the given position, which has to be 
+	 * the beginning of a line or the end of the buffer.
+	 */
+	static long countLines(ByteBuffer buffer, int to){
+		long lines = 0;
+		for (int pos = 0; pos < to; pos = nextLine(buffer, pos, to)){
+			lines++;
+		}
+		return lines;
+	}
+
+	/*
+	 * Returns the position of the beginning of the line that follows the line
+	 * containing the position pos. Line breaks are "\n", "\r" or "\r\n", the same
+	 * ones that Scanner.nextLine() recognizes in an ASCII compatible file.
+	 *
+	 * @param buffer the content of the file
+	 * @param pos any position inside of a line
+	 * @param limit the end of the buffer
+	 * @return the beginning of the next line or limit when there is none
+	 */
+	static int nextLine(ByteBuffer buffer, int pos, int limit){
+		byte b;
+		while (pos < limit && (b = buffer.get(pos)) != '\n' && b != '\r'){
+			pos++;
+		}
+		return skipLineBreak(buffer, pos, limit);
+	}
+
+	/*
+	 * Skips the line break at position pos.
+	 */
+	private static int skipLineBreak(ByteBuffer buffer, int pos, int limit){
+		if (pos >= limit){
+			return limit;
+		}
+		if (buffer.get(pos) == '\r' && pos + 1 < limit && buffer.get(pos + 1) == '\n'){
+			return pos + 2;
+		}
+		return pos + 1;
+	}
+
+	/**
+	 * This class parses a single line of the input file. It follows the rules of splitCSVLine
+	 * character by character, but keeps only the entries needed by the Collision class and
+	 * validates them the same way the Collision constructor does.
+	 * A RowParser keeps the values of the last line it parsed, so it should not be shared
+	 * between threads.
+	 *
+	 * @author Gayeon_Park
+	 *
+	 */
+	static class RowParser {
+
+		//Bytes of the entry that is currently parsed (only for the columns that are used)
+		private byte[] entry = new byte[64];
+		private int entryLength;
+
+		//Decoded values of the current line
+		private int month;
+		private int day;
+		private int year;
+		private int zip;
+		private long key;
+		private final int[] counts = new int[8];
+		//Reason the last line was rejected for, when parse returned false
+		CollisionMonitor.Reject reason;
+
+		/*
+		 * Parses the line [start, end) of the buffer (without the line break).
+		 *
+		 * @return true if the line contains more than 23 entries and makes a valid Collision,
+		 * false otherwise (reason is then set)
+		 */
+		boolean parse(ByteBuffer buffer, int start, int end){
+			int column = 0;
+			//number of characters that splitCSVLine would have added to the current entry
+			int columnLength = 0;
+			boolean insideQuotes = false;
+			boolean insideEntry = false;
+			entryLength = 0;
+
+			for (int i = start; i < end; i++){
+				int b = buffer.get(i) & 0xFF;
+
+				//Handle smart quotes (UTF-8 encoded) as well as regular quotes
+				boolean quote = b == '"';
+				if (b == 0xE2 && i + 2 < end && buffer.get(i + 1) == (byte) 0x80
+						&& (buffer.get(i + 2) == (byte) 0x9C || buffer.get(i + 2) == (byte) 0x9D)){
+					quote = true;
+					i += 2;
+				}
+
+				if (quote){
+					insideQuotes = !insideQuotes;
+					insideEntry = insideQuotes;
+				} else if (isWhitespace(b)){
+					if (insideQuotes || insideEntry){
+						columnLength++;
+						append(column, b);
+					}
+				} else if (b == ','){
+					if (insideQuotes){
+						columnLength++;
+						append(column, b);
+					} else { //End of entry found
+						insideEntry = false;
+						if (!endEntry(column, false)){
+							return false;
+						}
+						column++;
+						columnLength = 0;
+						entryLength = 0;
+					}
+				} else {
+					columnLength++;
+					append(column, b);
+					insideEntry = true;
+				}
+			}
+			//The last entry only counts when it is not empty and it is trimmed
+			if (columnLength > 0){
+				if (!endEntry(column, true)){
+					return false;
+				}
+				column++;
+			}
+			if (column <= KEY_COLUMN){
+				reason = CollisionMonitor.Reject.SHORT_ROW;
+				return false;
+			}
+			return true;
+		}
+
+		/*
+		 * Returns a new Collision object with the values of the last line that was parsed
+		 * successfully.
+		 */
+		Collision toCollision(){
+			return new Collision(Date.valueOf(year, month, day), zip, key, counts);
+		}
+
+		/*
+		 * Adds a byte to the current entry if the entry is one of the used columns.
+		 */
+		private void append(int column, int b){
+			if (column == DATE_COLUMN || column == ZIP_COLUMN || column == KEY_COLUMN
+					|| (column >= FIRST_COUNT_COLUMN && column <= LAST_COUNT_COLUMN)){
+				if (entryLength == entry.length){
+					entry = Arrays.copyOf(entry, entry.length * 2);
+				}
+				entry[entryLength++] = (byte) b;
+			}
+		}
+
+		/*
+		 * Decodes and validates the entry that has just ended.
+		 *
+		 * @param column the position of the entry in the line
+		 * @param last true if this is the last entry of the line (it has to be trimmed)
+		 * @return false if the entry makes the line an invalid collision (reason is then set)
+		 */
+		private boolean endEntry(int column, boolean last){
+			int from = 0;
+			int to = entryLength;
+			if (last){
+				while (from < to && (entry[from] & 0xFF) <= ' ') from++;
+				while (to > from && (entry[to - 1] & 0xFF) <= ' ') to--;
+			}
+			if (column == DATE_COLUMN){
+				if (to > from && parseDate(from, to)){
+					return true;
+				}
+				reason = CollisionMonitor.Reject.BAD_DATE;
+				return false;
+			} else if (column == ZIP_COLUMN){
+				if (to - from != 5){
+					reason = CollisionMonitor.Reject.BAD_ZIP;
+					return false;
+				}
+				int value = 0;
+				for (int i = from; i < to; i++){
+					if (entry[i] < '0' || entry[i] > '9'){
+						reason = CollisionMonitor.Reject.BAD_ZIP;
+						return false;
+					}
+					value = value * 10 + (entry[i] - '0');
+				}
+				zip = value;
+			} else if (column >= FIRST_COUNT_COLUMN && column <= LAST_COUNT_COLUMN){
+				//Same rules as Integer.parseInt, and the number cannot be negative
+				long value = parseInt(from, to);
+				if (value < 0){
+					reason = value == Long.MIN_VALUE ? CollisionMonitor.Reject.BAD_COUNT 
+							: CollisionMonitor.Reject.NEGATIVE_COUNT;
+					return false;
+				}
+				counts[column - FIRST_COUNT_COLUMN] = (int) value;
+			} else if (column == KEY_COLUMN){
+				//Same rules as Long.parseLong
+				if (parseKey(from, to)){
+					return true;
+				}
+				reason = to > from ? CollisionMonitor.Reject.BAD_KEY : CollisionMonitor.Reject.EMPTY_KEY;
+				return false;
+			}
+			return true;
+		}
+
+		/*
+		 * Decodes the date the same way Date(String) does: three integers separated by '/'
+		 * with a '/' at the beginning and anything after a further '/' ignored.
+		 */
+		private boolean parseDate(int from, int to){
+			if (entry[from] == '/'){
+				from++;
+			}
+			int monthEnd = tokenEnd(from, to);
+			int dayEnd = tokenEnd(monthEnd + 1, to);
+			int yearEnd = tokenEnd(dayEnd + 1, to);
+			long m = parseInt(from, monthEnd);
+			long d = parseInt(monthEnd + 1, dayEnd);
+			long y = parseInt(dayEnd + 1, yearEnd);
+			if (m == Long.MIN_VALUE || d == Long.MIN_VALUE || y == Long.MIN_VALUE){
+				return false;
+			}
+			month = (int) m;
+			day = (int) d;
+			year = (int) y;
+			return month >= 1 && month <= 12 && day >= 1 && day <= 31 && year >= 1900 && year <= 2020;
+		}
+
+		/*
+		 * Returns the position of the next '/' of the current entry, or to when there is none.
+		 */
+		private int tokenEnd(int pos, int to){
+			while (pos < to && entry[pos] != '/'){
+				pos++;
+			}
+			return pos;
+		}
+
+		/*
+		 * Parses the bytes [from, to) of the current entry as a decimal integer following
+		 * the rules of Integer.parseInt.
+		 *
+		 * @return the value, or Long.MIN_VALUE if the bytes are not a valid int
+		 */
+		private long parseInt(int from, int to){
+			if (from >= to){
+				return Long.MIN_VALUE;
+			}
+			boolean negative = false;
+			if (entry[from] == '-' || entry[from] == '+'){
+				negative = entry[from] == '-';
+				from++;
+				if (from == to){
+					return Long.MIN_VALUE;
+				}
+			}
+			long value = 0;
+			for (int i = from; i < to; i++){
+				if (entry[i] < '0' || entry[i] > '9'){
+					return Long.MIN_VALUE;
+				}
+				value = value * 10 + (entry[i] - '0');
+				if (value > (long) Integer.MAX_VALUE + 1){
+					return Long.MIN_VALUE;
+				}
+			}
+			if (negative){
+				value = -value;
+			}
+			if (value > Integer.MAX_VALUE){
+				return Long.MIN_VALUE;
+			}
+			return value;
+		}
+
+		/*
+		 * Parses the bytes [from, to) of the current entry as the unique key following
+		 * the rules of Long.parseLong.
+		 *
+		 * @return false if the bytes are not a valid long
+		 */
+		private boolean parseKey(int from, int to){
+			if (from >= to){
+				return false;
+			}
+			boolean negative = false;
+			if (entry[from] == '-' || entry[from] == '+'){
+				negative = entry[from] == '-';
+				from++;
+				if (from == to){
+					return false;
+				}
+			}
+			//the value is accumulated as a negative number so that Long.MIN_VALUE fits
+			long value = 0;
+			for (int i = from; i < to; i++){
+				if (entry[i] < '0' || entry[i] > '9'){
+					return false;
+				}
+				int digit = entry[i] - '0';
+				if (value < (Long.MIN_VALUE + digit) / 10){
+					return false;
+				}
+				value = value * 10 - digit;
+			}
+			if (!negative && value == Long.MIN_VALUE){
+				return false;
+			}
+			key = negative ? value : -value;
+			return true;
+		}
+
+		/*
+		 * Same as Character.isWhitespace for the ASCII characters.
+		 */
+		private static boolean isWhitespace(int b){
+			return b == ' ' || (b >= 0x09 && b <= 0x0D) || (b >= 0x1C && b <= 0x1F);
+		}
+	}
+}
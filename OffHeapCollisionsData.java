@@ -0,0 +1,469 @@
+package project5;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * This class is an AVL tree of collision records, like CollisionsData, whose nodes are kept
+ * outside of the Java heap. Every node is a fixed-width slot of SLOT_SIZE bytes in direct
+ * ByteBuffers: the indexes of the slots of its children, its height, the size of its subtree,
+ * the fields of its record (zip code, day number, unique key and the eight casualty counts) and
+ * the sums of the casualty counts of its subtree. The children are slot indexes instead of
+ * references, so the garbage collector sees a few large buffers instead of a Collision, a Node
+ * and a String object per record, however many records there are.
+ *
+ * The slots are allocated in chunks of CHUNK_SLOTS slots, so the tree grows without copying
+ * and is not limited to the 2 GB of a single buffer. The slots of removed nodes are reused.
+ *
+ * The tree has the same order, the same balancing and the same results as CollisionsData for
+ * add, addAll, remove, size and the reports. The records are not kept as Collision objects,
+ * so the queries that return Collision objects are only available on CollisionsData.
+ *
+ * @author Gayeon_Park
+ *
+ */
+public class OffHeapCollisionsData implements CollisionReporter {
+
+	//Index of a missing child
+	private static final int NIL = -1;
+	//Number of slots per chunk (a power of two) and the number of bits of a slot index within a chunk
+	static final int CHUNK_BITS = 16;
+	static final int CHUNK_SLOTS = 1 << CHUNK_BITS;
+	//Layout of a slot
+	private static final int LEFT = 0;
+	private static final int RIGHT = 4;
+	private static final int HEIGHT = 8;
+	private static final int SIZE = 12;
+	private static final int ZIP = 16;
+	private static final int DAY = 20;
+	private static final int KEY = 24;
+	//the eight counts of the record and then their eight sums over the subtree,
+	//both in the order of the columns of the input file
+	private static final int COUNTS = 32;
+	private static final int SUMS = 64;
+	static final int SLOT_SIZE = 96;
+
+	private ByteBuffer[] chunks = new ByteBuffer[0];
+	//Slot of the root, NIL when the tree is empty
+	private int root = NIL;
+	private int numOfElements;
+	//Slots that have never been used start at nextSlot, removed slots are linked from freeSlot
+	private int nextSlot;
+	private int freeSlot = NIL;
+	//Helper variable used by the remove methods
+	private boolean found;
+
+	/**
+	 * Creates an empty tree.
+	 */
+	public OffHeapCollisionsData(){
+	}
+
+	/**
+	 * Creates a tree with all the collisions of the given CollisionsData object.
+	 * The collisions are already sorted, so the tree is built directly from them.
+	 *
+	 * @param data the collisions to copy
+	 */
+	public OffHeapCollisionsData(CollisionsData data){
+		Collision[] items = data.toArray();
+		root = buildBalanced(items, 0, items.length - 1);
+		numOfElements = items.length;
+	}
+
+	/**
+	 * Adds the given Collision object to the tree.
+	 * If the item is null or if item already exists, the tree does not change.
+	 *
+	 * @param item the new element to be added to the tree
+	 */
+	public void add(Collision item){
+		if (item == null)
+			return;
+		root = add(root, item);
+	}
+
+	private int add(int node, Collision item){
+		if (node == NIL){
+			numOfElements++;
+			int leaf = newSlot(item);
+			updateHeight(leaf);
+			return leaf;
+		}
+		int compare = compare(node, item.getZipDay(), item.getKeyNumber());
+		if (compare > 0){
+			setInt(node, LEFT, add(getInt(node, LEFT), item));
+		} else if (compare < 0){
+			setInt(node, RIGHT, add(getInt(node, RIGHT), item));
+		} else {
+			return node;
+		}
+		return balance(node);
+	}
+
+	/**
+	 * Adds all the given Collision objects to the tree. When the tree is empty, the items are
+	 * sorted and the tree is built from them directly, otherwise they are added one at a time.
+	 *
+	 * @param items the new elements to be added to the tree
+	 */
+	public void addAll(Collection<Collision> items){
+		if (items == null || items.isEmpty())
+			return;
+		if (root != NIL){
+			for (Collision item : items){
+				add(item);
+			}
+			return;
+		}
+		Collision[] batch = new Collision[items.size()];
+		int count = 0;
+		for (Collision item : items){
+			if (item != null)
+				batch[count++] = item;
+		}
+		Arrays.parallelSort(batch, 0, count);
+		//Keep only the first of equal items, the same as add
+		int unique = 0;
+		for (int i = 0; i < count; i++){
+			if (unique == 0 || batch[unique - 1].compareTo(batch[i]) != 0)
+				batch[unique++] = batch[i];
+		}
+		root = buildBalanced(batch, 0, unique - 1);
+		numOfElements = unique;
+	}
+
+	/*
+	 * Builds a perfectly balanced tree from the sorted items [from, to].
+	 *
+	 * @return the slot of the root of the new subtree
+	 */
+	private int buildBalanced(Collision[] items, int from, int to){
+		if (from > to)
+			return NIL;
+		int middle = (from + to) >>> 1;
+		int node = newSlot(items[middle]);
+		setInt(node, LEFT, buildBalanced(items, from, middle - 1));
+		setInt(node, RIGHT, buildBalanced(items, middle + 1, to));
+		updateHeight(node);
+		return node;
+	}
+
+	/**
+	 * Returns true if the target was removed from the tree, or false if the target is null
+	 * or was not found in the tree and the tree did not change.
+	 *
+	 * @param target the item to be removed from this tree
+	 * @return true if the target was removed or false if the target was NOT removed
+	 */
+	public boolean remove(Collision target){
+		if (target == null)
+			return false;
+		root = remove(root, target.getZipDay(), target.getKeyNumber());
+		return found;
+	}
+
+	private int remove(int node, long zipDay, long key){
+		if (node == NIL){
+			found = false;
+			return NIL;
+		}
+		int compare = compare(node, zipDay, key);
+		if (compare > 0){
+			setInt(node, LEFT, remove(getInt(node, LEFT), zipDay, key));
+		} else if (compare < 0){
+			setInt(node, RIGHT, remove(getInt(node, RIGHT), zipDay, key));
+		} else {
+			int left = getInt(node, LEFT);
+			int right = getInt(node, RIGHT);
+			if (left == NIL || right == NIL){
+				numOfElements--;
+				freeSlot(node);
+				found = true;
+				return left == NIL ? right : left;
+			}
+			//Replace the record with the one of the predecessor, which is removed instead
+			int predecessor = left;
+			while (getInt(predecessor, RIGHT) != NIL){
+				predecessor = getInt(predecessor, RIGHT);
+			}
+			copyRecord(predecessor, node);
+			setInt(node, LEFT, remove(left, zipDay(node), getLong(node, KEY)));
+		}
+		return balance(node);
+	}
+
+	/**
+	 * Determines the number of elements stored in this tree.
+	 *
+	 * @return number of elements in this tree
+	 */
+	public int size(){
+		return numOfElements;
+	}
+
+	/**
+	 * Returns the number of bytes of direct memory allocated for the slots of this tree.
+	 *
+	 * @return the size of all the chunks in bytes
+	 */
+	public long offHeapBytes(){
+		return (long) chunks.length * CHUNK_SLOTS * SLOT_SIZE;
+	}
+
+	/**
+	 * Adds the collisions of the given zip code within the given date range (inclusive)
+	 * to the summary. The totals come from the sums kept in the slots, so it takes O(log n)
+	 * time, the same as CollisionsData.summarize.
+	 *
+	 * @param zip
+	 * @param dateBegin
+	 * @param dateEnd
+	 * @param summary the totals that the matching collisions are added to
+	 */
+	public void summarize(String zip, Date dateBegin, Date dateEnd, CollisionSummary summary){
+		int zipCode = Integer.parseInt(zip);
+		long low = Collision.zipDay(zipCode, dateBegin.getDayNumber());
+		long high = Collision.zipDay(zipCode, dateEnd.getDayNumber());
+		//Find the node where the paths to the two ends of the range split
+		int n = root;
+		while (n != NIL){
+			long zipDay = zipDay(n);
+			if (zipDay < low){
+				n = getInt(n, RIGHT);
+			} else if (zipDay > high){
+				n = getInt(n, LEFT);
+			} else {
+				break;
+			}
+		}
+		if (n == NIL){
+			return;
+		}
+		addRecord(summary, n);
+		for (int m = getInt(n, LEFT); m != NIL; ){
+			if (zipDay(m) >= low){
+				addRecord(summary, m);
+				addSubtree(summary, getInt(m, RIGHT));
+				m = getInt(m, LEFT);
+			} else {
+				m = getInt(m, RIGHT);
+			}
+		}
+		for (int m = getInt(n, RIGHT); m != NIL; ){
+			if (zipDay(m) <= high){
+				addRecord(summary, m);
+				addSubtree(summary, getInt(m, LEFT));
+				m = getInt(m, RIGHT);
+			} else {
+				m = getInt(m, LEFT);
+			}
+		}
+	}
+
+	/*
+	 * Adds the counts of the record of the slot to the summary.
+	 */
+	private void addRecord(CollisionSummary summary, int node){
+		addCounts(summary, node, 1, COUNTS);
+	}
+
+	/*
+	 * Adds the size and the sums of the subtree to the summary.
+	 */
+	private void addSubtree(CollisionSummary summary, int subtree){
+		if (subtree != NIL){
+			addCounts(summary, subtree, getInt(subtree, SIZE), SUMS);
+		}
+	}
+
+	/*
+	 * Adds the number of collisions and the eight counts that start at the given field
+	 * (in the order of the columns of the input file) to the summary.
+	 */
+	private void addCounts(CollisionSummary summary, int node, int collisions, int field){
+		ByteBuffer chunk = chunks[node >>> CHUNK_BITS];
+		int at = offset(node) + field;
+		summary.add(collisions, chunk.getInt(at + 4), chunk.getInt(at + 12), chunk.getInt(at + 20),
+				chunk.getInt(at + 28), chunk.getInt(at), chunk.getInt(at + 8), chunk.getInt(at + 16),
+				chunk.getInt(at + 24));
+	}
+
+	/*
+	 * Updates the height, the size and the sums of the slot from its record and its children,
+	 * the same as CollisionsData.updateHeight.
+	 */
+	private void updateHeight(int node){
+		int left = getInt(node, LEFT);
+		int right = getInt(node, RIGHT);
+		int height = Math.max(left == NIL ? -1 : getInt(left, HEIGHT), right == NIL ? -1 : getInt(right, HEIGHT)) + 1;
+		setInt(node, HEIGHT, height);
+		int size = 1;
+		ByteBuffer chunk = chunks[node >>> CHUNK_BITS];
+		int at = offset(node);
+		for (int i = 0; i < 32; i += 4){
+			int sum = chunk.getInt(at + COUNTS + i);
+			if (left != NIL)
+				sum += getInt(left, SUMS + i);
+			if (right != NIL)
+				sum += getInt(right, SUMS + i);
+			chunk.putInt(at + SUMS + i, sum);
+		}
+		if (left != NIL)
+			size += getInt(left, SIZE);
+		if (right != NIL)
+			size += getInt(right, SIZE);
+		chunk.putInt(at + SIZE, size);
+	}
+
+	/*
+	 * Returns the balance factor of the slot, the same as CollisionsData.balanceFactor.
+	 */
+	private int balanceFactor(int node){
+		int left = getInt(node, LEFT);
+		int right = getInt(node, RIGHT);
+		return (right == NIL ? -1 : getInt(right, HEIGHT)) - (left == NIL ? -1 : getInt(left, HEIGHT));
+	}
+
+	/*
+	 * Updates the slot after one of its subtrees changed and rotates it if its subtrees
+	 * differ in height by two.
+	 *
+	 * @return the slot of the new root of the subtree
+	 */
+	private int balance(int node){
+		updateHeight(node);
+		int factor = balanceFactor(node);
+		if (factor == 2){
+			if (balanceFactor(getInt(node, RIGHT)) < 0){
+				setInt(node, RIGHT, rotateRight(getInt(node, RIGHT)));
+			}
+			return rotateLeft(node);
+		}
+		if (factor == -2){
+			if (balanceFactor(getInt(node, LEFT)) > 0){
+				setInt(node, LEFT, rotateLeft(getInt(node, LEFT)));
+			}
+			return rotateRight(node);
+		}
+		return node;
+	}
+
+	/*
+	 * The LL rotation: the left child of a becomes the root of the subtree.
+	 */
+	private int rotateRight(int a){
+		int b = getInt(a, LEFT);
+		setInt(a, LEFT, getInt(b, RIGHT));
+		setInt(b, RIGHT, a);
+		updateHeight(a);
+		updateHeight(b);
+		return b;
+	}
+
+	/*
+	 * The RR rotation: the right child of a becomes the root of the subtree.
+	 */
+	private int rotateLeft(int a){
+		int b = getInt(a, RIGHT);
+		setInt(a, RIGHT, getInt(b, LEFT));
+		setInt(b, LEFT, a);
+		updateHeight(a);
+		updateHeight(b);
+		return b;
+	}
+
+	/*
+	 * Compares the record of the slot with the packed zip code and day and the unique key,
+	 * the same way Collision.compareTo does.
+	 */
+	private int compare(int node, long zipDay, long key){
+		long nodeZipDay = zipDay(node);
+		if (nodeZipDay != zipDay){
+			return nodeZipDay < zipDay ? -1 : 1;
+		}
+		long nodeKey = getLong(node, KEY);
+		if (nodeKey != key){
+			return nodeKey < key ? -1 : 1;
+		}
+		return 0;
+	}
+
+	private long zipDay(int node){
+		return Collision.zipDay(getInt(node, ZIP), getInt(node, DAY));
+	}
+
+	/*
+	 * Returns a slot with the record of the item and no children, reusing a removed slot
+	 * or taking a new one from the last chunk, which is allocated when it is needed.
+	 */
+	private int newSlot(Collision item){
+		int node;
+		if (freeSlot != NIL){
+			node = freeSlot;
+			freeSlot = getInt(node, LEFT);
+		} else {
+			node = nextSlot++;
+			if ((node >>> CHUNK_BITS) == chunks.length){
+				chunks = Arrays.copyOf(chunks, chunks.length + 1);
+				chunks[chunks.length - 1] = ByteBuffer.allocateDirect(CHUNK_SLOTS * SLOT_SIZE)
+						.order(ByteOrder.nativeOrder());
+			}
+		}
+		ByteBuffer chunk = chunks[node >>> CHUNK_BITS];
+		int at = offset(node);
+		chunk.putInt(at + LEFT, NIL);
+		chunk.putInt(at + RIGHT, NIL);
+		chunk.putInt(at + ZIP, item.getZipCode());
+		chunk.putInt(at + DAY, item.getDate().getDayNumber());
+		chunk.putLong(at + KEY, item.getKeyNumber());
+		chunk.putInt(at + COUNTS, item.getPersonsInjured());
+		chunk.putInt(at + COUNTS + 4, item.getPersonsKilled());
+		chunk.putInt(at + COUNTS + 8, item.getPedestriansInjured());
+		chunk.putInt(at + COUNTS + 12, item.getPedestriansKilled());
+		chunk.putInt(at + COUNTS + 16, item.getCyclistsInjured());
+		chunk.putInt(at + COUNTS + 20, item.getCyclistsKilled());
+		chunk.putInt(at + COUNTS + 24, item.getMotoristsInjured());
+		chunk.putInt(at + COUNTS + 28, item.getMotoristsKilled());
+		return node;
+	}
+
+	/*
+	 * Puts the slot on the list of removed slots, linked through their LEFT field.
+	 */
+	private void freeSlot(int node){
+		setInt(node, LEFT, freeSlot);
+		freeSlot = node;
+	}
+
+	/*
+	 * Copies the record (zip code, day, unique key and counts) of one slot to another.
+	 */
+	private void copyRecord(int from, int to){
+		ByteBuffer source = chunks[from >>> CHUNK_BITS];
+		ByteBuffer target = chunks[to >>> CHUNK_BITS];
+		int fromAt = offset(from);
+		int toAt = offset(to);
+		for (int i = ZIP; i < SUMS; i += 4){
+			target.putInt(toAt + i, source.getInt(fromAt + i));
+		}
+	}
+
+	private static int offset(int node){
+		return (node & (CHUNK_SLOTS - 1)) * SLOT_SIZE;
+	}
+
+	private int getInt(int node, int field){
+		return chunks[node >>> CHUNK_BITS].getInt(offset(node) + field);
+	}
+
+	private void setInt(int node, int field, int value){
+		chunks[node >>> CHUNK_BITS].putInt(offset(node) + field, value);
+	}
+
+	private long getLong(int node, int field){
+		return chunks[node >>> CHUNK_BITS].getLong(offset(node) + field);
+	}
+}
@@ -0,0 +1,244 @@
+package project5;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * This class reads the collision records of the input file on several threads.
+ * The memory-mapped file is split into byte ranges (chunks) that start and end at
+ * line boundaries, and the lines of every chunk are parsed and validated on a
+ * fork-join pool with the MappedCollisionReader.RowParser. The result is one list of
+ * valid collisions per chunk, in the order of the file.
+ *
+ * A line break always ends a record: the Scanner based reading splits the file with
+ * nextLine() before splitCSVLine sees the text, so quotes never continue on the next
+ * line. Cutting the file right after a line break therefore never splits a quoted
+ * entry and the chunks contain exactly the lines the sequential reading would see.
+ *
+ * @author Gayeon_Park
+ *
+ */
+public class ParallelCollisionReader {
+
+	//Number of chunks created for every thread, so that the threads stay busy
+	//when some chunks take longer than the others
+	private static final int CHUNKS_PER_THREAD = 4;
+
+	/**
+	 * Reads all valid collisions of the given file into a new CollisionsData object
+	 * using the given number of threads for parsing.
+	 * The first line of the file is a header and is skipped. Lines that do not make
+	 * a valid Collision object are skipped.
+	 *
+	 * @param file the input file
+	 * @param threads number of threads used for parsing
+	 * @return the CollisionsData object containing all the valid collisions of the file
+	 * @throws IOException when the file cannot be opened or mapped
+	 */
+	public static CollisionsData read(File file, int threads) throws IOException {
+		return read(file, threads, null);
+	}
+
+	/**
+	 * Reads all valid collisions of the given file into a new CollisionsData object
+	 * using the given number of threads for parsing, and writes the lines that do not make 
+	 * a valid Collision object to the quarantine file, in the order of the file.
+	 *
+	 * @param file the input file
+	 * @param threads number of threads used for parsing
+	 * @param quarantine the quarantine file of the rejected lines, or null
+	 * @return the CollisionsData object containing all the valid collisions of the file
+	 * @throws IOException when the file cannot be opened or mapped
+	 */
+	public static CollisionsData read(File file, int threads, CollisionQuarantine quarantine) throws IOException {
+		long start = System.nanoTime();
+		List<List<Collision>> chunks = readChunks(file, threads, quarantine);
+		CollisionMonitor.get().phase("parse", System.nanoTime() - start);
+		start = System.nanoTime();
+		int rows = 0;
+		for (List<Collision> chunk : chunks){
+			rows += chunk.size();
+		}
+		ArrayList<Collision> all = new ArrayList<Collision>(rows);
+		for (List<Collision> chunk : chunks){
+			all.addAll(chunk);
+		}
+		CollisionsData collisions = new CollisionsData();
+		collisions.addAll(all);
+		CollisionMonitor.get().phase("build", System.nanoTime() - start);
+		return collisions;
+	}
+
+	/**
+	 * Parses the given file on a fork-join pool with the given number of threads.
+	 * The first line of the file is a header and is skipped. Lines that do not make
+	 * a valid Collision object are skipped.
+	 *
+	 * @param file the input file
+	 * @param threads number of threads used for parsing
+	 * @return the valid collisions of every chunk, the chunks and the collisions within
+	 * a chunk are in the order of the file
+	 * @throws IOException when the file cannot be opened or mapped
+	 */
+	public static List<List<Collision>> readChunks(File file, int threads) throws IOException {
+		return readChunks(file, threads, null);
+	}
+
+	/*
+	 * Parses the given file like readChunks(file, threads) and writes the rejected lines to 
+	 * the quarantine file. The line numbers of a chunk are only known once the lines of the chunks 
+	 * before it are counted, so every chunk keeps the positions of its rejected lines, and the lines 
+	 * are handed to the quarantine file in the order of the file after all chunks are parsed.
+	 */
+	static List<List<Collision>> readChunks(File file, int threads, CollisionQuarantine quarantine) 
+			throws IOException {
+		if (threads < 1){
+			throw new IllegalArgumentException("Error: the number of threads has to be positive.");
+		}
+		ByteBuffer buffer = MappedCollisionReader.map(file);
+		int[] bounds = chunkBounds(buffer, threads * CHUNKS_PER_THREAD);
+		List<List<Collision>> chunks = new ArrayList<List<Collision>>(bounds.length - 1);
+		for (int i = 0; i < bounds.length - 1; i++){
+			chunks.add(new ArrayList<Collision>());
+		}
+
+		int[] lines = new int[chunks.size()];
+		RejectedLineList[] rejects = null;
+		if (quarantine != null){
+			rejects = new RejectedLineList[chunks.size()];
+			for (int i = 0; i < rejects.length; i++){
+				rejects[i] = new RejectedLineList();
+			}
+		}
+
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		try {
+			pool.invoke(new ParseTask(buffer, bounds, chunks, lines, rejects, 0, chunks.size()));
+		} finally {
+			pool.shutdown();
+		}
+		if (quarantine != null){
+			//The header is line 1
+			long firstLine = 2;
+			for (int i = 0; i < rejects.length; i++){
+				rejects[i].writeTo(quarantine, buffer, firstLine);
+				firstLine += lines[i];
+			}
+		}
+		return chunks;
+	}
+
+	/*
+	 * Splits the buffer into at most the given number of chunks of about the same size.
+	 * The first chunk starts after the header line and every other chunk starts
+	 * right after a line break.
+	 *
+	 * @return the positions where the chunks start, followed by the end of the buffer
+	 */
+	static int[] chunkBounds(ByteBuffer buffer, int chunks){
+		int limit = buffer.limit();
+		int first = MappedCollisionReader.nextLine(buffer, 0, limit);
+		long step = Math.max(1, (limit - first) / chunks);
+
+		int[] bounds = new int[chunks + 1];
+		int count = 0;
+		bounds[count++] = first;
+		for (int i = 1; i < chunks; i++){
+			long nominal = first + step * i;
+			if (nominal <= bounds[count - 1]){
+				continue;
+			}
+			//The line containing the byte before nominal ends the previous chunk
+			int start = MappedCollisionReader.nextLine(buffer, (int) nominal - 1, limit);
+			if (start > bounds[count - 1] && start < limit){
+				bounds[count++] = start;
+			}
+		}
+		bounds[count++] = limit;
+		int[] result = new int[count];
+		System.arraycopy(bounds, 0, result, 0, count);
+		return result;
+	}
+
+	/*
+	 * Parses the chunks [from, to) by splitting the range in halves until a single
+	 * chunk is left.
+	 */
+	private static class ParseTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final ByteBuffer buffer;
+		private final int[] bounds;
+		private final List<List<Collision>> chunks;
+		//Number of lines of every chunk and its rejected lines (null without a quarantine file)
+		private final int[] lines;
+		private final RejectedLineList[] rejects;
+		private final int from;
+		private final int to;
+
+		ParseTask(ByteBuffer buffer, int[] bounds, List<List<Collision>> chunks, int[] lines,
+				RejectedLineList[] rejects, int from, int to){
+			this.buffer = buffer;
+			this.bounds = bounds;
+			this.chunks = chunks;
+			this.lines = lines;
+			this.rejects = rejects;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute(){
+			if (to - from > 1){
+				int middle = (from + to) >>> 1;
+				invokeAll(new ParseTask(buffer, bounds, chunks, lines, rejects, from, middle),
+						new ParseTask(buffer, bounds, chunks, lines, rejects, middle, to));
+			} else if (to - from == 1){
+				//The parser only uses absolute reads, so the buffer can be shared by the tasks
+				List<Collision> out = chunks.get(from);
+				lines[from] = MappedCollisionReader.parseRange(buffer, bounds[from], bounds[from + 1],
+						new MappedCollisionReader.RowParser(), out::add, rejects == null ? null : rejects[from]);
+			}
+		}
+	}
+
+	/*
+	 * Keeps the rejected lines of a chunk as four ints each: the index of the line in the chunk,
+	 * the reason and the position of the line in the buffer.
+	 */
+	private static class RejectedLineList implements MappedCollisionReader.RejectedLines {
+
+		private static final CollisionMonitor.Reject[] REASONS = CollisionMonitor.Reject.values();
+
+		private int[] values = new int[64];
+		private int size;
+
+		@Override
+		public void reject(int line, CollisionMonitor.Reject reason, int start, int end){
+			if (size + 4 > values.length){
+				values = Arrays.copyOf(values, values.length * 2);
+			}
+			values[size++] = line;
+			values[size++] = reason.ordinal();
+			values[size++] = start;
+			values[size++] = end;
+		}
+
+		/*
+		 * Hands the rejected lines to the quarantine file, the first line of the chunk has the
+		 * given line number.
+		 */
+		void writeTo(CollisionQuarantine quarantine, ByteBuffer buffer, long firstLine){
+			for (int i = 0; i < size; i += 4){
+				quarantine.reject(firstLine + values[i], REASONS[values[i + 1]], buffer, values[i + 2], values[i + 3]);
+			}
+		}
+	}
+}
@@ -0,0 +1,323 @@
+package project5;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * This class is an AVL tree of collision records that can be read by many threads
+ * while another thread adds and removes records.
+ *
+ * The nodes of the tree never change after they are created. Adding or removing a record
+ * copies only the nodes on the path from the root to the changed node (O(log n) nodes) and
+ * the new root is then published atomically. A reader takes a Snapshot, which keeps seeing
+ * the tree exactly as it was when the snapshot was taken, without any locking.
+ * Writers are serialized with a lock, so there is one change at a time.
+ *
+ * @author Gayeon_Park
+ *
+ */
+public class PersistentCollisionsData implements CollisionReporter {
+
+	//The latest version of the tree
+	private final AtomicReference<Snapshot> current = new AtomicReference<Snapshot>(new Snapshot(null, 0));
+	//Lock that lets only one writer change the tree at a time
+	private final Object writeLock = new Object();
+
+	/**
+	 * Returns the current version of the tree. The snapshot does not change when
+	 * records are added or removed later.
+	 *
+	 * @return the current snapshot
+	 */
+	public Snapshot snapshot(){
+		return current.get();
+	}
+
+	/**
+	 * Determines the number of elements in the current version of the tree.
+	 *
+	 * @return number of elements in the tree
+	 */
+	public int size(){
+		return current.get().size();
+	}
+
+	/**
+	 * This method adds the given Collision object to the tree.
+	 * If the item is null or if item already exists, the tree does not change.
+	 *
+	 * @param item the new element to be added to the tree
+	 */
+	public void add(Collision item){
+		if (item == null)
+			return;
+		synchronized (writeLock){
+			Snapshot snapshot = current.get();
+			Node root = add(snapshot.root, item);
+			if (root != snapshot.root){
+				current.set(new Snapshot(root, snapshot.size + 1));
+			}
+		}
+	}
+
+	/**
+	 * This method adds all the given Collision objects to the tree and publishes them
+	 * as one new version. The items are sorted and merged with the items of the tree,
+	 * and the tree is built once from the merged items, the same way CollisionsData.addAll 
+	 * does it. As with add, null items are ignored and an item equal to one that is already 
+	 * in the tree (or to an earlier item of the collection) does not change the tree.
+	 *
+	 * @param items the new elements to be added to the tree
+	 */
+	public void addAll(Collection<Collision> items){
+		if (items == null || items.isEmpty())
+			return;
+		Collision[] batch = new Collision[items.size()];
+		int batchSize = 0;
+		for (Collision item : items){
+			if (item != null)
+				batch[batchSize++] = item;
+		}
+		//The parallel sort is stable, so the first of several equal items stays first
+		Arrays.parallelSort(batch, 0, batchSize);
+		synchronized (writeLock){
+			Collision[] current = inOrder(this.current.get());
+			//Merge the items of the tree with the batch, keeping only the first of equal items
+			Collision[] merged = new Collision[current.length + batchSize];
+			int count = 0;
+			int i = 0;
+			int j = 0;
+			while (i < current.length || j < batchSize){
+				Collision next;
+				if (j == batchSize || (i < current.length && current[i].compareTo(batch[j]) <= 0))
+					next = current[i++];
+				else
+					next = batch[j++];
+				if (count == 0 || merged[count - 1].compareTo(next) != 0)
+					merged[count++] = next;
+			}
+			this.current.set(new Snapshot(build(merged, 0, count - 1), count));
+		}
+	}
+
+	/**
+	 * Returns true if the target was removed from the tree
+	 * or returns false if the target is null or was not found in the tree.
+	 *
+	 * @param target the item to be removed from this tree
+	 * @return true if the target was removed or false if the target was NOT removed
+	 */
+	public boolean remove(Collision target){
+		if (target == null)
+			return false;
+		synchronized (writeLock){
+			Snapshot snapshot = current.get();
+			Node root = remove(snapshot.root, target);
+			if (root == snapshot.root){
+				return false;
+			}
+			current.set(new Snapshot(root, snapshot.size - 1));
+			return true;
+		}
+	}
+
+	/**
+	 * Adds the collisions of the current version of the tree to the summary.
+	 * @see Snapshot#summarize(String, Date, Date, CollisionSummary)
+	 */
+	public void summarize(String zip, Date dateBegin, Date dateEnd, CollisionSummary summary){
+		current.get().summarize(zip, dateBegin, dateEnd, summary);
+	}
+
+	/*
+	 * Returns a subtree with the item added, copying the nodes on the path to it.
+	 * If the item is already in the subtree, the same subtree is returned.
+	 */
+	private static Node add(Node node, Collision item){
+		if (node == null)
+			return new Node(item, null, null);
+		int compare = item.compareTo(node.data);
+		if (compare < 0){
+			Node left = add(node.left, item);
+			return left == node.left ? node : balance(node.data, left, node.right);
+		} else if (compare > 0){
+			Node right = add(node.right, item);
+			return right == node.right ? node : balance(node.data, node.left, right);
+		}
+		return node;
+	}
+
+	/*
+	 * Returns a subtree with the target removed, copying the nodes on the path to it.
+	 * If the target is not in the subtree, the same subtree is returned.
+	 */
+	private static Node remove(Node node, Collision target){
+		if (node == null)
+			return null;
+		int compare = target.compareTo(node.data);
+		if (compare < 0){
+			Node left = remove(node.left, target);
+			return left == node.left ? node : balance(node.data, left, node.right);
+		} else if (compare > 0){
+			Node right = remove(node.right, target);
+			return right == node.right ? node : balance(node.data, node.left, right);
+		}
+		if (node.left == null)
+			return node.right;
+		if (node.right == null)
+			return node.left;
+		//The predecessor takes the place of the removed node
+		Node predecessor = node.left;
+		while (predecessor.right != null)
+			predecessor = predecessor.right;
+		return balance(predecessor.data, remove(node.left, predecessor.data), node.right);
+	}
+
+	/*
+	 * Creates a node with the given data and subtrees, with a single or a double rotation
+	 * when the heights of the subtrees differ by two.
+	 */
+	private static Node balance(Collision data, Node left, Node right){
+		int leftHeight = height(left);
+		int rightHeight = height(right);
+		if (leftHeight > rightHeight + 1){
+			if (height(left.left) >= height(left.right)){
+				//LL rotation
+				return new Node(left.data, left.left, new Node(data, left.right, right));
+			}
+			//LR rotation
+			Node c = left.right;
+			return new Node(c.data, new Node(left.data, left.left, c.left), new Node(data, c.right, right));
+		} else if (rightHeight > leftHeight + 1){
+			if (height(right.right) >= height(right.left)){
+				//RR rotation
+				return new Node(right.data, new Node(data, left, right.left), right.right);
+			}
+			//RL rotation
+			Node c = right.left;
+			return new Node(c.data, new Node(data, left, c.left), new Node(right.data, c.right, right.right));
+		}
+		return new Node(data, left, right);
+	}
+
+	private static int height(Node node){
+		return node == null ? -1 : node.height;
+	}
+
+	/*
+	 * Builds a perfectly balanced tree from the sorted items [from, to].
+	 */
+	private static Node build(Collision[] items, int from, int to){
+		if (from > to)
+			return null;
+		int middle = (from + to) >>> 1;
+		return new Node(items[middle], build(items, from, middle - 1), build(items, middle + 1, to));
+	}
+
+	/*
+	 * Returns the items of the snapshot in sorted order.
+	 */
+	private static Collision[] inOrder(Snapshot snapshot){
+		Collision[] items = new Collision[snapshot.size];
+		inOrderFill(snapshot.root, items, 0);
+		return items;
+	}
+
+	private static int inOrderFill(Node node, Collision[] items, int index){
+		if (node == null)
+			return index;
+		index = inOrderFill(node.left, items, index);
+		items[index++] = node.data;
+		return inOrderFill(node.right, items, index);
+	}
+
+	/**
+	 * A Snapshot is one immutable version of the tree. It can be queried by any number of
+	 * threads at the same time.
+	 *
+	 * @author Gayeon_Park
+	 *
+	 */
+	public static final class Snapshot implements CollisionReporter {
+
+		private final Node root;
+		private final int size;
+
+		private Snapshot(Node root, int size){
+			this.root = root;
+			this.size = size;
+		}
+
+		/**
+		 * Determines the number of elements in this version of the tree.
+		 *
+		 * @return number of elements in the tree
+		 */
+		public int size(){
+			return size;
+		}
+
+		/*
+		 * Returns the height of this version of the tree, -1 when it is empty.
+		 */
+		int height(){
+			return PersistentCollisionsData.height(root);
+		}
+
+		/*
+		 * Returns the items of this version of the tree in sorted order.
+		 */
+		Collision[] toArray(){
+			return inOrder(this);
+		}
+
+		/**
+		 * Adds the collisions of the given zip code within the given date range (inclusive)
+		 * to the summary. The totals are the same as the ones of CollisionsData.summarize.
+		 *
+		 * @param zip
+		 * @param dateBegin
+		 * @param dateEnd
+		 * @param summary the totals that the matching collisions are added to
+		 */
+		public void summarize(String zip, Date dateBegin, Date dateEnd, CollisionSummary summary){
+			int zipCode = Integer.parseInt(zip);
+			find(Collision.zipDay(zipCode, dateBegin.getDayNumber()), Collision.zipDay(zipCode, dateEnd.getDayNumber()),
+					root, summary);
+		}
+
+		/*
+		 * Adds the collisions of the subtree between the packed numbers low and high
+		 * (see Collision.zipDay) to the summary.
+		 */
+		private static void find(long low, long high, Node n, CollisionSummary summary){
+			if (n == null)
+				return;
+			long zipDay = n.data.getZipDay();
+			if (zipDay >= low && zipDay <= high)
+				summary.add(n.data);
+			if (zipDay >= low)
+				find(low, high, n.left, summary);
+			if (zipDay <= high)
+				find(low, high, n.right, summary);
+		}
+	}
+
+	/*
+	 * Node of the persistent tree, all of its fields are final.
+	 */
+	private static final class Node {
+		private final Collision data;
+		private final Node left;
+		private final Node right;
+		private final int height;
+
+		Node(Collision data, Node left, Node right){
+			this.data = data;
+			this.left = left;
+			this.right = right;
+			this.height = Math.max(height(left), height(right)) + 1;
+		}
+	}
+}
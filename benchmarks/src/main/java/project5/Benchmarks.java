@@ -0,0 +1,626 @@
+package project5;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.Scanner;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * This class contains simple benchmarks that compare the different ways of loading
+ * and querying the collision data. It is run from the command line with the name of
+ * the benchmark and its arguments, for example:
+ *
+ *	java -cp benchmarks/target/benchmarks.jar project5.Benchmarks ingest collisions.csv 5
+ *
+ * The time is measured with System.nanoTime() and the allocated bytes are read
+ * from the ThreadMXBean of the running JVM.
+ *
+ * @author Gayeon_Park
+ *
+ */
+public class Benchmarks {
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+		if (args.length < 2) {
+			System.err.println("Usage: java project5.Benchmarks ingest <file> [rounds] [quarantine]");
+			System.err.println("       java project5.Benchmarks scaling <file> [maxThreads]");
+			System.err.println("       java project5.Benchmarks tree <size> [queries]");
+			System.err.println("       java project5.Benchmarks store <size> [queries]");
+			System.err.println("       java project5.Benchmarks concurrent <size> [readers] [seconds]");
+			System.err.println("       java project5.Benchmarks summary <size> [queries]");
+			System.err.println("       java project5.Benchmarks snapshot <file> [rounds]");
+			System.err.println("       java project5.Benchmarks offheap <size> [queries]");
+			System.err.println("       java project5.Benchmarks http <url> [clients] [seconds]");
+			System.exit(1);
+		}
+		if (args[0].equals("ingest")){
+			int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+			File quarantine = args.length > 3 ? new File(args[3]) : null;
+			ingest(new File(args[1]), rounds, quarantine);
+		} else if (args[0].equals("tree")){
+			int size = Integer.parseInt(args[1]);
+			int queries = args.length > 2 ? Integer.parseInt(args[2]) : 100000;
+			tree(size, queries);
+		} else if (args[0].equals("store")){
+			int size = Integer.parseInt(args[1]);
+			int queries = args.length > 2 ? Integer.parseInt(args[2]) : 100000;
+			store(size, queries);
+		} else if (args[0].equals("concurrent")){
+			int size = Integer.parseInt(args[1]);
+			int readers = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+			int seconds = args.length > 3 ? Integer.parseInt(args[3]) : 5;
+			concurrent(size, readers, seconds);
+		} else if (args[0].equals("summary")){
+			int size = Integer.parseInt(args[1]);
+			int queries = args.length > 2 ? Integer.parseInt(args[2]) : 100000;
+			summary(size, queries);
+		} else if (args[0].equals("snapshot")){
+			int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+			snapshot(new File(args[1]), rounds);
+		} else if (args[0].equals("offheap")){
+			int size = Integer.parseInt(args[1]);
+			int queries = args.length > 2 ? Integer.parseInt(args[2]) : 1000000;
+			offHeap(size, queries);
+		} else if (args[0].equals("http")){
+			int clients = args.length > 2 ? Integer.parseInt(args[2]) : 16;
+			int seconds = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+			http(args[1], clients, seconds);
+		} else if (args[0].equals("scaling")){
+			int maxThreads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+			scaling(new File(args[1]), maxThreads);
+		} else {
+			System.err.println("Error: unknown benchmark " + args[0]);
+			System.exit(1);
+		}
+	}
+
+	/*
+	 * Compares reading the file with the Scanner and splitCSVLine against the
+	 * memory-mapped reader. Each reader is run the given number of rounds,
+	 * the first round of each is reported separately as the warm up round.
+	 * With a quarantine file every round also writes the rejected rows to it, and the
+	 * time includes closing the file.
+	 */
+	private static void ingest(File file, int rounds, File quarantineFile) throws IOException {
+		System.out.printf("%-8s %5s %10s %10s %14s%n", "reader", "round", "rows", "ms", "allocated MB");
+		for (int round = 0; round < rounds; round++){
+			long bytes = allocatedBytes();
+			long start = System.nanoTime();
+			CollisionQuarantine quarantine = quarantineFile == null ? null : new CollisionQuarantine(quarantineFile);
+			CollisionsData data = readWithScanner(file, quarantine);
+			if (quarantine != null){
+				quarantine.close();
+			}
+			report("scanner", round, data.size(), System.nanoTime() - start, allocatedBytes() - bytes);
+		}
+		for (int round = 0; round < rounds; round++){
+			long bytes = allocatedBytes();
+			long start = System.nanoTime();
+			CollisionQuarantine quarantine = quarantineFile == null ? null : new CollisionQuarantine(quarantineFile);
+			CollisionsData data = MappedCollisionReader.read(file, quarantine);
+			if (quarantine != null){
+				quarantine.close();
+			}
+			report("mapped", round, data.size(), System.nanoTime() - start, allocatedBytes() - bytes);
+		}
+	}
+
+	/*
+	 * Measures the rows per second of the parallel parsing with 1, 2, 4, ... threads
+	 * up to maxThreads. Only the parsing is measured, not adding the rows to the tree.
+	 * Every thread count is run twice and the faster run is reported.
+	 */
+	private static void scaling(File file, int maxThreads) throws IOException {
+		System.out.printf("%7s %10s %10s %12s %8s%n", "threads", "rows", "ms", "rows/s", "speedup");
+		double single = 0;
+		for (int threads = 1; threads <= maxThreads; threads = threads < maxThreads ? Math.min(threads * 2, maxThreads) : threads + 1){
+			long best = Long.MAX_VALUE;
+			int rows = 0;
+			for (int run = 0; run < 2; run++){
+				long start = System.nanoTime();
+				rows = 0;
+				for (List<Collision> chunk : ParallelCollisionReader.readChunks(file, threads)){
+					rows += chunk.size();
+				}
+				best = Math.min(best, System.nanoTime() - start);
+			}
+			double rowsPerSecond = rows / (best / 1e9);
+			if (threads == 1){
+				single = rowsPerSecond;
+			}
+			System.out.printf("%7d %10d %10.1f %12.0f %8.2f%n", threads, rows, best / 1e6, rowsPerSecond, rowsPerSecond / single);
+		}
+	}
+
+	/*
+	 * Compares loading the file with the mapped reader against loading it from a snapshot,
+	 * either by rebuilding the tree or by only opening the snapshot to query it in place.
+	 * The snapshot is written next to the file (with the extension .snapshot).
+	 */
+	private static void snapshot(File file, int rounds) throws IOException {
+		File snapshotFile = new File(file.getPath() + ".snapshot");
+		long length = file.length();
+		long modified = file.lastModified();
+		long start = System.nanoTime();
+		CollisionsData data = MappedCollisionReader.read(file);
+		System.out.printf("read %d rows from the file in %.1f ms%n", data.size(), (System.nanoTime() - start) / 1e6);
+		start = System.nanoTime();
+		CollisionSnapshot.write(data, snapshotFile, length, modified);
+		System.out.printf("wrote %s (%d bytes) in %.1f ms%n", snapshotFile, snapshotFile.length(),
+				(System.nanoTime() - start) / 1e6);
+		data = null;
+
+		System.out.printf("%-8s %5s %10s %10s%n", "load", "round", "rows", "ms");
+		for (int round = 0; round < rounds; round++){
+			start = System.nanoTime();
+			CollisionSnapshot snapshot = CollisionSnapshot.open(snapshotFile, file);
+			System.out.printf("%-8s %5d %10d %10.1f%n", "open", round, snapshot.size(), (System.nanoTime() - start) / 1e6);
+			start = System.nanoTime();
+			CollisionsData tree = snapshot.toCollisionsData();
+			System.out.printf("%-8s %5d %10d %10.1f%n", "tree", round, tree.size(), (System.nanoTime() - start) / 1e6);
+		}
+	}
+
+	/*
+	 * Measures adding the given number of random collisions to the tree one at a time
+	 * and running getReport for random zip codes over random one month date ranges.
+	 * Every measurement is repeated three times with a new tree.
+	 */
+	private static void tree(int size, int queries){
+		Collision[] collisions = randomCollisions(size, 42);
+		Random random = new Random(7);
+		String[] zips = new String[queries];
+		Date[] begins = new Date[queries];
+		Date[] ends = new Date[queries];
+		for (int i = 0; i < queries; i++){
+			zips[i] = Collision.zipString(ZIPS[random.nextInt(ZIPS.length)]);
+			//ranges of one month
+			int year = 2012 + random.nextInt(6);
+			int month = 1 + random.nextInt(12);
+			begins[i] = new Date(year, month, 1);
+			ends[i] = new Date(year, month, 31);
+		}
+
+		System.out.printf("%5s %10s %12s %10s %16s %12s%n", "round", "size", "add ns/op", "queries", "getReport ns/op", "report chars");
+		for (int round = 0; round < 3; round++){
+			CollisionsData data = new CollisionsData();
+			long start = System.nanoTime();
+			for (Collision c : collisions){
+				data.add(c);
+			}
+			long addNanos = System.nanoTime() - start;
+
+			int length = 0;
+			start = System.nanoTime();
+			for (int i = 0; i < queries; i++){
+				length += data.getReport(zips[i], begins[i], ends[i]).length();
+			}
+			long queryNanos = System.nanoTime() - start;
+			//the total length of the reports is printed so that the queries cannot be optimized away
+			System.out.printf("%5d %10d %12.1f %10d %16.1f %12d%n", round, data.size(), (double) addNanos / size,
+					queries, (double) queryNanos / queries, length);
+		}
+	}
+
+	/*
+	 * Compares the retained heap and the getReport time of the tree with the columnar store
+	 * and the aggregate index built from it, for the given number of random collisions.
+	 */
+	private static void store(int size, int queries){
+		long empty = usedHeap();
+		CollisionsData data = new CollisionsData();
+		data.addAll(Arrays.asList(randomCollisions(size, 42)));
+		long treeBytes = usedHeap() - empty;
+		CollisionStore store = new CollisionStore(data);
+		long bothBytes = usedHeap() - empty;
+		System.out.printf("tree:  %10.1f MB %8.1f bytes/record%n", treeBytes / 1e6, (double) treeBytes / size);
+		System.out.printf("store: %10.1f MB %8.1f bytes/record%n", (bothBytes - treeBytes) / 1e6, (double) (bothBytes - treeBytes) / size);
+		CollisionAggregateIndex index = new CollisionAggregateIndex(data);
+		long allBytes = usedHeap() - empty;
+		System.out.printf("index: %10.1f MB %8.1f bytes/record%n", (allBytes - bothBytes) / 1e6, (double) (allBytes - bothBytes) / size);
+
+		Random random = new Random(7);
+		String[] zips = new String[queries];
+		Date[] begins = new Date[queries];
+		Date[] ends = new Date[queries];
+		for (int i = 0; i < queries; i++){
+			zips[i] = Collision.zipString(ZIPS[random.nextInt(ZIPS.length)]);
+			int year = 2012 + random.nextInt(6);
+			begins[i] = new Date(year, 1, 1);
+			ends[i] = new Date(year, 12, 31);
+		}
+		System.out.printf("%5s %18s %18s %18s%n", "round", "tree ns/query", "store ns/query", "index ns/query");
+		for (int round = 0; round < 3; round++){
+			long start = System.nanoTime();
+			for (int i = 0; i < queries; i++){
+				data.getReport(zips[i], begins[i], ends[i]);
+			}
+			long treeNanos = System.nanoTime() - start;
+			start = System.nanoTime();
+			for (int i = 0; i < queries; i++){
+				store.getReport(zips[i], begins[i], ends[i]);
+			}
+			long storeNanos = System.nanoTime() - start;
+			start = System.nanoTime();
+			for (int i = 0; i < queries; i++){
+				index.getReport(zips[i], begins[i], ends[i]);
+			}
+			long indexNanos = System.nanoTime() - start;
+			System.out.printf("%5d %18.1f %18.1f %18.1f%n", round, (double) treeNanos / queries, 
+					(double) storeNanos / queries, (double) indexNanos / queries);
+		}
+	}
+
+	/*
+	 * Measures the throughput of reader threads running getReport while one writer thread
+	 * keeps adding and removing records. The persistent tree, where the readers take snapshots
+	 * without locking, is compared with a CollisionsData object guarded by a read-write lock.
+	 */
+	private static void concurrent(int size, int readers, int seconds) throws InterruptedException {
+		Collision[] collisions = randomCollisions(size, 42);
+		List<Collision> initial = Arrays.asList(collisions).subList(0, size / 2);
+
+		PersistentCollisionsData persistent = new PersistentCollisionsData();
+		persistent.addAll(initial);
+		CollisionsData locked = new CollisionsData();
+		locked.addAll(initial);
+		ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+		System.out.printf("%-12s %8s %16s %16s%n", "tree", "readers", "queries/s", "writes/s");
+		for (int round = 0; round < 2; round++){
+			long[] persistentResult = runConcurrent(collisions, readers, seconds,
+					(zip, begin, end, summary) -> persistent.snapshot().summarize(zip, begin, end, summary),
+					c -> { if (!persistent.remove(c)) persistent.add(c); });
+			System.out.printf("%-12s %8d %16.0f %16.0f%n", "persistent", readers,
+					persistentResult[0] / (double) seconds, persistentResult[1] / (double) seconds);
+
+			long[] lockedResult = runConcurrent(collisions, readers, seconds,
+					(zip, begin, end, summary) -> {
+						lock.readLock().lock();
+						try {
+							locked.summarize(zip, begin, end, summary);
+						} finally {
+							lock.readLock().unlock();
+						}
+					},
+					c -> {
+						lock.writeLock().lock();
+						try {
+							if (!locked.remove(c)) locked.add(c);
+						} finally {
+							lock.writeLock().unlock();
+						}
+					});
+			System.out.printf("%-12s %8d %16.0f %16.0f%n", "locked", readers,
+					lockedResult[0] / (double) seconds, lockedResult[1] / (double) seconds);
+		}
+	}
+
+	/*
+	 * Runs the readers and the writer for the given number of seconds.
+	 *
+	 * @return the number of queries and the number of writes
+	 */
+	private static long[] runConcurrent(Collision[] collisions, int readers, int seconds,
+			CollisionReporter reporter, Consumer<Collision> writer) throws InterruptedException {
+		AtomicBoolean running = new AtomicBoolean(true);
+		LongAdder queries = new LongAdder();
+		LongAdder writes = new LongAdder();
+		List<Thread> threads = new ArrayList<Thread>();
+		for (int r = 0; r < readers; r++){
+			long seed = r;
+			threads.add(new Thread(() -> {
+				Random random = new Random(seed);
+				CollisionSummary summary = new CollisionSummary();
+				while (running.get()){
+					int year = 2012 + random.nextInt(6);
+					int month = 1 + random.nextInt(12);
+					summary.clear();
+					reporter.summarize(Collision.zipString(ZIPS[random.nextInt(ZIPS.length)]),
+							new Date(year, month, 1), new Date(year, month, 31), summary);
+					queries.increment();
+				}
+			}));
+		}
+		threads.add(new Thread(() -> {
+			Random random = new Random(-1);
+			while (running.get()){
+				writer.accept(collisions[random.nextInt(collisions.length)]);
+				writes.increment();
+			}
+		}));
+		for (Thread t : threads){
+			t.start();
+		}
+		Thread.sleep(seconds * 1000L);
+		running.set(false);
+		for (Thread t : threads){
+			t.join();
+		}
+		return new long[] {queries.sum(), writes.sum()};
+	}
+
+	/*
+	 * Measures the time and the allocated bytes per query of summarize with a reused
+	 * CollisionSummary, compared with getReport, on the tree, the columnar store and
+	 * the aggregate index. The first round warms up the JIT compiler.
+	 */
+	private static void summary(int size, int queries){
+		CollisionsData data = new CollisionsData();
+		data.addAll(Arrays.asList(randomCollisions(size, 42)));
+		CollisionReporter[] reporters = {data, new CollisionStore(data), new CollisionAggregateIndex(data)};
+		String[] names = {"tree", "store", "index"};
+
+		Random random = new Random(7);
+		String[] zips = new String[queries];
+		Date[] begins = new Date[queries];
+		Date[] ends = new Date[queries];
+		for (int i = 0; i < queries; i++){
+			zips[i] = Collision.zipString(ZIPS[random.nextInt(ZIPS.length)]);
+			int year = 2012 + random.nextInt(6);
+			int month = 1 + random.nextInt(12);
+			begins[i] = new Date(year, month, 1);
+			ends[i] = new Date(year, month, 31);
+		}
+
+		CollisionSummary summary = new CollisionSummary();
+		System.out.printf("%5s %-6s %16s %16s %18s %18s%n", "round", "data", "summarize ns/op", "summarize B/op",
+				"getReport ns/op", "getReport B/op");
+		for (int round = 0; round < 3; round++){
+			for (int r = 0; r < reporters.length; r++){
+				CollisionReporter reporter = reporters[r];
+				int total = 0;
+				long bytes = allocatedBytes();
+				long start = System.nanoTime();
+				for (int i = 0; i < queries; i++){
+					summary.clear();
+					reporter.summarize(zips[i], begins[i], ends[i], summary);
+					total += summary.getCollisions();
+				}
+				long summarizeNanos = System.nanoTime() - start;
+				long summarizeBytes = allocatedBytes() - bytes;
+
+				bytes = allocatedBytes();
+				start = System.nanoTime();
+				for (int i = 0; i < queries; i++){
+					total += reporter.getReport(zips[i], begins[i], ends[i]).length();
+				}
+				long reportNanos = System.nanoTime() - start;
+				long reportBytes = allocatedBytes() - bytes;
+				System.out.printf("%5d %-6s %16.1f %16.1f %18.1f %18.1f%s%n", round, names[r],
+						(double) summarizeNanos / queries, (double) summarizeBytes / queries,
+						(double) reportNanos / queries, (double) reportBytes / queries, total == 0 ? " (no matches)" : "");
+			}
+		}
+	}
+
+	/*
+	 * Compares the tree of Collision and Node objects with the tree kept in direct memory,
+	 * for the given number of random collisions: the heap and the direct memory they retain,
+	 * the time of a full garbage collection while they are alive, and the time of the queries
+	 * with the garbage collections that happen during them (getReport allocates its report,
+	 * so the young generation fills up while the queries run).
+	 */
+	private static void offHeap(int size, int queries){
+		Random random = new Random(7);
+		String[] zips = new String[queries];
+		Date[] begins = new Date[queries];
+		Date[] ends = new Date[queries];
+		for (int i = 0; i < queries; i++){
+			zips[i] = Collision.zipString(ZIPS[random.nextInt(ZIPS.length)]);
+			int year = 2012 + random.nextInt(6);
+			int month = 1 + random.nextInt(12);
+			begins[i] = new Date(year, month, 1);
+			ends[i] = new Date(year, month, 31);
+		}
+
+		System.out.printf("%-8s %10s %10s %12s %14s %10s %12s%n", "tree", "heap MB", "direct MB", "full GC ms",
+				"ns/query", "young GCs", "GC ms");
+		for (int round = 0; round < 2; round++){
+			long empty = usedHeap();
+			CollisionsData heap = new CollisionsData();
+			heap.addAll(Arrays.asList(randomCollisions(size, 42)));
+			offHeapRound("heap", heap, 0, usedHeap() - empty, zips, begins, ends);
+			heap = null;
+
+			empty = usedHeap();
+			OffHeapCollisionsData direct = new OffHeapCollisionsData();
+			direct.addAll(Arrays.asList(randomCollisions(size, 42)));
+			offHeapRound("offheap", direct, direct.offHeapBytes(), usedHeap() - empty, zips, begins, ends);
+			direct = null;
+		}
+	}
+
+	private static void offHeapRound(String name, CollisionReporter reporter, long directBytes, long heapBytes,
+			String[] zips, Date[] begins, Date[] ends){
+		long start = System.nanoTime();
+		System.gc();
+		long fullGcNanos = System.nanoTime() - start;
+
+		long[] gcBefore = gcCountAndMillis();
+		int length = 0;
+		start = System.nanoTime();
+		for (int i = 0; i < zips.length; i++){
+			length += reporter.getReport(zips[i], begins[i], ends[i]).length();
+		}
+		long queryNanos = System.nanoTime() - start;
+		long[] gcAfter = gcCountAndMillis();
+		System.out.printf("%-8s %10.1f %10.1f %12.1f %14.1f %10d %12d%s%n", name, heapBytes / 1e6, directBytes / 1e6,
+				fullGcNanos / 1e6, (double) queryNanos / zips.length, gcAfter[0] - gcBefore[0], gcAfter[1] - gcBefore[1],
+				length == 0 ? " (no matches)" : "");
+	}
+
+	/*
+	 * Sends queries to a running server (see CollisionServer) from the given number of clients
+	 * and prints the requests per second and the percentiles of the latency. Every client sends
+	 * its next request when the last one is answered: 90% of the requests are reports of a random
+	 * zip code and date range of the synthetic data, 10% are zip range queries of 40 zip codes.
+	 * The first round warms up the server.
+	 */
+	private static void http(String url, int clients, int seconds) throws InterruptedException {
+		String base = url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+		HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+		System.out.printf("%-8s %8s %12s %10s %10s %10s %10s %8s%n", "round", "clients", "requests/s",
+				"p50 us", "p99 us", "p99.9 us", "max us", "errors");
+		for (int round = 0; round < 2; round++){
+			AtomicBoolean running = new AtomicBoolean(true);
+			LongAdder errors = new LongAdder();
+			long[][] latencies = new long[clients][];
+			int[] counts = new int[clients];
+			Thread[] threads = new Thread[clients];
+			for (int t = 0; t < clients; t++){
+				int index = t;
+				threads[t] = new Thread(() -> {
+					Random random = new Random(42 + index);
+					long[] times = new long[1 << 12];
+					int count = 0;
+					while (running.get()){
+						URI uri = URI.create(base + randomQuery(random));
+						long start = System.nanoTime();
+						try {
+							HttpResponse<String> response = client.send(HttpRequest.newBuilder(uri).GET().build(),
+									HttpResponse.BodyHandlers.ofString());
+							if (response.statusCode() != 200){
+								errors.increment();
+							}
+						} catch (IOException e){
+							errors.increment();
+						} catch (InterruptedException e){
+							break;
+						}
+						if (count == times.length){
+							times = Arrays.copyOf(times, count * 2);
+						}
+						times[count++] = System.nanoTime() - start;
+					}
+					latencies[index] = times;
+					counts[index] = count;
+				});
+				threads[t].start();
+			}
+			Thread.sleep(seconds * 1000L);
+			running.set(false);
+			for (Thread thread : threads){
+				thread.join();
+			}
+			int total = 0;
+			for (int count : counts){
+				total += count;
+			}
+			long[] all = new long[total];
+			for (int t = 0, at = 0; t < clients; t++){
+				System.arraycopy(latencies[t], 0, all, at, counts[t]);
+				at += counts[t];
+			}
+			Arrays.sort(all);
+			System.out.printf("%-8s %8d %12.0f %10.1f %10.1f %10.1f %10.1f %8d%n", round == 0 ? "warm-up" : "measured",
+					clients, total / (double) seconds, CollisionBatch.percentile(all, 0.5) / 1e3,
+					CollisionBatch.percentile(all, 0.99) / 1e3, CollisionBatch.percentile(all, 0.999) / 1e3,
+					(all.length == 0 ? 0 : all[all.length - 1]) / 1e3, errors.sum());
+		}
+	}
+
+	/*
+	 * Returns the path and query of a random request of the load test, with the zip codes
+	 * and the dates of the synthetic data (see CsvGenerator).
+	 */
+	private static String randomQuery(Random random){
+		int zip = 10001 + random.nextInt(1500);
+		String start = (1 + random.nextInt(12)) + "/" + (1 + random.nextInt(28)) + "/" + (2012 + random.nextInt(3));
+		String end = (1 + random.nextInt(12)) + "/" + (1 + random.nextInt(28)) + "/" + (2015 + random.nextInt(3));
+		if (random.nextInt(10) == 0){
+			return "/zips?low=" + zip + "&high=" + (zip + 39) + "&start=" + start + "&end=" + end;
+		}
+		return "/report?zip=" + zip + "&start=" + start + "&end=" + end;
+	}
+
+	/*
+	 * Returns the number of garbage collections and their total time in milliseconds
+	 * since the JVM started, over all the collectors.
+	 */
+	private static long[] gcCountAndMillis(){
+		long count = 0;
+		long millis = 0;
+		for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()){
+			count += Math.max(0, gc.getCollectionCount());
+			millis += Math.max(0, gc.getCollectionTime());
+		}
+		return new long[] {count, millis};
+	}
+
+	/*
+	 * Returns the heap used after a few garbage collections.
+	 */
+	private static long usedHeap(){
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++){
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	//Zip codes used for the random collisions
+	static final int[] ZIPS = {10001, 10002, 10003, 10016, 10019, 10025, 10282, 10451, 10458, 10467,
+			11201, 11207, 11208, 11212, 11215, 11220, 11226, 11234, 11235, 11236,
+			11354, 11355, 11368, 11373, 11385, 11434, 10301, 10306, 10312, 10314};
+
+	/*
+	 * Creates random collisions with the zip codes of ZIPS, dates between 2012 and 2017
+	 * and unique keys that are all different.
+	 */
+	static Collision[] randomCollisions(int size, long seed){
+		Random random = new Random(seed);
+		Collision[] collisions = new Collision[size];
+		int[] counts = new int[8];
+		for (int i = 0; i < size; i++){
+			for (int j = 0; j < counts.length; j++){
+				counts[j] = random.nextInt(10) < 8 ? 0 : random.nextInt(3);
+			}
+			Date date = Date.valueOf(2012 + random.nextInt(6), 1 + random.nextInt(12), 1 + random.nextInt(28));
+			collisions[i] = new Collision(date, ZIPS[random.nextInt(ZIPS.length)], i + 1, counts);
+		}
+		//Shuffle the keys so that the collisions are not added in order of their keys
+		for (int i = size - 1; i > 0; i--){
+			int j = random.nextInt(i + 1);
+			Collision temp = collisions[i];
+			collisions[i] = collisions[j];
+			collisions[j] = temp;
+		}
+		return collisions;
+	}
+
+	private static CollisionsData readWithScanner(File file, CollisionQuarantine quarantine) throws FileNotFoundException {
+		Scanner scanner = new Scanner(file);
+		try {
+			return CollisionInfo.readCollisions(scanner, quarantine);
+		} finally {
+			scanner.close();
+		}
+	}
+
+	private static void report(String name, int round, int rows, long nanos, long bytes){
+		System.out.printf("%-8s %5d %10d %10.1f %14.1f%n", name, round, rows, nanos / 1e6, bytes / 1e6);
+	}
+
+	/*
+	 * Returns the number of bytes allocated so far by the current thread.
+	 */
+	static long allocatedBytes(){
+		return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+				.getCurrentThreadAllocatedBytes();
+	}
+}
@@ -0,0 +1,75 @@
+package project5;
+
+import java.util.Arrays;
+import java.util.SortedMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmarks of the queries over all the zip codes of one week, with and without
+ * the secondary index ordered by date: the citywide totals, the totals of every zip code,
+ * and a visit of every collision of the week.
+ *
+ * @author Gayeon_Park
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class CityBenchmark {
+
+	@Param({"10000", "1000000"})
+	private int size;
+
+	@Param({"false", "true"})
+	private boolean dateIndex;
+
+	private CollisionsData data;
+	private final Date begin = Date.valueOf(2015, 7, 1);
+	private final Date end = Date.valueOf(2015, 7, 7);
+	private final CollisionSummary summary = new CollisionSummary();
+	private int visited;
+
+	@Setup
+	public void setUp(){
+		data = new CollisionsData();
+		data.addAll(Arrays.asList(Benchmarks.randomCollisions(size, 42)));
+		if (dateIndex){
+			data.createDateIndex();
+		}
+	}
+
+	@Benchmark
+	public int summarizeCity(){
+		summary.clear();
+		data.summarizeCity(begin, end, summary);
+		return summary.getCollisions();
+	}
+
+	@Benchmark
+	public SortedMap<String, CollisionSummary> summarizeAllZips(){
+		summary.clear();
+		return data.summarizeZips("00000", "99999", begin, end, summary);
+	}
+
+	@Benchmark
+	public int forEachInDates(){
+		visited = 0;
+		data.forEachInDates(begin, end, c -> visited++);
+		return visited;
+	}
+}
@@ -0,0 +1,163 @@
+package project5;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * This class writes synthetic collision data in the format of the NYPD Motor Vehicle Collisions
+ * file: the same 29 columns and header, quoted entries with commas, empty zip codes and
+ * some invalid rows. The same seed always produces the same file, so the results of
+ * different runs of the benchmarks can be compared. It is run from the command line with
+ * the name of the output file, the number of rows and optionally the seed and the fraction
+ * of invalid rows, for example:
+ *
+ *	java project5.CsvGenerator collisions.csv 1000000 42 0.05
+ *
+ * @author Gayeon_Park
+ *
+ */
+public class CsvGenerator {
+
+	static final String HEADER = "DATE,TIME,BOROUGH,ZIP CODE,LATITUDE,LONGITUDE,LOCATION,ON STREET NAME,"
+			+ "CROSS STREET NAME,OFF STREET NAME,NUMBER OF PERSONS INJURED,NUMBER OF PERSONS KILLED,"
+			+ "NUMBER OF PEDESTRIANS INJURED,NUMBER OF PEDESTRIANS KILLED,NUMBER OF CYCLIST INJURED,"
+			+ "NUMBER OF CYCLIST KILLED,NUMBER OF MOTORIST INJURED,NUMBER OF MOTORIST KILLED,"
+			+ "CONTRIBUTING FACTOR VEHICLE 1,CONTRIBUTING FACTOR VEHICLE 2,CONTRIBUTING FACTOR VEHICLE 3,"
+			+ "CONTRIBUTING FACTOR VEHICLE 4,CONTRIBUTING FACTOR VEHICLE 5,UNIQUE KEY,VEHICLE TYPE CODE 1,"
+			+ "VEHICLE TYPE CODE 2,VEHICLE TYPE CODE 3,VEHICLE TYPE CODE 4,VEHICLE TYPE CODE 5";
+
+	private static final String[] BOROUGHS = {"BROOKLYN", "QUEENS", "MANHATTAN", "BRONX", "STATEN ISLAND"};
+	private static final String[] STREETS = {"ATLANTIC AVENUE", "BROADWAY", "\"PENNSYLVANIA AVENUE, EAST\"",
+			"FLATBUSH AVENUE", "GRAND CONCOURSE", "QUEENS BOULEVARD", "HYLAN BOULEVARD", "3 AVENUE"};
+	private static final String[] FACTORS = {"Driver Inattention/Distraction", "Unspecified",
+			"Failure to Yield Right-of-Way", "Following Too Closely", "Backing Unsafely"};
+	private static final String[] VEHICLES = {"PASSENGER VEHICLE", "SPORT UTILITY / STATION WAGON", "TAXI",
+			"BICYCLE", "BUS"};
+	//Rows that splitCSVLine, the Date or the Collision constructor reject
+	private static final String[] INVALID_DATES = {"13/01/2017", "01/32/2017", "01/01/1899", "ab/01/2017"};
+	private static final String[] INVALID_ZIPS = {"1120", "112077", "11a07"};
+
+	private final Random random;
+	private final double invalidRate;
+	private long nextKey = 3000000;
+
+	/**
+	 * Creates a generator of rows.
+	 *
+	 * @param seed the seed of the random numbers, the same seed gives the same rows
+	 * @param invalidRate the fraction of the rows (0 to 1) that are rejected by the program
+	 */
+	public CsvGenerator(long seed, double invalidRate){
+		this.random = new Random(seed);
+		this.invalidRate = invalidRate;
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2) {
+			System.err.println("Usage: java project5.CsvGenerator <file> <rows> [seed] [invalidRate]");
+			System.exit(1);
+		}
+		int rows = Integer.parseInt(args[1]);
+		long seed = args.length > 2 ? Long.parseLong(args[2]) : 42;
+		double invalidRate = args.length > 3 ? Double.parseDouble(args[3]) : 0.05;
+		new CsvGenerator(seed, invalidRate).write(new File(args[0]), rows);
+	}
+
+	/**
+	 * Writes the header and the given number of rows to the file.
+	 *
+	 * @param file the file to write
+	 * @param rows the number of rows after the header
+	 * @throws IOException if the file cannot be written
+	 */
+	public void write(File file, int rows) throws IOException {
+		Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8),
+				1 << 16);
+		try {
+			out.write(HEADER);
+			out.write('\n');
+			for (int i = 0; i < rows; i++){
+				out.write(nextLine());
+				out.write('\n');
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Returns the next row, without the line break.
+	 *
+	 * @return the next row of the file
+	 */
+	public String nextLine(){
+		boolean invalid = random.nextDouble() < invalidRate;
+		int broken = invalid ? random.nextInt(4) : -1;
+		StringBuilder line = new StringBuilder(256);
+
+		//DATE, TIME, BOROUGH, ZIP CODE
+		if (broken == 0){
+			line.append(INVALID_DATES[random.nextInt(INVALID_DATES.length)]);
+		} else {
+			line.append(String.format("%02d/%02d/%d", 1 + random.nextInt(12), 1 + random.nextInt(28),
+					2012 + random.nextInt(6)));
+		}
+		line.append(',').append(random.nextInt(24)).append(':').append(String.format("%02d", random.nextInt(60)));
+		int zip = 10001 + random.nextInt(1500);
+		if (broken == 1){
+			//rows without a zip code are common in the real data
+			line.append(",,");
+		} else if (broken == 2){
+			line.append(',').append(BOROUGHS[random.nextInt(BOROUGHS.length)]).append(',')
+				.append(INVALID_ZIPS[random.nextInt(INVALID_ZIPS.length)]);
+		} else {
+			line.append(',').append(BOROUGHS[random.nextInt(BOROUGHS.length)]).append(',').append(zip);
+		}
+
+		//LATITUDE, LONGITUDE, LOCATION and the street names
+		String latitude = String.format(Locale.ROOT, "%.6f", 40.5 + random.nextInt(400000) / 1e6);
+		String longitude = String.format(Locale.ROOT, "%.6f", -74.2 + random.nextInt(500000) / 1e6);
+		line.append(',').append(latitude).append(',').append(longitude);
+		line.append(",\"(").append(latitude).append(", ").append(longitude).append(")\"");
+		line.append(',').append(STREETS[random.nextInt(STREETS.length)]);
+		line.append(',').append(STREETS[random.nextInt(STREETS.length)]);
+		line.append(',');
+
+		//the eight counts, most collisions have no injuries and no fatalities
+		int[] counts = new int[8];
+		for (int j = 2; j < 8; j += 2){
+			counts[j] = random.nextInt(10) < 8 ? 0 : 1 + random.nextInt(2);
+			counts[j + 1] = random.nextInt(1000) == 0 ? 1 : 0;
+			counts[0] += counts[j];
+			counts[1] += counts[j + 1];
+		}
+		for (int j = 0; j < 8; j++){
+			line.append(',').append(counts[j]);
+		}
+
+		//contributing factors, UNIQUE KEY and vehicle types
+		for (int j = 0; j < 5; j++){
+			line.append(',');
+			if (j < 2)
+				line.append(FACTORS[random.nextInt(FACTORS.length)]);
+		}
+		if (broken == 3){
+			//a short row with no unique key
+			return line.toString();
+		}
+		line.append(',').append(nextKey++);
+		for (int j = 0; j < 5; j++){
+			line.append(',');
+			if (j < 2)
+				line.append(VEHICLES[random.nextInt(VEHICLES.length)]);
+		}
+		return line.toString();
+	}
+}
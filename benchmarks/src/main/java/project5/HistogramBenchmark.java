@@ -0,0 +1,68 @@
+package project5;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmarks of the monthly totals of one zip code over five years (60 months):
+ * once with a single histogram call, and once with one getReport call per month,
+ * the way the trend charts were made before.
+ *
+ * @author Gayeon_Park
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class HistogramBenchmark {
+
+	@Param({"10000", "1000000"})
+	private int size;
+
+	@Param({"DAY", "MONTH"})
+	private CollisionBucket bucket;
+
+	private CollisionsData data;
+	private final String zip = "11207";
+	private final Date begin = Date.valueOf(2012, 1, 1);
+	private final Date end = Date.valueOf(2016, 12, 31);
+
+	@Setup
+	public void setUp(){
+		data = new CollisionsData();
+		data.addAll(Arrays.asList(Benchmarks.randomCollisions(size, 42)));
+	}
+
+	@Benchmark
+	public CollisionSummary[] histogram(){
+		return data.histogram(zip, begin, end, bucket);
+	}
+
+	@Benchmark
+	public List<String> reportPerMonth(){
+		List<String> reports = new ArrayList<String>();
+		for (int year = 2012; year <= 2016; year++){
+			for (int month = 1; month <= 12; month++){
+				reports.add(data.getReport(zip, Date.valueOf(year, month, 1), Date.valueOf(year, month, 31)));
+			}
+		}
+		return reports;
+	}
+}
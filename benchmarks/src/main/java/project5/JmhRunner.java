@@ -0,0 +1,30 @@
+package project5;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the JMH benchmarks with the GC profiler, so that every result reports the throughput,
+ * the average time and the allocation rate (gc.alloc.rate.norm is the number of bytes
+ * allocated per operation). The arguments are the usual JMH command line options,
+ * for example to run only the reports on the smallest tree:
+ *
+ *	java -jar benchmarks/target/benchmarks.jar ReportBenchmark -p size=10000
+ *
+ * @author Gayeon_Park
+ *
+ */
+public class JmhRunner {
+
+	public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+		CommandLineOptions options = new CommandLineOptions(args);
+		new Runner(new OptionsBuilder()
+				.parent(options)
+				.addProfiler(GCProfiler.class)
+				.build()).run();
+	}
+}
@@ -0,0 +1,117 @@
+package project5;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmarks of finding and removing collisions by their unique key alone: a lookup with
+ * getByKey, the same lookup by walking the tree the way it had to be done before, a removal by
+ * key followed by adding the collision back, and a batch of corrections with removeAllByKeys
+ * (timed once per batch, on a new tree each time).
+ *
+ * @author Gayeon_Park
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class KeyIndexBenchmark {
+
+	@Param({"10000", "1000000"})
+	private int size;
+
+	private Collision[] collisions;
+	private CollisionsData data;
+	private final Random random = new Random(7);
+
+	@Setup
+	public void setUp(){
+		collisions = Benchmarks.randomCollisions(size, 42);
+		data = new CollisionsData();
+		data.addAll(Arrays.asList(collisions));
+		data.getByKey(0);
+	}
+
+	private long randomKey(){
+		return collisions[random.nextInt(collisions.length)].getKeyNumber();
+	}
+
+	@Benchmark
+	public Collision getByKey(){
+		return data.getByKey(randomKey());
+	}
+
+	@Benchmark
+	public Collision findByScan(){
+		long key = randomKey();
+		for (Collision c : data.rangeOfZips("00000", "99999")){
+			if (c.getKeyNumber() == key)
+				return c;
+		}
+		return null;
+	}
+
+	@Benchmark
+	public boolean removeByKeyThenAdd(){
+		long key = randomKey();
+		Collision c = data.getByKey(key);
+		boolean removed = data.removeByKey(key);
+		data.add(c);
+		return removed;
+	}
+
+	/**
+	 * A batch of corrections, the fraction of the tree that is removed at once is a parameter.
+	 */
+	@State(Scope.Thread)
+	public static class Batch {
+
+		@Param({"10000", "1000000"})
+		private int size;
+
+		@Param({"0.001", "0.01", "0.1"})
+		private double fraction;
+
+		private CollisionsData data;
+		private long[] keys;
+
+		@Setup(Level.Invocation)
+		public void setUp(){
+			Collision[] collisions = Benchmarks.randomCollisions(size, 42);
+			data = new CollisionsData();
+			data.addAll(Arrays.asList(collisions));
+			data.getByKey(0);
+			Random random = new Random(11);
+			keys = new long[(int) (collisions.length * fraction)];
+			for (int i = 0; i < keys.length; i++){
+				keys[i] = collisions[random.nextInt(collisions.length)].getKeyNumber();
+			}
+		}
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@Warmup(iterations = 3)
+	@Measurement(iterations = 5)
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public int removeAllByKeys(Batch batch){
+		return batch.data.removeAllByKeys(batch.keys);
+	}
+}
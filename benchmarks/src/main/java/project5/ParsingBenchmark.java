@@ -0,0 +1,75 @@
+package project5;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmarks of the parsing of one row of the input file: splitting the line with
+ * CollisionInfo.splitCSVLine, parsing the date with the Date(String) constructor and
+ * creating the Collision object from the entries. The rows come from CsvGenerator and
+ * are all valid, so that every operation does the whole work.
+ *
+ * @author Gayeon_Park
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParsingBenchmark {
+
+	//Number of different rows, a power of two
+	private static final int ROWS = 1024;
+
+	private String[] lines;
+	private String[] dates;
+	private List<ArrayList<String>> entries;
+	private int next;
+
+	@Setup
+	public void setUp(){
+		CsvGenerator generator = new CsvGenerator(42, 0);
+		lines = new String[ROWS];
+		dates = new String[ROWS];
+		entries = new ArrayList<ArrayList<String>>(ROWS);
+		for (int i = 0; i < ROWS; i++){
+			lines[i] = generator.nextLine();
+			entries.add(CollisionInfo.splitCSVLine(lines[i]));
+			dates[i] = entries.get(i).get(0);
+		}
+	}
+
+	@Benchmark
+	public ArrayList<String> splitCSVLine(){
+		return CollisionInfo.splitCSVLine(lines[next++ & (ROWS - 1)]);
+	}
+
+	@Benchmark
+	public Date parseDate(){
+		return new Date(dates[next++ & (ROWS - 1)]);
+	}
+
+	@Benchmark
+	public Collision createCollision(){
+		return new Collision(entries.get(next++ & (ROWS - 1)));
+	}
+
+	@Benchmark
+	public Collision parseRow(){
+		return new Collision(CollisionInfo.splitCSVLine(lines[next++ & (ROWS - 1)]));
+	}
+}
@@ -0,0 +1,86 @@
+package project5;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmarks of the reports of CollisionsData for trees of different sizes and date ranges
+ * of different widths (in days). getReport includes the formatting of the text, summarize
+ * only collects the totals into a reused CollisionSummary.
+ *
+ * @author Gayeon_Park
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class ReportBenchmark {
+
+	//Number of different queries, a power of two
+	private static final int QUERIES = 1024;
+
+	@Param({"10000", "1000000", "10000000"})
+	private int size;
+
+	@Param({"1", "30", "365", "1826"})
+	private int days;
+
+	private CollisionsData data;
+	private String[] zips;
+	private Date[] begins;
+	private Date[] ends;
+	private final CollisionSummary summary = new CollisionSummary();
+	private int next;
+
+	@Setup
+	public void setUp(){
+		data = new CollisionsData();
+		data.addAll(Arrays.asList(Benchmarks.randomCollisions(size, 42)));
+
+		//ranges within 2012 to 2017, the years of the random collisions
+		Random random = new Random(7);
+		LocalDate first = LocalDate.of(2012, 1, 1);
+		int starts = 6 * 365 - days + 1;
+		zips = new String[QUERIES];
+		begins = new Date[QUERIES];
+		ends = new Date[QUERIES];
+		for (int i = 0; i < QUERIES; i++){
+			LocalDate begin = first.plusDays(random.nextInt(starts));
+			LocalDate end = begin.plusDays(days - 1);
+			zips[i] = Integer.toString(Benchmarks.ZIPS[random.nextInt(Benchmarks.ZIPS.length)]);
+			begins[i] = new Date(begin.getYear(), begin.getMonthValue(), begin.getDayOfMonth());
+			ends[i] = new Date(end.getYear(), end.getMonthValue(), end.getDayOfMonth());
+		}
+	}
+
+	@Benchmark
+	public String getReport(){
+		int i = next++ & (QUERIES - 1);
+		return data.getReport(zips[i], begins[i], ends[i]);
+	}
+
+	@Benchmark
+	public int summarize(){
+		int i = next++ & (QUERIES - 1);
+		summary.clear();
+		data.summarize(zips[i], begins[i], ends[i], summary);
+		return summary.getCollisions();
+	}
+}
@@ -0,0 +1,90 @@
+package project5;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmarks of getReport for a small set of queries that are asked again and again,
+ * the way the dashboards ask them: without the report cache, with the cache (all hits after
+ * the first round), and with the cache while a collision of a queried zip code is added and
+ * removed before every query, which invalidates its reports.
+ *
+ * @author Gayeon_Park
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class ReportCacheBenchmark {
+
+	@Param({"1000000"})
+	private int size;
+
+	private CollisionsData plain;
+	private CollisionsData cached;
+	private String[] zips;
+	private Date[] begins;
+	private Date[] ends;
+	private Collision extra;
+	private int next;
+
+	@Setup
+	public void setUp(){
+		Collision[] collisions = Benchmarks.randomCollisions(size, 42);
+		plain = new CollisionsData();
+		plain.addAll(Arrays.asList(collisions));
+		cached = new CollisionsData();
+		cached.addAll(Arrays.asList(collisions));
+		cached.createReportCache(1000);
+
+		//100 queries of one month
+		Random random = new Random(7);
+		zips = new String[100];
+		begins = new Date[100];
+		ends = new Date[100];
+		for (int i = 0; i < zips.length; i++){
+			zips[i] = Collision.zipString(Benchmarks.ZIPS[random.nextInt(Benchmarks.ZIPS.length)]);
+			int year = 2012 + random.nextInt(6);
+			int month = 1 + random.nextInt(12);
+			begins[i] = Date.valueOf(year, month, 1);
+			ends[i] = Date.valueOf(year, month, 31);
+		}
+		extra = new Collision(begins[0], Integer.parseInt(zips[0]), -1, new int[8]);
+	}
+
+	@Benchmark
+	public String withoutCache(){
+		int i = next++ % zips.length;
+		return plain.getReport(zips[i], begins[i], ends[i]);
+	}
+
+	@Benchmark
+	public String withCache(){
+		int i = next++ % zips.length;
+		return cached.getReport(zips[i], begins[i], ends[i]);
+	}
+
+	@Benchmark
+	public String withCacheAndWrites(){
+		int i = next++ % zips.length;
+		cached.add(extra);
+		cached.remove(extra);
+		return cached.getReport(zips[i], begins[i], ends[i]);
+	}
+}
@@ -0,0 +1,78 @@
+package project5;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmarks of the ten zip codes with the most persons killed over one year:
+ * once with topZips of a CollisionStore, once with one getReport call of the tree for every
+ * zip code, the way it had to be done before, and once with one summarize call of the store
+ * for every zip code followed by sorting the summaries.
+ *
+ * @author Gayeon_Park
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class TopZipsBenchmark {
+
+	@Param({"10000", "1000000"})
+	private int size;
+
+	private CollisionsData data;
+	private CollisionStore store;
+	private final Date begin = Date.valueOf(2015, 1, 1);
+	private final Date end = Date.valueOf(2015, 12, 31);
+
+	@Setup
+	public void setUp(){
+		data = new CollisionsData();
+		data.addAll(Arrays.asList(Benchmarks.randomCollisions(size, 42)));
+		store = new CollisionStore(data);
+	}
+
+	@Benchmark
+	public Map<String, CollisionSummary> topZips(){
+		return store.topZips(begin, end, CollisionMetric.PERSONS_KILLED, 10);
+	}
+
+	@Benchmark
+	public List<String> reportPerZip(){
+		List<String> reports = new ArrayList<String>();
+		for (int zip : Benchmarks.ZIPS){
+			reports.add(data.getReport(Collision.zipString(zip), begin, end));
+		}
+		return reports;
+	}
+
+	@Benchmark
+	public List<CollisionSummary> summarizePerZip(){
+		List<CollisionSummary> summaries = new ArrayList<CollisionSummary>();
+		for (int zip : Benchmarks.ZIPS){
+			CollisionSummary summary = new CollisionSummary();
+			store.summarize(Collision.zipString(zip), begin, end, summary);
+			summaries.add(summary);
+		}
+		summaries.sort((a, b) -> Integer.compare(b.getPersonsKilled(), a.getPersonsKilled()));
+		return summaries.subList(0, 10);
+	}
+}
@@ -0,0 +1,72 @@
+package project5;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmarks of CollisionsData.add and CollisionsData.remove on trees of different sizes.
+ * Every operation is paired with the opposite one so that the tree keeps its size during
+ * the whole measurement: addThenRemove adds a collision that is not in the tree and removes
+ * it again, removeThenAdd removes a collision of the tree and adds it back.
+ *
+ * @author Gayeon_Park
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class TreeBenchmark {
+
+	//Number of collisions used by the operations, a power of two
+	private static final int OPERANDS = 1 << 16;
+
+	@Param({"10000", "1000000", "10000000"})
+	private int size;
+
+	private CollisionsData data;
+	private Collision[] absent;
+	private Collision[] present;
+	private int next;
+
+	@Setup
+	public void setUp(){
+		Collision[] collisions = Benchmarks.randomCollisions(size + OPERANDS, 42);
+		data = new CollisionsData();
+		data.addAll(Arrays.asList(collisions).subList(0, size));
+		absent = Arrays.copyOfRange(collisions, size, size + OPERANDS);
+		present = new Collision[OPERANDS];
+		for (int i = 0; i < OPERANDS; i++){
+			present[i] = collisions[i % size];
+		}
+	}
+
+	@Benchmark
+	public boolean addThenRemove(){
+		Collision c = absent[next++ & (OPERANDS - 1)];
+		data.add(c);
+		return data.remove(c);
+	}
+
+	@Benchmark
+	public boolean removeThenAdd(){
+		Collision c = present[next++ & (OPERANDS - 1)];
+		boolean removed = data.remove(c);
+		data.add(c);
+		return removed;
+	}
+}
@@ -0,0 +1,68 @@
+package project5;
+
+import java.util.Arrays;
+import java.util.SortedMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmarks of a report for all the zip codes that start with "11" over one year:
+ * once with a single call of summarizeZipPrefix, and once with one summarize call
+ * for every zip code from 11000 to 11999, the way it had to be done before.
+ *
+ * @author Gayeon_Park
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class ZipRangeBenchmark {
+
+	@Param({"10000", "1000000"})
+	private int size;
+
+	private CollisionsData data;
+	private String[] zips;
+	private final Date begin = Date.valueOf(2015, 1, 1);
+	private final Date end = Date.valueOf(2015, 12, 31);
+	private final CollisionSummary summary = new CollisionSummary();
+
+	@Setup
+	public void setUp(){
+		data = new CollisionsData();
+		data.addAll(Arrays.asList(Benchmarks.randomCollisions(size, 42)));
+		zips = new String[1000];
+		for (int i = 0; i < zips.length; i++){
+			zips[i] = Integer.toString(11000 + i);
+		}
+	}
+
+	@Benchmark
+	public SortedMap<String, CollisionSummary> summarizeZipPrefix(){
+		summary.clear();
+		return data.summarizeZipPrefix("11", begin, end, summary);
+	}
+
+	@Benchmark
+	public int summarizePerZip(){
+		summary.clear();
+		for (String zip : zips){
+			data.summarize(zip, begin, end, summary);
+		}
+		return summary.getCollisions();
+	}
+}
@@ -0,0 +1,117 @@
+package project5;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Randomized checks of getByKey, removeByKey and removeAllByKeys of CollisionsData against a
+ * sorted set of the same collisions. The unique keys are drawn from a small range, so that the
+ * tree often holds several collisions with the same key and a different zip code or date:
+ * every one of them has to stay reachable by its key until it is removed.
+ *
+ * @author Gayeon_Park
+ *
+ */
+public class CollisionKeyIndexTest {
+
+	private static final int[] ZIPS = {10001, 10453, 11207};
+	private static final int KEYS = 2000;
+
+	@Test
+	public void duplicateKeysStayReachable(){
+		Random random = new Random(19);
+		CollisionsData data = new CollisionsData();
+		TreeSet<Collision> expected = new TreeSet<Collision>();
+		for (int i = 0; i < 3000; i++){
+			Collision c = randomCollision(random);
+			data.add(c);
+			expected.add(c);
+		}
+		//the index is created from the tree that already has duplicate keys
+		data.getByKey(0);
+		for (int i = 1; i <= 30000; i++){
+			int operation = random.nextInt(10);
+			if (operation < 5){
+				Collision c = randomCollision(random);
+				data.add(c);
+				expected.add(c);
+			} else if (operation < 7){
+				Collision c = randomCollision(random);
+				assertEquals(expected.remove(c), data.remove(c));
+			} else if (operation < 9){
+				long key = random.nextInt(KEYS);
+				Collision c = data.getByKey(key);
+				assertEquals(c != null, data.removeByKey(key));
+				if (c != null){
+					assertTrue(expected.remove(c));
+				}
+			} else {
+				long[] keys = new long[1 + random.nextInt(5)];
+				for (int k = 0; k < keys.length; k++){
+					keys[k] = random.nextInt(KEYS);
+				}
+				int removed = 0;
+				for (Collision c : new ArrayList<Collision>(expected)){
+					for (long key : keys){
+						if (c.getKeyNumber() == key){
+							expected.remove(c);
+							removed++;
+							break;
+						}
+					}
+				}
+				assertEquals(removed, data.removeAllByKeys(keys));
+			}
+			if (i % 1000 == 0){
+				check(data, expected);
+			}
+		}
+
+		//removing a key until removeByKey fails removes all the collisions of the key
+		for (long key = 0; key < KEYS; key++){
+			while (data.removeByKey(key)){
+			}
+		}
+		assertEquals(0, data.size());
+	}
+
+	/*
+	 * Checks that every key of the expected collisions finds one of them, that the other keys find
+	 * nothing and that the tree has the expected collisions.
+	 */
+	private static void check(CollisionsData data, TreeSet<Collision> expected){
+		assertEquals(expected.size(), data.size());
+		List<List<Collision>> byKey = new ArrayList<List<Collision>>();
+		for (int key = 0; key < KEYS; key++){
+			byKey.add(new ArrayList<Collision>());
+		}
+		for (Collision c : expected){
+			byKey.get((int) c.getKeyNumber()).add(c);
+		}
+		for (int key = 0; key < KEYS; key++){
+			Collision c = data.getByKey(key);
+			if (byKey.get(key).isEmpty()){
+				assertNull(c, "key " + key);
+			} else {
+				assertTrue(c != null && byKey.get(key).contains(c), "key " + key);
+				assertSame(expected.ceiling(c), c, "key " + key);
+			}
+		}
+		assertFalse(data.removeByKey(KEYS));
+	}
+
+	private static Collision randomCollision(Random random){
+		Date date = Date.valueOf(2016, 1 + random.nextInt(12), 1 + random.nextInt(28));
+		return new Collision(date, ZIPS[random.nextInt(ZIPS.length)], random.nextInt(KEYS), new int[8]);
+	}
+}
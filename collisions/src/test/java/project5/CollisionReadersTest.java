@@ -0,0 +1,87 @@
+package project5;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Scanner;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Checks that the three ways of reading the input file agree: readCollisions with the Scanner and
+ * splitCSVLine, the byte-level RowParser of MappedCollisionReader and ParallelCollisionReader with
+ * several numbers of threads. The seeded rows of TestRows have quoted and smart-quoted entries,
+ * spaces, "\n", "\r\n" and "\r" line ends, short rows and rows broken for every reject reason; every
+ * reader has to return the same collisions and reject the same number of rows for every reason.
+ *
+ * @author Gayeon_Park
+ *
+ */
+public class CollisionReadersTest {
+
+	@TempDir
+	File directory;
+
+	@Test
+	public void readersReturnTheSameCollisionsAndRejects() throws IOException {
+		for (long seed = 1; seed <= 5; seed++){
+			TestRows rows = new TestRows(seed, 3000);
+			File file = new File(directory, "collisions" + seed + ".csv");
+			rows.write(file);
+
+			long[] before = rejected();
+			Scanner scanner = new Scanner(file, "UTF-8");
+			List<String> expected = signatures(CollisionInfo.readCollisions(scanner));
+			scanner.close();
+			assertEquals(rows.count(null), expected.size(), "valid rows of seed " + seed);
+			assertRejected(rows, before, "scanner, seed " + seed);
+
+			before = rejected();
+			assertEquals(expected, signatures(MappedCollisionReader.read(file)), "mapped, seed " + seed);
+			assertRejected(rows, before, "mapped, seed " + seed);
+
+			for (int threads = 1; threads <= 4; threads++){
+				before = rejected();
+				assertEquals(expected, signatures(ParallelCollisionReader.read(file, threads)),
+						"parallel with " + threads + " threads, seed " + seed);
+				assertRejected(rows, before, "parallel with " + threads + " threads, seed " + seed);
+			}
+		}
+	}
+
+	/*
+	 * Returns the collisions in the order of the tree, with their zip codes, dates, keys and counts.
+	 */
+	private static List<String> signatures(CollisionsData data){
+		List<String> signatures = new ArrayList<String>();
+		for (Collision c : data.toArray()){
+			signatures.add(c + " " + c.getPersonsInjured() + " " + c.getPersonsKilled() + " "
+					+ c.getPedestriansInjured() + " " + c.getPedestriansKilled() + " " + c.getCyclistsInjured()
+					+ " " + c.getCyclistsKilled() + " " + c.getMotoristsInjured() + " " + c.getMotoristsKilled());
+		}
+		return signatures;
+	}
+
+	/*
+	 * Returns the rows rejected so far for every reason, the monitor counts the rows of all the readers.
+	 */
+	private static long[] rejected(){
+		CollisionMonitor.Reject[] reasons = CollisionMonitor.Reject.values();
+		long[] rejected = new long[reasons.length];
+		for (int i = 0; i < reasons.length; i++){
+			rejected[i] = CollisionMonitor.get().getRejectedRows(reasons[i]);
+		}
+		return rejected;
+	}
+
+	private static void assertRejected(TestRows rows, long[] before, String reader){
+		long[] after = rejected();
+		for (CollisionMonitor.Reject reason : CollisionMonitor.Reject.values()){
+			assertEquals(rows.count(reason), after[reason.ordinal()] - before[reason.ordinal()], reason + ", " + reader);
+		}
+	}
+}
@@ -0,0 +1,184 @@
+package project5;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Randomized checks of the augmented AVL tree of CollisionsData: after random adds and removes
+ * the subtree sizes, the casualty sums and the heights kept in the nodes, and the reports,
+ * rank and select built on them, are compared with a brute-force computation over a sorted set
+ * of the same collisions. A change of the rotations or of updateHeight that breaks the
+ * bookkeeping makes one of these fail.
+ *
+ * @author Gayeon_Park
+ *
+ */
+public class CollisionsDataTest {
+
+	//Few zip codes and one year of dates, so that the ranges and the zip codes have many collisions
+	private static final int[] ZIPS = {10001, 10002, 10453, 11207, 11385};
+	private static final int YEAR = 2016;
+
+	@Test
+	public void randomAddsAndRemovesMatchBruteForce(){
+		Random random = new Random(14);
+		CollisionsData data = new CollisionsData();
+		TreeSet<Collision> expected = new TreeSet<Collision>();
+		List<Collision> added = new ArrayList<Collision>();
+		for (int i = 1; i <= 40000; i++){
+			//a third of the operations remove a collision, some of them one that is not in the tree
+			if (random.nextInt(3) == 0 && !added.isEmpty()){
+				Collision c = added.get(random.nextInt(added.size()));
+				assertEquals(expected.remove(c), data.remove(c));
+			} else {
+				Collision c = randomCollision(random);
+				data.add(c);
+				expected.add(c);
+				added.add(c);
+			}
+			if (i % 1000 == 0){
+				check(data, expected, random);
+			}
+		}
+	}
+
+	@Test
+	public void addAllThenRemovesMatchBruteForce(){
+		Random random = new Random(42);
+		TreeSet<Collision> expected = new TreeSet<Collision>();
+		for (int i = 0; i < 20000; i++){
+			expected.add(randomCollision(random));
+		}
+		//addAll gets the collisions out of order and without the collisions that were drawn twice
+		List<Collision> collisions = new ArrayList<Collision>(expected);
+		Collections.shuffle(collisions, random);
+		CollisionsData data = new CollisionsData();
+		data.addAll(collisions);
+		check(data, expected, random);
+		for (int i = 1; i <= 15000; i++){
+			Collision c = collisions.get(random.nextInt(collisions.size()));
+			assertEquals(expected.remove(c), data.remove(c));
+			if (i % 1000 == 0){
+				check(data, expected, random);
+			}
+		}
+	}
+
+	/*
+	 * Checks the nodes of the tree and random reports, ranks and selections against the expected set.
+	 */
+	private static void check(CollisionsData data, TreeSet<Collision> expected, Random random){
+		assertEquals(expected.size(), data.size());
+		assertEquals(expected.size(), checkNode(data.root));
+
+		for (int i = 0; i < 50; i++){
+			int zip = ZIPS[random.nextInt(ZIPS.length)];
+			Date begin = randomDate(random);
+			Date end = randomDate(random);
+			if (end.compareTo(begin) < 0){
+				Date temp = begin;
+				begin = end;
+				end = temp;
+			}
+			CollisionSummary brute = new CollisionSummary();
+			for (Collision c : expected){
+				if (c.getZipCode() == zip && c.getDate().compareTo(begin) >= 0 && c.getDate().compareTo(end) <= 0){
+					brute.add(c);
+				}
+			}
+			CollisionSummary summary = new CollisionSummary();
+			data.summarize(Integer.toString(zip), begin, end, summary);
+			assertEquals(totals(brute), totals(summary), "summarize " + zip + " " + begin + " - " + end);
+		}
+
+		for (int zip : ZIPS){
+			List<Collision> ofZip = new ArrayList<Collision>();
+			for (Collision c : expected){
+				if (c.getZipCode() == zip){
+					ofZip.add(c);
+				}
+			}
+			String zipName = Integer.toString(zip);
+			for (int i = 0; i < 20; i++){
+				Date date = randomDate(random);
+				int before = 0;
+				while (before < ofZip.size() && ofZip.get(before).getDate().compareTo(date) < 0){
+					before++;
+				}
+				assertEquals(before, data.rank(zipName, date), "rank " + zip + " " + date);
+				int k = random.nextInt(ofZip.size() + 2) - 1;
+				if (k >= 0 && k < ofZip.size()){
+					assertSame(ofZip.get(k), data.select(zipName, k), "select " + zip + " " + k);
+				} else {
+					assertNull(data.select(zipName, k), "select " + zip + " " + k);
+				}
+			}
+		}
+	}
+
+	/*
+	 * Checks the order, the balance, the height, the size and the sums of the subtree of the node
+	 * against values computed from its children, and returns its size.
+	 */
+	private static int checkNode(CollisionsData.Node<Collision> node){
+		if (node == null){
+			return 0;
+		}
+		int size = 1 + checkNode(node.left) + checkNode(node.right);
+		int leftHeight = node.left == null ? -1 : node.left.height;
+		int rightHeight = node.right == null ? -1 : node.right.height;
+		assertEquals(1 + Math.max(leftHeight, rightHeight), node.height, "height of " + node.data);
+		assertTrue(Math.abs(leftHeight - rightHeight) <= 1, "balance of " + node.data);
+		if (node.left != null){
+			assertTrue(node.left.data.compareTo(node.data) < 0, "order of " + node.data);
+		}
+		if (node.right != null){
+			assertTrue(node.right.data.compareTo(node.data) > 0, "order of " + node.data);
+		}
+		assertEquals(size, node.size, "size of " + node.data);
+
+		CollisionSummary brute = new CollisionSummary();
+		addAll(node, brute);
+		CollisionSummary sums = new CollisionSummary();
+		CollisionsData.addSubtree(sums, node);
+		assertEquals(totals(brute), totals(sums), "sums of " + node.data);
+		return size;
+	}
+
+	private static void addAll(CollisionsData.Node<Collision> node, CollisionSummary summary){
+		if (node != null){
+			summary.add(node.data);
+			addAll(node.left, summary);
+			addAll(node.right, summary);
+		}
+	}
+
+	private static String totals(CollisionSummary s){
+		return s.getCollisions() + " " + s.getPersonsInjured() + " " + s.getPersonsKilled() + " "
+				+ s.getPedestriansInjured() + " " + s.getPedestriansKilled() + " " + s.getCyclistsInjured() + " "
+				+ s.getCyclistsKilled() + " " + s.getMotoristsInjured() + " " + s.getMotoristsKilled();
+	}
+
+	private static Collision randomCollision(Random random){
+		int[] counts = new int[8];
+		for (int i = 0; i < counts.length; i++){
+			counts[i] = random.nextInt(4) == 0 ? random.nextInt(3) : 0;
+		}
+		//keys from a small range, so that some collisions are added twice
+		return new Collision(randomDate(random), ZIPS[random.nextInt(ZIPS.length)], random.nextInt(50000), counts);
+	}
+
+	private static Date randomDate(Random random){
+		return Date.valueOf(YEAR, 1 + random.nextInt(12), 1 + random.nextInt(28));
+	}
+}
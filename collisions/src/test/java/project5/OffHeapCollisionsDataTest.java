@@ -0,0 +1,172 @@
+package project5;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Randomized checks of OffHeapCollisionsData against a CollisionsData of the same collisions:
+ * after random adds, addAll batches (into the empty tree and into a tree that has collisions
+ * already, with nulls and collisions drawn twice) and removes, the sizes, the reports and the
+ * summaries have to match. The slots of removed nodes are reused for the nodes added later, so
+ * a tree that shrinks and grows again has to keep the chunks it has and the same results.
+ *
+ * @author Gayeon_Park
+ *
+ */
+public class OffHeapCollisionsDataTest {
+
+	private static final int[] ZIPS = {10001, 10002, 10453, 11207, 11385};
+	private static final int YEAR = 2016;
+
+	@Test
+	public void randomAddsAndRemovesMatchCollisionsData(){
+		Random random = new Random(20);
+		CollisionsData expected = new CollisionsData();
+		OffHeapCollisionsData data = new OffHeapCollisionsData();
+		//the first batch builds the empty tree directly
+		List<Collision> first = randomBatch(random, new ArrayList<Collision>(), 5000);
+		expected.addAll(first);
+		data.addAll(first);
+		List<Collision> added = new ArrayList<Collision>();
+		for (Collision c : first){
+			if (c != null){
+				added.add(c);
+			}
+		}
+		check(data, expected, random);
+		for (int i = 1; i <= 40000; i++){
+			int operation = random.nextInt(20);
+			if (operation < 10){
+				Collision c = randomCollision(random);
+				expected.add(c);
+				data.add(c);
+				added.add(c);
+			} else if (operation < 11){
+				List<Collision> batch = randomBatch(random, added, random.nextInt(100));
+				expected.addAll(batch);
+				data.addAll(batch);
+				for (Collision c : batch){
+					if (c != null){
+						added.add(c);
+					}
+				}
+			} else {
+				//some of the collisions were removed already or are equal to one in the tree
+				Collision c = added.get(random.nextInt(added.size()));
+				assertEquals(expected.remove(c), data.remove(c));
+			}
+			if (i % 1000 == 0){
+				check(data, expected, random);
+			}
+		}
+	}
+
+	@Test
+	public void removedSlotsAreReused(){
+		Random random = new Random(21);
+		CollisionsData expected = new CollisionsData();
+		OffHeapCollisionsData data = new OffHeapCollisionsData();
+		List<Collision> added = new ArrayList<Collision>();
+		//fewer collisions than the slots of one chunk, every one with its own key
+		int count = OffHeapCollisionsData.CHUNK_SLOTS * 3 / 4;
+		long key = 0;
+		for (int i = 0; i < count; i++){
+			Collision c = randomCollision(random, key++);
+			expected.add(c);
+			data.add(c);
+			added.add(c);
+		}
+		long bytes = data.offHeapBytes();
+		assertEquals((long) OffHeapCollisionsData.CHUNK_SLOTS * OffHeapCollisionsData.SLOT_SIZE, bytes);
+		for (int round = 0; round < 3; round++){
+			//remove half of the collisions and add as many new ones, which only fit into the removed slots
+			for (int i = 0; i < count / 2; i++){
+				Collision c = added.remove(random.nextInt(added.size()));
+				assertEquals(true, expected.remove(c));
+				assertEquals(true, data.remove(c));
+			}
+			check(data, expected, random);
+			for (int i = 0; i < count / 2; i++){
+				Collision c = randomCollision(random, key++);
+				expected.add(c);
+				data.add(c);
+				added.add(c);
+			}
+			check(data, expected, random);
+			assertEquals(bytes, data.offHeapBytes(), "chunks after round " + round);
+		}
+	}
+
+	/*
+	 * Checks the size and random reports and summaries against the expected tree.
+	 */
+	private static void check(OffHeapCollisionsData data, CollisionsData expected, Random random){
+		assertEquals(expected.size(), data.size());
+		for (int i = 0; i < 50; i++){
+			String zip = Integer.toString(ZIPS[random.nextInt(ZIPS.length)]);
+			Date begin = randomDate(random);
+			Date end = randomDate(random);
+			if (end.compareTo(begin) < 0){
+				Date temp = begin;
+				begin = end;
+				end = temp;
+			}
+			String range = zip + " " + begin + " - " + end;
+			assertEquals(expected.getReport(zip, begin, end), data.getReport(zip, begin, end), "report " + range);
+			CollisionSummary summary = new CollisionSummary();
+			expected.summarize(zip, begin, end, summary);
+			CollisionSummary offHeap = new CollisionSummary();
+			data.summarize(zip, begin, end, offHeap);
+			assertEquals(totals(summary), totals(offHeap), "summarize " + range);
+		}
+	}
+
+	/*
+	 * Returns a batch of new collisions with some nulls, some collisions that were added before
+	 * and some collisions that are in the batch twice.
+	 */
+	private static List<Collision> randomBatch(Random random, List<Collision> added, int size){
+		List<Collision> batch = new ArrayList<Collision>();
+		for (int i = 0; i < size; i++){
+			int kind = random.nextInt(10);
+			if (kind == 0){
+				batch.add(null);
+			} else if (kind == 1 && !added.isEmpty()){
+				batch.add(added.get(random.nextInt(added.size())));
+			} else if (kind == 2 && !batch.isEmpty()){
+				batch.add(batch.get(random.nextInt(batch.size())));
+			} else {
+				batch.add(randomCollision(random));
+			}
+		}
+		return batch;
+	}
+
+	private static String totals(CollisionSummary s){
+		return s.getCollisions() + " " + s.getPersonsInjured() + " " + s.getPersonsKilled() + " "
+				+ s.getPedestriansInjured() + " " + s.getPedestriansKilled() + " " + s.getCyclistsInjured() + " "
+				+ s.getCyclistsKilled() + " " + s.getMotoristsInjured() + " " + s.getMotoristsKilled();
+	}
+
+	private static Collision randomCollision(Random random){
+		//keys from a small range, so that some collisions are drawn twice
+		return randomCollision(random, random.nextInt(20000));
+	}
+
+	private static Collision randomCollision(Random random, long key){
+		int[] counts = new int[8];
+		for (int i = 0; i < counts.length; i++){
+			counts[i] = random.nextInt(4) == 0 ? random.nextInt(3) : 0;
+		}
+		return new Collision(randomDate(random), ZIPS[random.nextInt(ZIPS.length)], key, counts);
+	}
+
+	private static Date randomDate(Random random){
+		return Date.valueOf(YEAR, 1 + random.nextInt(12), 1 + random.nextInt(28));
+	}
+}
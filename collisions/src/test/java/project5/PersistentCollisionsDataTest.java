@@ -0,0 +1,136 @@
+package project5;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Randomized checks of PersistentCollisionsData against a sorted set and a CollisionsData of the
+ * same collisions: after random adds, addAll batches (with nulls, with collisions that are in the
+ * tree already and with collisions drawn twice) and removes, the items of every version are the
+ * items of the set in order, the height stays within the AVL bound and the reports match. Every
+ * snapshot taken along the way has to keep its items after the later changes.
+ *
+ * @author Gayeon_Park
+ *
+ */
+public class PersistentCollisionsDataTest {
+
+	private static final int[] ZIPS = {10001, 10002, 10453, 11207, 11385};
+	private static final int YEAR = 2016;
+
+	@Test
+	public void randomChangesMatchCollisionsData(){
+		Random random = new Random(7);
+		PersistentCollisionsData data = new PersistentCollisionsData();
+		CollisionsData reference = new CollisionsData();
+		TreeSet<Collision> expected = new TreeSet<Collision>();
+		List<Collision> added = new ArrayList<Collision>();
+		List<PersistentCollisionsData.Snapshot> snapshots = new ArrayList<PersistentCollisionsData.Snapshot>();
+		List<Collision[]> versions = new ArrayList<Collision[]>();
+		for (int i = 1; i <= 10000; i++){
+			int operation = random.nextInt(10);
+			if (operation < 5){
+				Collision c = randomCollision(random);
+				data.add(c);
+				reference.add(c);
+				expected.add(c);
+				added.add(c);
+			} else if (operation < 6){
+				List<Collision> batch = new ArrayList<Collision>();
+				int size = random.nextInt(200);
+				for (int j = 0; j < size; j++){
+					int kind = random.nextInt(10);
+					if (kind == 0){
+						batch.add(null);
+					} else if (kind == 1 && !added.isEmpty()){
+						batch.add(added.get(random.nextInt(added.size())));
+					} else if (kind == 2 && !batch.isEmpty()){
+						batch.add(batch.get(random.nextInt(batch.size())));
+					} else {
+						batch.add(randomCollision(random));
+					}
+				}
+				data.addAll(batch);
+				reference.addAll(batch);
+				for (Collision c : batch){
+					if (c != null){
+						expected.add(c);
+						added.add(c);
+					}
+				}
+			} else if (!added.isEmpty()){
+				Collision c = added.get(random.nextInt(added.size()));
+				boolean removed = expected.remove(c);
+				assertEquals(removed, data.remove(c));
+				assertEquals(removed, reference.remove(c));
+			}
+			if (i % 500 == 0){
+				check(data, reference, expected, random);
+				PersistentCollisionsData.Snapshot snapshot = data.snapshot();
+				snapshots.add(snapshot);
+				versions.add(snapshot.toArray());
+			}
+		}
+		for (int i = 0; i < snapshots.size(); i++){
+			assertArrayEquals(versions.get(i), snapshots.get(i).toArray(), "snapshot " + i);
+		}
+	}
+
+	/*
+	 * Checks the items and the height of the current version and random reports against the
+	 * expected set and the reference tree.
+	 */
+	private static void check(PersistentCollisionsData data, CollisionsData reference, TreeSet<Collision> expected,
+			Random random){
+		PersistentCollisionsData.Snapshot snapshot = data.snapshot();
+		assertEquals(expected.size(), data.size());
+		assertEquals(expected.size(), snapshot.size());
+		assertArrayEquals(expected.toArray(new Collision[0]), snapshot.toArray());
+		//an AVL tree of n items is less than 1.45 * log2(n + 2) high
+		double bound = 1.45 * Math.log(snapshot.size() + 2) / Math.log(2);
+		assertTrue(snapshot.height() < bound, "height " + snapshot.height() + " of " + snapshot.size() + " items");
+
+		for (int i = 0; i < 50; i++){
+			String zip = Integer.toString(ZIPS[random.nextInt(ZIPS.length)]);
+			Date begin = randomDate(random);
+			Date end = randomDate(random);
+			if (end.compareTo(begin) < 0){
+				Date temp = begin;
+				begin = end;
+				end = temp;
+			}
+			CollisionSummary summary = new CollisionSummary();
+			reference.summarize(zip, begin, end, summary);
+			CollisionSummary persistent = new CollisionSummary();
+			data.summarize(zip, begin, end, persistent);
+			assertEquals(totals(summary), totals(persistent), "summarize " + zip + " " + begin + " - " + end);
+		}
+	}
+
+	private static String totals(CollisionSummary s){
+		return s.getCollisions() + " " + s.getPersonsInjured() + " " + s.getPersonsKilled() + " "
+				+ s.getPedestriansInjured() + " " + s.getPedestriansKilled() + " " + s.getCyclistsInjured() + " "
+				+ s.getCyclistsKilled() + " " + s.getMotoristsInjured() + " " + s.getMotoristsKilled();
+	}
+
+	private static Collision randomCollision(Random random){
+		int[] counts = new int[8];
+		for (int i = 0; i < counts.length; i++){
+			counts[i] = random.nextInt(4) == 0 ? random.nextInt(3) : 0;
+		}
+		//keys from a small range, so that some collisions are drawn twice
+		return new Collision(randomDate(random), ZIPS[random.nextInt(ZIPS.length)], random.nextInt(20000), counts);
+	}
+
+	private static Date randomDate(Random random){
+		return Date.valueOf(YEAR, 1 + random.nextInt(12), 1 + random.nextInt(28));
+	}
+}
@@ -0,0 +1,171 @@
+package project5;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.Scanner;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Checks the validation of the rows without exceptions: Collision.RowDecoder has to accept exactly
+ * the rows that the Collision(ArrayList) constructor accepts (with more than 23 entries, as the
+ * readers required before), with the same values, and give the reason of every broken row of
+ * TestRows. The quarantine files written by the Scanner, mapped and parallel readers have to be
+ * the same, and every line of them has to point at the row it was rejected for.
+ *
+ * @author Gayeon_Park
+ *
+ */
+public class RowDecoderTest {
+
+	//Values that the mutated rows get in the columns that are checked
+	private static final String[] DATES = {"02/29/2016", "02/29/2015", "2/3/2016", "12/31/2020", "01/01/1900",
+			"00/10/2016", " 01/01/2016", "01/01/2016 ", "1/1/16", "01-01-2016", "01/01/2016/1", ""};
+	private static final String[] ZIPS = {"00000", "99999", "1 234", "+1234", "１２３４５", "11207 ", ""};
+	private static final String[] NUMBERS = {"0", "-0", "+5", "007", "2147483647", "-2147483649", "1e3", " 1",
+			"١٢", "+", "-", "0x1", "9223372036854775807", "9223372036854775808", "-9223372036854775808", ""};
+
+	@TempDir
+	File directory;
+
+	@Test
+	public void decoderMatchesConstructor(){
+		Collision.RowDecoder decoder = new Collision.RowDecoder();
+		int[] reasons = new int[CollisionMonitor.Reject.values().length];
+		for (long seed = 1; seed <= 5; seed++){
+			Random random = new Random(seed);
+			TestRows rows = new TestRows(seed, 4000);
+			for (int i = 0; i < rows.rows.size(); i++){
+				//the rows of TestRows as they are, then mutated
+				ArrayList<String> entries = CollisionInfo.splitCSVLine(rows.rows.get(i));
+				CollisionMonitor.Reject reason = decoder.decode(entries);
+				assertEquals(rows.reasons.get(i), reason, "seed " + seed + ", row " + i + ": " + rows.rows.get(i));
+				if (reason != null){
+					reasons[reason.ordinal()]++;
+				}
+				check(decoder, entries);
+
+				for (int m = 0; m < 5; m++){
+					check(decoder, mutate(random, CollisionInfo.splitCSVLine(rows.rows.get(i))));
+				}
+			}
+		}
+		for (CollisionMonitor.Reject reason : CollisionMonitor.Reject.values()){
+			assertTrue(reasons[reason.ordinal()] > 100, "rows rejected for " + reason);
+		}
+	}
+
+	@Test
+	public void quarantineLinesMatchAcrossReaders() throws IOException {
+		for (long seed = 1; seed <= 3; seed++){
+			TestRows rows = new TestRows(seed, 3000);
+			File file = new File(directory, "collisions" + seed + ".csv");
+			rows.write(file);
+
+			CollisionQuarantine quarantine = new CollisionQuarantine(new File(directory, "scanner" + seed + ".txt"));
+			Scanner scanner = new Scanner(file, "UTF-8");
+			CollisionInfo.readCollisions(scanner, quarantine);
+			scanner.close();
+			quarantine.close();
+			byte[] expected = Files.readAllBytes(quarantine.getFile().toPath());
+			checkLines(rows, new String(expected, StandardCharsets.UTF_8), "scanner, seed " + seed);
+
+			quarantine = new CollisionQuarantine(new File(directory, "mapped" + seed + ".txt"));
+			MappedCollisionReader.read(file, quarantine);
+			quarantine.close();
+			assertArrayEquals(expected, Files.readAllBytes(quarantine.getFile().toPath()), "mapped, seed " + seed);
+
+			for (int threads = 1; threads <= 4; threads++){
+				quarantine = new CollisionQuarantine(new File(directory, "parallel" + seed + "-" + threads + ".txt"));
+				ParallelCollisionReader.read(file, threads, quarantine);
+				quarantine.close();
+				assertArrayEquals(expected, Files.readAllBytes(quarantine.getFile().toPath()),
+						"parallel with " + threads + " threads, seed " + seed);
+			}
+		}
+	}
+
+	/*
+	 * Checks that the decoder accepts the entries if and only if the constructor does, and that
+	 * both make the same collision.
+	 */
+	private static void check(Collision.RowDecoder decoder, ArrayList<String> entries){
+		Collision expected = null;
+		if (entries.size() > 23){
+			try {
+				expected = new Collision(entries);
+			} catch (IllegalArgumentException e){
+				//not a valid row
+			}
+		}
+		CollisionMonitor.Reject reason = decoder.decode(entries);
+		if (expected == null){
+			assertNotNull(reason, "accepted " + entries);
+			return;
+		}
+		assertNull(reason, "rejected " + entries);
+		Collision c = decoder.toCollision();
+		assertEquals(0, expected.compareTo(c), entries.toString());
+		assertEquals(expected.getDate(), c.getDate(), entries.toString());
+		assertEquals(expected.getZipCode(), c.getZipCode(), entries.toString());
+		assertEquals(expected.getKeyNumber(), c.getKeyNumber(), entries.toString());
+		assertEquals(counts(expected), counts(c), entries.toString());
+	}
+
+	/*
+	 * Changes a few of the checked entries of a row to values from the lists above, or cuts the row.
+	 */
+	private static ArrayList<String> mutate(Random random, ArrayList<String> entries){
+		int changes = 1 + random.nextInt(3);
+		for (int i = 0; i < changes; i++){
+			int kind = random.nextInt(10);
+			if (kind < 2 && entries.size() > 0){
+				entries.set(0, DATES[random.nextInt(DATES.length)]);
+			} else if (kind < 4 && entries.size() > 3){
+				entries.set(3, ZIPS[random.nextInt(ZIPS.length)]);
+			} else if (kind < 7 && entries.size() > 17){
+				entries.set(10 + random.nextInt(8), NUMBERS[random.nextInt(NUMBERS.length)]);
+			} else if (kind < 9 && entries.size() > 23){
+				entries.set(23, NUMBERS[random.nextInt(NUMBERS.length)]);
+			} else if (entries.size() > 0){
+				entries.subList(random.nextInt(entries.size()), entries.size()).clear();
+			}
+		}
+		return entries;
+	}
+
+	/*
+	 * Checks that the quarantine file has one line for every broken row, in the order of the rows,
+	 * with the line number of the row (the header is line 1), its reason and the row itself.
+	 */
+	private static void checkLines(TestRows rows, String quarantine, String reader){
+		List<String> lines = Arrays.asList(quarantine.split("\n"));
+		int line = 0;
+		for (int i = 0; i < rows.rows.size(); i++){
+			if (rows.reasons.get(i) != null){
+				assertEquals((i + 2) + "\t" + rows.reasons.get(i) + "\t" + rows.rows.get(i), lines.get(line++),
+						"row " + i + ", " + reader);
+			}
+		}
+		assertEquals(line, lines.size(), reader);
+	}
+
+	private static String counts(Collision c){
+		return c.getPersonsInjured() + " " + c.getPersonsKilled() + " " + c.getPedestriansInjured() + " "
+				+ c.getPedestriansKilled() + " " + c.getCyclistsInjured() + " " + c.getCyclistsKilled() + " "
+				+ c.getMotoristsInjured() + " " + c.getMotoristsKilled();
+	}
+}
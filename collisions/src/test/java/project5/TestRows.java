@@ -0,0 +1,179 @@
+package project5;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Seeded rows in the format of the NYPD file (the 29 columns of CsvGenerator) for the tests of
+ * the readers. Every row is written in one of the ways the readers have to agree on: entries
+ * quoted with '"' or with the UTF-8 smart quotes, spaces before the entries and after the last one,
+ * and "\n", "\r\n" or "\r" line ends (the last row has none). About a third of the rows are broken
+ * in one column, and the reason the row has to be rejected for is kept with the row.
+ *
+ * @author Gayeon_Park
+ *
+ */
+class TestRows {
+
+	static final String HEADER = "DATE,TIME,BOROUGH,ZIP CODE,LATITUDE,LONGITUDE,LOCATION,ON STREET NAME,"
+			+ "CROSS STREET NAME,OFF STREET NAME,NUMBER OF PERSONS INJURED,NUMBER OF PERSONS KILLED,"
+			+ "NUMBER OF PEDESTRIANS INJURED,NUMBER OF PEDESTRIANS KILLED,NUMBER OF CYCLIST INJURED,"
+			+ "NUMBER OF CYCLIST KILLED,NUMBER OF MOTORIST INJURED,NUMBER OF MOTORIST KILLED,"
+			+ "CONTRIBUTING FACTOR VEHICLE 1,CONTRIBUTING FACTOR VEHICLE 2,CONTRIBUTING FACTOR VEHICLE 3,"
+			+ "CONTRIBUTING FACTOR VEHICLE 4,CONTRIBUTING FACTOR VEHICLE 5,UNIQUE KEY,VEHICLE TYPE CODE 1,"
+			+ "VEHICLE TYPE CODE 2,VEHICLE TYPE CODE 3,VEHICLE TYPE CODE 4,VEHICLE TYPE CODE 5";
+
+	private static final String[] BOROUGHS = {"BROOKLYN", "QUEENS", "MANHATTAN", "BRONX", "STATEN ISLAND"};
+	private static final String[] STREETS = {"ATLANTIC AVENUE", "BROADWAY", "PENNSYLVANIA AVENUE, EAST",
+			"FLATBUSH AVENUE", "GRAND CONCOURSE", "3 AVENUE"};
+	private static final String[] FACTORS = {"Driver Inattention/Distraction", "Unspecified",
+			"Failure to Yield Right-of-Way"};
+	private static final String[] VEHICLES = {"PASSENGER VEHICLE", "SPORT UTILITY / STATION WAGON", "TAXI"};
+
+	//Broken entries for every reason, the short rows are cut instead
+	private static final String[] BAD_DATES = {"", "13/01/2016", "01/32/2016", "01/01/1899", "01/01/2021",
+			"ab/01/2016", "01/01", "1//2016"};
+	private static final String[] BAD_ZIPS = {"", "1120", "112077", "11a07", "-1120"};
+	private static final String[] BAD_COUNTS = {"", "x", "1.5", "2147483648", "1 2"};
+	private static final String[] NEGATIVE_COUNTS = {"-1", "-2147483648"};
+	private static final String[] BAD_KEYS = {"12a", "99999999999999999999", "3.0", "-"};
+
+	private static final String[] LINE_ENDS = {"\n", "\n", "\r\n", "\r"};
+
+	//The rows without line ends, the reason of every row (null for a valid row) and its line end
+	final List<String> rows = new ArrayList<String>();
+	final List<CollisionMonitor.Reject> reasons = new ArrayList<CollisionMonitor.Reject>();
+	private final List<String> ends = new ArrayList<String>();
+
+	/*
+	 * Creates the given number of rows from the seed.
+	 */
+	TestRows(long seed, int count){
+		Random random = new Random(seed);
+		for (int i = 0; i < count; i++){
+			CollisionMonitor.Reject reason = random.nextInt(3) == 0
+					? CollisionMonitor.Reject.values()[random.nextInt(CollisionMonitor.Reject.values().length)] : null;
+			rows.add(row(random, 3000000 + i, reason));
+			reasons.add(reason);
+			ends.add(LINE_ENDS[random.nextInt(LINE_ENDS.length)]);
+		}
+	}
+
+	/*
+	 * Writes the header and the rows to the file in UTF-8.
+	 */
+	void write(File file) throws IOException {
+		StringBuilder text = new StringBuilder(HEADER).append('\n');
+		for (int i = 0; i < rows.size(); i++){
+			text.append(rows.get(i));
+			if (i < rows.size() - 1){
+				text.append(ends.get(i));
+			}
+		}
+		Files.write(file.toPath(), text.toString().getBytes(StandardCharsets.UTF_8));
+	}
+
+	/*
+	 * Returns the number of rows that have to be rejected for the reason.
+	 */
+	int count(CollisionMonitor.Reject reason){
+		int count = 0;
+		for (CollisionMonitor.Reject r : reasons){
+			if (r == reason){
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/*
+	 * Returns a row with the given unique key that is broken for the given reason, or valid if it is null.
+	 */
+	private static String row(Random random, long key, CollisionMonitor.Reject reason){
+		List<String> entries = new ArrayList<String>();
+		entries.add(String.format("%02d/%02d/%d", 1 + random.nextInt(12), 1 + random.nextInt(31), 2012 + random.nextInt(6)));
+		entries.add(random.nextInt(24) + ":" + String.format("%02d", random.nextInt(60)));
+		entries.add(BOROUGHS[random.nextInt(BOROUGHS.length)]);
+		entries.add(Integer.toString(10001 + random.nextInt(1500)));
+		String latitude = String.format(Locale.ROOT, "%.6f", 40.5 + random.nextInt(400000) / 1e6);
+		String longitude = String.format(Locale.ROOT, "%.6f", -74.2 + random.nextInt(500000) / 1e6);
+		entries.add(latitude);
+		entries.add(longitude);
+		entries.add("(" + latitude + ", " + longitude + ")");
+		entries.add(STREETS[random.nextInt(STREETS.length)]);
+		entries.add(STREETS[random.nextInt(STREETS.length)]);
+		entries.add("");
+		for (int j = 0; j < 8; j++){
+			entries.add(Integer.toString(random.nextInt(5) == 0 ? random.nextInt(3) : 0));
+		}
+		for (int j = 0; j < 5; j++){
+			entries.add(j < 2 ? FACTORS[random.nextInt(FACTORS.length)] : "");
+		}
+		entries.add(Long.toString(key));
+		for (int j = 0; j < 5; j++){
+			entries.add(j < 2 ? VEHICLES[random.nextInt(VEHICLES.length)] : "");
+		}
+		//some rows end right after the unique key, which is then the last entry and is trimmed
+		if (random.nextInt(10) == 0){
+			entries.subList(24, entries.size()).clear();
+		}
+
+		if (reason == CollisionMonitor.Reject.BAD_DATE){
+			entries.set(0, pick(random, BAD_DATES));
+		} else if (reason == CollisionMonitor.Reject.BAD_ZIP){
+			entries.set(3, pick(random, BAD_ZIPS));
+		} else if (reason == CollisionMonitor.Reject.BAD_COUNT){
+			entries.set(10 + random.nextInt(8), pick(random, BAD_COUNTS));
+		} else if (reason == CollisionMonitor.Reject.NEGATIVE_COUNT){
+			entries.set(10 + random.nextInt(8), pick(random, NEGATIVE_COUNTS));
+		} else if (reason == CollisionMonitor.Reject.SHORT_ROW){
+			//at most 23 entries, the unique key is missing
+			entries.subList(18 + random.nextInt(6), entries.size()).clear();
+		} else if (reason == CollisionMonitor.Reject.EMPTY_KEY){
+			//an empty key that is not the last entry (an empty last entry is dropped, which makes a short row)
+			entries.set(23, "");
+			if (entries.size() == 24){
+				entries.add("TAXI");
+			}
+		} else if (reason == CollisionMonitor.Reject.BAD_KEY){
+			entries.set(23, pick(random, BAD_KEYS));
+		}
+
+		StringBuilder line = new StringBuilder(256);
+		for (int j = 0; j < entries.size(); j++){
+			if (j > 0){
+				line.append(',');
+			}
+			String entry = entries.get(j);
+			int style = random.nextInt(8);
+			//an entry with a comma has to be quoted
+			if (entry.indexOf(',') >= 0){
+				style = random.nextInt(2);
+			}
+			if (style == 0){
+				line.append('"').append(entry).append('"');
+			} else if (style == 1){
+				line.append('“').append(entry).append('”');
+			} else if (style == 2){
+				line.append("  ").append(entry);
+			} else {
+				line.append(entry);
+			}
+		}
+		//spaces after the last entry are trimmed
+		if (random.nextInt(5) == 0){
+			line.append("  ");
+		}
+		return line.toString();
+	}
+
+	private static String pick(Random random, String[] values){
+		return values[random.nextInt(values.length)];
+	}
+}